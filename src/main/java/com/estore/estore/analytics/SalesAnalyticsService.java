@@ -0,0 +1,324 @@
+package com.estore.estore.analytics;
+
+import com.estore.estore.catalog.CatalogSnapshot;
+import com.estore.estore.catalog.CatalogSnapshotHolder;
+import com.estore.estore.dto.response.SalesStatsResponse;
+import com.estore.estore.exception.BusinessException;
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Order;
+import com.estore.estore.model.OrderItem;
+import com.estore.estore.model.Product;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Часовые и дневные роллапы продаж.
+ * Путь записи заказа считает дельту в своей транзакции и после коммита
+ * складывает ее в буфер; буфер раз в app.analytics.flush-interval-ms
+ * записывается пакетными upsert-ами. Так горячие строки текущего часа
+ * не блокируются каждым оформлением заказа, а отставание дашборда —
+ * не больше интервала сброса. Потерянный при падении буфер восстанавливается
+ * пересчетом из orders (rebuild).
+ */
+@Service
+public class SalesAnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesAnalyticsService.class);
+
+    private static final String CANCELLED = Order.OrderStatus.CANCELLED.name();
+    private static final Duration HOURLY_SERIES_LIMIT = Duration.ofHours(48);
+    private static final int MAX_TOP_PRODUCTS = 100;
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    private CatalogSnapshotHolder catalogSnapshotHolder;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ReentrantLock bufferLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private SalesDelta buffer = new SalesDelta();
+
+    private Timer flushTimer;
+    private Counter flushFailures;
+
+    @PostConstruct
+    void registerMetrics() {
+        flushTimer = Timer.builder("analytics.rollup.flush")
+                .description("Time to write buffered sales deltas to the rollup tables")
+                .register(meterRegistry);
+        flushFailures = Counter.builder("analytics.rollup.flush.failures").register(meterRegistry);
+    }
+
+    // ============ ПУТЬ ЗАПИСИ ЗАКАЗА ============
+
+    public void orderPlaced(Order order) {
+        ordersPlaced(List.of(order));
+    }
+
+    public void ordersPlaced(Collection<Order> orders) {
+        CatalogSnapshot catalog = catalogSnapshotHolder.current();
+        SalesDelta delta = new SalesDelta();
+        for (Order order : orders) {
+            addOrder(delta, catalog, order, order.getStatus().name(), 1);
+        }
+        afterCommit(delta);
+    }
+
+    // Смена статуса переносит заказ из корзины старого статуса в корзину нового
+    public void statusChanged(Order order, Order.OrderStatus previous) {
+        if (previous == order.getStatus()) {
+            return;
+        }
+        CatalogSnapshot catalog = catalogSnapshotHolder.current();
+        SalesDelta delta = new SalesDelta();
+        addOrder(delta, catalog, order, previous.name(), -1);
+        addOrder(delta, catalog, order, order.getStatus().name(), 1);
+        afterCommit(delta);
+    }
+
+    // sign = 1 — добавить заказ в роллапы статуса, -1 — убрать
+    private void addOrder(SalesDelta delta, CatalogSnapshot catalog, Order order, String status, int sign) {
+        LocalDateTime createdAt = order.getCreatedAt();
+        long orderUnits = 0;
+        Map<Long, long[]> categoryUnits = new HashMap<>();
+        Map<Long, BigDecimal> categoryRevenue = new HashMap<>();
+
+        for (OrderItem item : order.getOrderItems()) {
+            Long productId = item.getProduct().getId();
+            Long categoryId = catalog.getProduct(productId)
+                    .map(Product::getCategory)
+                    .map(Category::getId)
+                    .orElse(null);
+            long units = (long) sign * item.getQuantity();
+            BigDecimal revenue = item.getPrice().multiply(BigDecimal.valueOf(units));
+
+            orderUnits += units;
+            if (categoryId != null) {
+                categoryUnits.computeIfAbsent(categoryId, id -> new long[1])[0] += units;
+                categoryRevenue.merge(categoryId, revenue, BigDecimal::add);
+            }
+            // Проданные товары — только по неотмененным заказам
+            if (!CANCELLED.equals(status)) {
+                delta.addProduct(createdAt, productId, units, revenue);
+            }
+        }
+
+        BigDecimal total = order.getTotalAmount().multiply(BigDecimal.valueOf(sign));
+        delta.addOrder(createdAt, status, sign, orderUnits, total);
+        categoryUnits.forEach((categoryId, units) ->
+                delta.addCategory(createdAt, categoryId, status, sign, units[0], categoryRevenue.get(categoryId)));
+    }
+
+    // В буфер — только после коммита заказа: откаченный заказ в статистику не попадает
+    private void afterCommit(SalesDelta delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    buffer(delta);
+                }
+            });
+        } else {
+            buffer(delta);
+        }
+    }
+
+    private void buffer(SalesDelta delta) {
+        bufferLock.lock();
+        try {
+            buffer.merge(delta);
+        } finally {
+            bufferLock.unlock();
+        }
+    }
+
+    // ============ ЗАПИСЬ БУФЕРА ============
+
+    @Scheduled(fixedDelayString = "${app.analytics.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushTimer.record(this::flushBuffer);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void flushBuffer() {
+        SalesDelta pending;
+        bufferLock.lock();
+        try {
+            pending = buffer;
+            buffer = new SalesDelta();
+        } finally {
+            bufferLock.unlock();
+        }
+
+        pending.compact();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> salesRollupRepository.apply(pending));
+        } catch (RuntimeException e) {
+            // Вернем дельту в буфер и повторим в следующий раз
+            buffer(pending);
+            flushFailures.increment();
+            log.warn("Sales rollup flush failed, will retry", e);
+        }
+    }
+
+    /**
+     * Пересчитать роллапы за дни [from, to) из orders — для первичного заполнения
+     * и восстановления после потери буфера. Идемпотентен.
+     */
+    public void rebuild(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime dayFrom = from.truncatedTo(ChronoUnit.DAYS);
+        LocalDateTime dayTo = to.truncatedTo(ChronoUnit.DAYS);
+        if (dayTo.isBefore(to)) {
+            dayTo = dayTo.plusDays(1);
+        }
+        if (!dayFrom.isBefore(dayTo)) {
+            throw new BusinessException("'from' must be before 'to'");
+        }
+
+        LocalDateTime start = dayFrom;
+        LocalDateTime end = dayTo;
+        flushLock.lock();
+        try {
+            // Сначала записываем накопленное, иначе оно наложится на пересчитанные строки
+            flushBuffer();
+            transactionTemplate.executeWithoutResult(status -> salesRollupRepository.rebuild(start, end));
+            log.info("Sales rollups rebuilt for {} .. {}", start, end);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // ============ ДАШБОРД ============
+
+    @Timed(value = "estore.service", histogram = true)
+    @Transactional(readOnly = true)
+    public SalesStatsResponse getStats(LocalDateTime from, LocalDateTime to, Long categoryId,
+                                       String granularity, int top) {
+        LocalDateTime end = to != null ? ceilToHour(to) : ceilToHour(LocalDateTime.now());
+        LocalDateTime start = from != null ? from.truncatedTo(ChronoUnit.HOURS)
+                : end.truncatedTo(ChronoUnit.DAYS).minusDays(6);
+        if (!start.isBefore(end)) {
+            throw new BusinessException("'from' must be before 'to'");
+        }
+        SalesDelta.Granularity seriesGranularity = parseGranularity(granularity, start, end);
+        int limit = Math.max(1, Math.min(top, MAX_TOP_PRODUCTS));
+
+        SalesRollupRepository.BucketRange range = SalesRollupRepository.BucketRange.of(start, end);
+        CatalogSnapshot catalog = catalogSnapshotHolder.current();
+
+        SalesStatsResponse response = new SalesStatsResponse();
+        response.setFrom(start);
+        response.setTo(end);
+        response.setCategoryId(categoryId);
+
+        // Сводка по статусам
+        Map<String, Long> ordersByStatus = new LinkedHashMap<>();
+        long orders = 0;
+        long units = 0;
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (SalesRollupRepository.StatusTotals totals : salesRollupRepository.statusTotals(range, categoryId)) {
+            ordersByStatus.put(totals.status(), totals.orders());
+            if (!CANCELLED.equals(totals.status())) {
+                orders += totals.orders();
+                units += totals.units();
+                revenue = revenue.add(totals.revenue());
+            }
+        }
+        response.setOrdersByStatus(ordersByStatus);
+        response.setOrderCount(orders);
+        response.setUnitsSold(units);
+        response.setRevenue(revenue);
+        response.setAverageBasketSize(average(BigDecimal.valueOf(units), orders));
+        response.setAverageOrderValue(average(revenue, orders));
+
+        List<SalesStatsResponse.CategorySales> categories = new ArrayList<>();
+        for (SalesRollupRepository.CategoryTotals totals : salesRollupRepository.categoryTotals(range, categoryId)) {
+            String name = catalog.getCategory(totals.categoryId()).map(Category::getName).orElse(null);
+            categories.add(new SalesStatsResponse.CategorySales(totals.categoryId(), name,
+                    totals.orders(), totals.units(), totals.revenue()));
+        }
+        response.setCategories(categories);
+
+        List<SalesStatsResponse.ProductSales> products = new ArrayList<>();
+        for (SalesRollupRepository.ProductTotals totals : salesRollupRepository.topProducts(range, categoryId, limit)) {
+            String name = catalog.getProduct(totals.productId()).map(Product::getName).orElse(null);
+            products.add(new SalesStatsResponse.ProductSales(totals.productId(), name,
+                    totals.categoryId(), totals.units(), totals.revenue()));
+        }
+        response.setTopProducts(products);
+
+        List<SalesStatsResponse.SeriesPoint> series = new ArrayList<>();
+        for (SalesRollupRepository.SeriesPoint point : salesRollupRepository.series(seriesGranularity, start, end, categoryId)) {
+            series.add(new SalesStatsResponse.SeriesPoint(point.bucketStart(), point.orders(), point.units(), point.revenue()));
+        }
+        response.setGranularity(seriesGranularity.name());
+        response.setSeries(series);
+
+        return response;
+    }
+
+    private static SalesDelta.Granularity parseGranularity(String granularity, LocalDateTime from, LocalDateTime to) {
+        if (granularity == null || granularity.isBlank()) {
+            return Duration.between(from, to).compareTo(HOURLY_SERIES_LIMIT) <= 0
+                    ? SalesDelta.Granularity.HOUR : SalesDelta.Granularity.DAY;
+        }
+        try {
+            return SalesDelta.Granularity.valueOf(granularity.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("Invalid granularity: " + granularity + " (expected HOUR or DAY)");
+        }
+    }
+
+    private static LocalDateTime ceilToHour(LocalDateTime time) {
+        LocalDateTime hour = time.truncatedTo(ChronoUnit.HOURS);
+        return hour.isBefore(time) ? hour.plusHours(1) : hour;
+    }
+
+    private static BigDecimal average(BigDecimal total, long count) {
+        if (count == 0) {
+            return BigDecimal.ZERO;
+        }
+        return total.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+    }
+}
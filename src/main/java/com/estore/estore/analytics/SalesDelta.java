@@ -0,0 +1,90 @@
+package com.estore.estore.analytics;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Накопленные, но еще не записанные изменения роллапов.
+ * Ключи — строки трех таблиц (sales_rollup, sales_rollup_category, sales_rollup_product),
+ * значения — дельты счетчиков. Ключ товара совпадает с первичным ключом таблицы:
+ * категория в него не входит и подставляется при записи. Не потокобезопасен — доступ под lock сервиса.
+ */
+final class SalesDelta {
+
+    enum Granularity { HOUR, DAY }
+
+    record OrderKey(Granularity granularity, LocalDateTime bucketStart, String status) {}
+
+    record CategoryKey(Granularity granularity, LocalDateTime bucketStart, Long categoryId, String status) {}
+
+    record ProductKey(Granularity granularity, LocalDateTime bucketStart, Long productId) {}
+
+    static final class Counters {
+        long orders;
+        long units;
+        BigDecimal revenue = BigDecimal.ZERO;
+
+        void add(long orders, long units, BigDecimal revenue) {
+            this.orders += orders;
+            this.units += units;
+            this.revenue = this.revenue.add(revenue);
+        }
+
+        boolean isZero() {
+            return orders == 0 && units == 0 && revenue.signum() == 0;
+        }
+    }
+
+    final Map<OrderKey, Counters> orders = new HashMap<>();
+    final Map<CategoryKey, Counters> categories = new HashMap<>();
+    final Map<ProductKey, Counters> products = new HashMap<>();
+
+    void addOrder(LocalDateTime createdAt, String status, long orders, long units, BigDecimal revenue) {
+        for (Granularity granularity : Granularity.values()) {
+            this.orders.computeIfAbsent(new OrderKey(granularity, bucket(granularity, createdAt), status),
+                    key -> new Counters()).add(orders, units, revenue);
+        }
+    }
+
+    void addCategory(LocalDateTime createdAt, Long categoryId, String status, long orders, long units, BigDecimal revenue) {
+        for (Granularity granularity : Granularity.values()) {
+            categories.computeIfAbsent(new CategoryKey(granularity, bucket(granularity, createdAt), categoryId, status),
+                    key -> new Counters()).add(orders, units, revenue);
+        }
+    }
+
+    void addProduct(LocalDateTime createdAt, Long productId, long units, BigDecimal revenue) {
+        for (Granularity granularity : Granularity.values()) {
+            products.computeIfAbsent(new ProductKey(granularity, bucket(granularity, createdAt), productId),
+                    key -> new Counters()).add(0, units, revenue);
+        }
+    }
+
+    // Слить другую дельту (возврат неудачно записанной пачки)
+    void merge(SalesDelta other) {
+        other.orders.forEach((key, counters) ->
+                orders.computeIfAbsent(key, k -> new Counters()).add(counters.orders, counters.units, counters.revenue));
+        other.categories.forEach((key, counters) ->
+                categories.computeIfAbsent(key, k -> new Counters()).add(counters.orders, counters.units, counters.revenue));
+        other.products.forEach((key, counters) ->
+                products.computeIfAbsent(key, k -> new Counters()).add(counters.orders, counters.units, counters.revenue));
+    }
+
+    // Убрать строки, где дельты взаимно погасились (например, SHIPPED -> DELIVERED для товаров)
+    void compact() {
+        orders.values().removeIf(Counters::isZero);
+        categories.values().removeIf(Counters::isZero);
+        products.values().removeIf(Counters::isZero);
+    }
+
+    boolean isEmpty() {
+        return orders.isEmpty() && categories.isEmpty() && products.isEmpty();
+    }
+
+    static LocalDateTime bucket(Granularity granularity, LocalDateTime time) {
+        LocalDateTime hour = time.withMinute(0).withSecond(0).withNano(0);
+        return granularity == Granularity.HOUR ? hour : hour.withHour(0);
+    }
+}
@@ -0,0 +1,317 @@
+package com.estore.estore.analytics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQL роллапов продаж. Таблицы без JPA-сущностей: запись — пакетные upsert-ы
+ * через unnest, чтение — агрегаты по диапазону корзин.
+ */
+@Repository
+public class SalesRollupRepository {
+
+    private static final String GRANULARITIES = "(VALUES ('HOUR', 'hour'), ('DAY', 'day')) AS g(granularity, unit)";
+    private static final String COUNTED = "status <> 'CANCELLED'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public record StatusTotals(String status, long orders, long units, BigDecimal revenue) {}
+
+    public record CategoryTotals(Long categoryId, long orders, long units, BigDecimal revenue) {}
+
+    public record ProductTotals(Long productId, Long categoryId, long units, BigDecimal revenue) {}
+
+    public record SeriesPoint(LocalDateTime bucketStart, long orders, long units, BigDecimal revenue) {}
+
+    /**
+     * Диапазон [from, to) из целых дней (дневные корзины) и часовых «краев» до и после них.
+     * Так запрос читает не больше ~48 часовых корзин независимо от длины диапазона.
+     */
+    public record BucketRange(LocalDateTime from, LocalDateTime to, LocalDateTime dayFrom, LocalDateTime dayTo) {
+
+        public static BucketRange of(LocalDateTime from, LocalDateTime to) {
+            LocalDateTime dayFrom = from.toLocalDate().atStartOfDay();
+            if (dayFrom.isBefore(from)) {
+                dayFrom = dayFrom.plusDays(1);
+            }
+            LocalDateTime dayTo = to.toLocalDate().atStartOfDay();
+            if (!dayFrom.isBefore(dayTo)) {
+                // Целых дней нет — только часовые корзины
+                dayFrom = to;
+                dayTo = to;
+            }
+            return new BucketRange(from, to, dayFrom, dayTo);
+        }
+
+        String condition() {
+            return "((granularity = 'DAY' AND bucket_start >= ? AND bucket_start < ?) OR " +
+                    "(granularity = 'HOUR' AND ((bucket_start >= ? AND bucket_start < ?) OR (bucket_start >= ? AND bucket_start < ?))))";
+        }
+
+        void addParams(List<Object> params) {
+            params.add(Timestamp.valueOf(dayFrom));
+            params.add(Timestamp.valueOf(dayTo));
+            params.add(Timestamp.valueOf(from));
+            params.add(Timestamp.valueOf(dayFrom));
+            params.add(Timestamp.valueOf(dayTo));
+            params.add(Timestamp.valueOf(to));
+        }
+    }
+
+    // ============ ЗАПИСЬ ============
+
+    public void apply(SalesDelta delta) {
+        if (!delta.orders.isEmpty()) {
+            upsertOrders(delta.orders);
+        }
+        if (!delta.categories.isEmpty()) {
+            upsertCategories(delta.categories);
+        }
+        if (!delta.products.isEmpty()) {
+            upsertProducts(delta.products);
+        }
+    }
+
+    private void upsertOrders(Map<SalesDelta.OrderKey, SalesDelta.Counters> rows) {
+        int size = rows.size();
+        String[] granularities = new String[size];
+        Timestamp[] buckets = new Timestamp[size];
+        String[] statuses = new String[size];
+        Long[] orders = new Long[size];
+        Long[] units = new Long[size];
+        BigDecimal[] revenue = new BigDecimal[size];
+
+        int i = 0;
+        for (Map.Entry<SalesDelta.OrderKey, SalesDelta.Counters> row : rows.entrySet()) {
+            granularities[i] = row.getKey().granularity().name();
+            buckets[i] = Timestamp.valueOf(row.getKey().bucketStart());
+            statuses[i] = row.getKey().status();
+            orders[i] = row.getValue().orders;
+            units[i] = row.getValue().units;
+            revenue[i] = row.getValue().revenue;
+            i++;
+        }
+
+        jdbcTemplate.update(connection -> {
+            var statement = connection.prepareStatement(
+                    "INSERT INTO sales_rollup (granularity, bucket_start, status, order_count, units, revenue) " +
+                    "SELECT * FROM unnest(?::varchar[], ?::timestamp[], ?::varchar[], ?::bigint[], ?::bigint[], ?::numeric[]) " +
+                    "ON CONFLICT (granularity, bucket_start, status) DO UPDATE SET " +
+                    "order_count = sales_rollup.order_count + EXCLUDED.order_count, " +
+                    "units = sales_rollup.units + EXCLUDED.units, " +
+                    "revenue = sales_rollup.revenue + EXCLUDED.revenue");
+            statement.setArray(1, connection.createArrayOf("varchar", granularities));
+            statement.setArray(2, connection.createArrayOf("timestamp", buckets));
+            statement.setArray(3, connection.createArrayOf("varchar", statuses));
+            statement.setArray(4, connection.createArrayOf("bigint", orders));
+            statement.setArray(5, connection.createArrayOf("bigint", units));
+            statement.setArray(6, connection.createArrayOf("numeric", revenue));
+            return statement;
+        });
+    }
+
+    private void upsertCategories(Map<SalesDelta.CategoryKey, SalesDelta.Counters> rows) {
+        int size = rows.size();
+        String[] granularities = new String[size];
+        Timestamp[] buckets = new Timestamp[size];
+        Long[] categoryIds = new Long[size];
+        String[] statuses = new String[size];
+        Long[] orders = new Long[size];
+        Long[] units = new Long[size];
+        BigDecimal[] revenue = new BigDecimal[size];
+
+        int i = 0;
+        for (Map.Entry<SalesDelta.CategoryKey, SalesDelta.Counters> row : rows.entrySet()) {
+            granularities[i] = row.getKey().granularity().name();
+            buckets[i] = Timestamp.valueOf(row.getKey().bucketStart());
+            categoryIds[i] = row.getKey().categoryId();
+            statuses[i] = row.getKey().status();
+            orders[i] = row.getValue().orders;
+            units[i] = row.getValue().units;
+            revenue[i] = row.getValue().revenue;
+            i++;
+        }
+
+        jdbcTemplate.update(connection -> {
+            var statement = connection.prepareStatement(
+                    "INSERT INTO sales_rollup_category (granularity, bucket_start, category_id, status, order_count, units, revenue) " +
+                    "SELECT * FROM unnest(?::varchar[], ?::timestamp[], ?::bigint[], ?::varchar[], ?::bigint[], ?::bigint[], ?::numeric[]) " +
+                    "ON CONFLICT (granularity, bucket_start, category_id, status) DO UPDATE SET " +
+                    "order_count = sales_rollup_category.order_count + EXCLUDED.order_count, " +
+                    "units = sales_rollup_category.units + EXCLUDED.units, " +
+                    "revenue = sales_rollup_category.revenue + EXCLUDED.revenue");
+            statement.setArray(1, connection.createArrayOf("varchar", granularities));
+            statement.setArray(2, connection.createArrayOf("timestamp", buckets));
+            statement.setArray(3, connection.createArrayOf("bigint", categoryIds));
+            statement.setArray(4, connection.createArrayOf("varchar", statuses));
+            statement.setArray(5, connection.createArrayOf("bigint", orders));
+            statement.setArray(6, connection.createArrayOf("bigint", units));
+            statement.setArray(7, connection.createArrayOf("numeric", revenue));
+            return statement;
+        });
+    }
+
+    private void upsertProducts(Map<SalesDelta.ProductKey, SalesDelta.Counters> rows) {
+        int size = rows.size();
+        String[] granularities = new String[size];
+        Timestamp[] buckets = new Timestamp[size];
+        Long[] productIds = new Long[size];
+        Long[] units = new Long[size];
+        BigDecimal[] revenue = new BigDecimal[size];
+
+        int i = 0;
+        for (Map.Entry<SalesDelta.ProductKey, SalesDelta.Counters> row : rows.entrySet()) {
+            granularities[i] = row.getKey().granularity().name();
+            buckets[i] = Timestamp.valueOf(row.getKey().bucketStart());
+            productIds[i] = row.getKey().productId();
+            units[i] = row.getValue().units;
+            revenue[i] = row.getValue().revenue;
+            i++;
+        }
+
+        // Категория — текущая категория товара, как и при rebuild
+        jdbcTemplate.update(connection -> {
+            var statement = connection.prepareStatement(
+                    "INSERT INTO sales_rollup_product (granularity, bucket_start, product_id, category_id, units, revenue) " +
+                    "SELECT d.granularity, d.bucket_start, d.product_id, p.category_id, d.units, d.revenue " +
+                    "FROM unnest(?::varchar[], ?::timestamp[], ?::bigint[], ?::bigint[], ?::numeric[]) " +
+                    "AS d(granularity, bucket_start, product_id, units, revenue) " +
+                    "LEFT JOIN products p ON p.id = d.product_id " +
+                    "ON CONFLICT (granularity, bucket_start, product_id) DO UPDATE SET " +
+                    "category_id = COALESCE(EXCLUDED.category_id, sales_rollup_product.category_id), " +
+                    "units = sales_rollup_product.units + EXCLUDED.units, " +
+                    "revenue = sales_rollup_product.revenue + EXCLUDED.revenue");
+            statement.setArray(1, connection.createArrayOf("varchar", granularities));
+            statement.setArray(2, connection.createArrayOf("timestamp", buckets));
+            statement.setArray(3, connection.createArrayOf("bigint", productIds));
+            statement.setArray(4, connection.createArrayOf("bigint", units));
+            statement.setArray(5, connection.createArrayOf("numeric", revenue));
+            return statement;
+        });
+    }
+
+    // Пересчитать корзины [from, to) из orders; границы выровнены по дням
+    public void rebuild(LocalDateTime from, LocalDateTime to) {
+        Timestamp fromTs = Timestamp.valueOf(from);
+        Timestamp toTs = Timestamp.valueOf(to);
+
+        for (String table : List.of("sales_rollup", "sales_rollup_category", "sales_rollup_product")) {
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE bucket_start >= ? AND bucket_start < ?", fromTs, toTs);
+        }
+
+        jdbcTemplate.update("INSERT INTO sales_rollup (granularity, bucket_start, status, order_count, units, revenue) " +
+                "SELECT g.granularity, date_trunc(g.unit, o.created_at), o.status, " +
+                "COUNT(*), COALESCE(SUM(u.units), 0), COALESCE(SUM(o.total_amount), 0) " +
+                "FROM orders o CROSS JOIN " + GRANULARITIES + " " +
+                "CROSS JOIN LATERAL (SELECT COALESCE(SUM(oi.quantity), 0) AS units FROM order_items oi WHERE oi.order_id = o.id) u " +
+                "WHERE o.created_at >= ? AND o.created_at < ? AND o.status IS NOT NULL " +
+                "GROUP BY 1, 2, 3", fromTs, toTs);
+
+        jdbcTemplate.update("INSERT INTO sales_rollup_category (granularity, bucket_start, category_id, status, order_count, units, revenue) " +
+                "SELECT g.granularity, date_trunc(g.unit, o.created_at), p.category_id, o.status, " +
+                "COUNT(DISTINCT o.id), COALESCE(SUM(oi.quantity), 0), COALESCE(SUM(oi.quantity * oi.price), 0) " +
+                "FROM orders o JOIN order_items oi ON oi.order_id = o.id JOIN products p ON p.id = oi.product_id " +
+                "CROSS JOIN " + GRANULARITIES + " " +
+                "WHERE o.created_at >= ? AND o.created_at < ? AND o.status IS NOT NULL AND p.category_id IS NOT NULL " +
+                "GROUP BY 1, 2, 3, 4", fromTs, toTs);
+
+        jdbcTemplate.update("INSERT INTO sales_rollup_product (granularity, bucket_start, product_id, category_id, units, revenue) " +
+                "SELECT g.granularity, date_trunc(g.unit, o.created_at), oi.product_id, MAX(p.category_id), " +
+                "COALESCE(SUM(oi.quantity), 0), COALESCE(SUM(oi.quantity * oi.price), 0) " +
+                "FROM orders o JOIN order_items oi ON oi.order_id = o.id JOIN products p ON p.id = oi.product_id " +
+                "CROSS JOIN " + GRANULARITIES + " " +
+                "WHERE o.created_at >= ? AND o.created_at < ? AND o." + COUNTED + " " +
+                "GROUP BY 1, 2, 3", fromTs, toTs);
+    }
+
+    // ============ ЧТЕНИЕ ============
+
+    public List<StatusTotals> statusTotals(BucketRange range, Long categoryId) {
+        List<Object> params = new ArrayList<>();
+        range.addParams(params);
+        String table = categoryId == null ? "sales_rollup" : "sales_rollup_category";
+        String sql = "SELECT status, SUM(order_count) AS orders, SUM(units) AS units, SUM(revenue) AS revenue " +
+                "FROM " + table + " WHERE " + range.condition() + categoryFilter(categoryId, params) +
+                " GROUP BY status ORDER BY status";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new StatusTotals(rs.getString("status"),
+                rs.getLong("orders"), rs.getLong("units"), rs.getBigDecimal("revenue")), params.toArray());
+    }
+
+    public List<CategoryTotals> categoryTotals(BucketRange range, Long categoryId) {
+        List<Object> params = new ArrayList<>();
+        range.addParams(params);
+        String sql = "SELECT category_id, " +
+                "SUM(order_count) FILTER (WHERE " + COUNTED + ") AS orders, " +
+                "SUM(units) FILTER (WHERE " + COUNTED + ") AS units, " +
+                "SUM(revenue) FILTER (WHERE " + COUNTED + ") AS revenue " +
+                "FROM sales_rollup_category WHERE " + range.condition() + categoryFilter(categoryId, params) +
+                " GROUP BY category_id ORDER BY revenue DESC NULLS LAST";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new CategoryTotals(rs.getLong("category_id"),
+                rs.getLong("orders"), rs.getLong("units"), zeroIfNull(rs.getBigDecimal("revenue"))), params.toArray());
+    }
+
+    public List<ProductTotals> topProducts(BucketRange range, Long categoryId, int limit) {
+        List<Object> params = new ArrayList<>();
+        range.addParams(params);
+        String filter = categoryFilter(categoryId, params);
+        params.add(limit);
+        String sql = "SELECT product_id, MAX(category_id) AS category_id, SUM(units) AS units, SUM(revenue) AS revenue " +
+                "FROM sales_rollup_product WHERE " + range.condition() + filter +
+                " GROUP BY product_id ORDER BY revenue DESC, units DESC LIMIT ?";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new ProductTotals(rs.getLong("product_id"),
+                (Long) rs.getObject("category_id"), rs.getLong("units"), rs.getBigDecimal("revenue")), params.toArray());
+    }
+
+    // Продано штук по каждому товару за диапазон (популярность для подсказок поиска)
+    public Map<Long, Long> unitsByProduct(BucketRange range) {
+        List<Object> params = new ArrayList<>();
+        range.addParams(params);
+        String sql = "SELECT product_id, SUM(units) AS units FROM sales_rollup_product WHERE " + range.condition() +
+                " GROUP BY product_id";
+        Map<Long, Long> units = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            units.put(rs.getLong("product_id"), rs.getLong("units"));
+        }, params.toArray());
+        return units;
+    }
+
+    // Временной ряд по корзинам одной гранулярности (для графика)
+    public List<SeriesPoint> series(SalesDelta.Granularity granularity, LocalDateTime from, LocalDateTime to, Long categoryId) {
+        List<Object> params = new ArrayList<>();
+        params.add(granularity.name());
+        params.add(Timestamp.valueOf(SalesDelta.bucket(granularity, from)));
+        params.add(Timestamp.valueOf(to));
+        String table = categoryId == null ? "sales_rollup" : "sales_rollup_category";
+        String sql = "SELECT bucket_start, " +
+                "COALESCE(SUM(order_count) FILTER (WHERE " + COUNTED + "), 0) AS orders, " +
+                "COALESCE(SUM(units) FILTER (WHERE " + COUNTED + "), 0) AS units, " +
+                "COALESCE(SUM(revenue) FILTER (WHERE " + COUNTED + "), 0) AS revenue " +
+                "FROM " + table + " WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ?" +
+                categoryFilter(categoryId, params) +
+                " GROUP BY bucket_start ORDER BY bucket_start";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new SeriesPoint(rs.getTimestamp("bucket_start").toLocalDateTime(),
+                rs.getLong("orders"), rs.getLong("units"), rs.getBigDecimal("revenue")), params.toArray());
+    }
+
+    private static String categoryFilter(Long categoryId, List<Object> params) {
+        if (categoryId == null) {
+            return "";
+        }
+        params.add(categoryId);
+        return " AND category_id = ?";
+    }
+
+    private static BigDecimal zeroIfNull(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+}
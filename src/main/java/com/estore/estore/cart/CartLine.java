@@ -0,0 +1,44 @@
+package com.estore.estore.cart;
+
+import com.estore.estore.model.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Позиция корзины независимо от хранилища.
+ * id есть только у позиций, прочитанных из cart_items.
+ */
+public final class CartLine {
+
+    private final Long id;
+    private final Product product;
+    private final int quantity;
+    private final LocalDateTime addedAt;
+
+    public CartLine(Long id, Product product, int quantity, LocalDateTime addedAt) {
+        this.id = id;
+        this.product = product;
+        this.quantity = quantity;
+        this.addedAt = addedAt;
+    }
+
+    public CartLine withQuantity(int quantity) {
+        return new CartLine(id, product, quantity, addedAt);
+    }
+
+    public BigDecimal getSubTotal() {
+        if (product.getPrice() == null) {
+            return BigDecimal.ZERO;
+        }
+        return product.getPrice().multiply(BigDecimal.valueOf(quantity));
+    }
+
+    public Long getId() { return id; }
+
+    public Product getProduct() { return product; }
+
+    public int getQuantity() { return quantity; }
+
+    public LocalDateTime getAddedAt() { return addedAt; }
+}
@@ -0,0 +1,28 @@
+package com.estore.estore.cart;
+
+import com.estore.estore.model.Product;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Хранилище корзин. Реализация выбирается свойством app.cart.store:
+ * jpa (по умолчанию) — каждая операция сразу пишет в cart_items,
+ * memory — корзины в памяти с отложенной пакетной записью в cart_items.
+ */
+public interface CartStore {
+
+    // Позиции корзины в порядке добавления
+    List<CartLine> getLines(Long userId);
+
+    Optional<CartLine> find(Long userId, Long productId);
+
+    // Добавить количество к позиции (или создать ее); возвращает позицию после изменения
+    CartLine add(Long userId, Product product, int quantity);
+
+    void setQuantity(Long userId, Long productId, int quantity);
+
+    void remove(Long userId, Long productId);
+
+    void clear(Long userId);
+}
@@ -0,0 +1,308 @@
+package com.estore.estore.cart;
+
+import com.estore.estore.catalog.CatalogSnapshot;
+import com.estore.estore.catalog.CatalogSnapshotHolder;
+import com.estore.estore.model.Product;
+import com.estore.estore.repository.CartItemRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Корзины в памяти с отложенной записью (write-behind).
+ * Операции меняют только MemoryCart пользователя и помечают корзину грязной;
+ * грязные корзины периодически и при остановке сбрасываются в cart_items
+ * пакетами (DELETE + INSERT ... ON CONFLICT на пачку пользователей).
+ * Оформление заказа читает состояние из памяти — оно авторитетно.
+ * Давно не используемые чистые корзины выгружаются и при следующем
+ * обращении читаются из cart_items заново.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "memory")
+public class InMemoryCartStore implements CartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryCartStore.class);
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    @Value("${app.cart.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    @Value("${app.cart.idle-evict-ms:1800000}")
+    private long idleEvictMs;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private CatalogSnapshotHolder catalogSnapshotHolder;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // ConcurrentHashMap блокирует отдельные бины, а не всю таблицу — корзины разных пользователей не конкурируют
+    private final Map<Long, MemoryCart> carts = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer flushTimer;
+    private Counter flushFailures;
+    private Counter cartHits;
+    private Counter cartLoads;
+
+    @PostConstruct
+    void registerMetrics() {
+        flushTimer = Timer.builder("cart.store.flush")
+                .description("Time to write dirty carts to cart_items")
+                .register(meterRegistry);
+        flushFailures = Counter.builder("cart.store.flush.failures").register(meterRegistry);
+        cartHits = Counter.builder("cart.store.lookups").tag("result", "hit").register(meterRegistry);
+        cartLoads = Counter.builder("cart.store.lookups").tag("result", "load").register(meterRegistry);
+        Gauge.builder("cart.store.carts", carts, Map::size).register(meterRegistry);
+        Gauge.builder("cart.store.dirty", dirtyUsers, Set::size).register(meterRegistry);
+    }
+
+    @Override
+    public List<CartLine> getLines(Long userId) {
+        CatalogSnapshot catalog = catalogSnapshotHolder.current();
+        return withCart(userId, cart -> {
+            List<CartLine> lines = new ArrayList<>(cart.size());
+            // Товары, удаленные из каталога, в корзине не показываем
+            cart.forEach((productId, quantity, addedAt) -> catalog.getProduct(productId)
+                    .ifPresent(product -> lines.add(new CartLine(null, product, quantity, toDateTime(addedAt)))));
+            return lines;
+        });
+    }
+
+    @Override
+    public Optional<CartLine> find(Long userId, Long productId) {
+        CatalogSnapshot catalog = catalogSnapshotHolder.current();
+        return withCart(userId, cart -> {
+            int quantity = cart.get(productId);
+            if (quantity == 0) {
+                return Optional.<CartLine>empty();
+            }
+            LocalDateTime addedAt = toDateTime(cart.addedAt(productId));
+            return catalog.getProduct(productId).map(product -> new CartLine(null, product, quantity, addedAt));
+        });
+    }
+
+    @Override
+    public CartLine add(Long userId, Product product, int quantity) {
+        long now = System.currentTimeMillis();
+        return withCart(userId, cart -> {
+            int updated = cart.add(product.getId(), quantity, now);
+            dirtyUsers.add(userId);
+            return new CartLine(null, product, updated, toDateTime(cart.addedAt(product.getId())));
+        });
+    }
+
+    @Override
+    public void setQuantity(Long userId, Long productId, int quantity) {
+        withCart(userId, cart -> {
+            if (cart.set(productId, quantity)) {
+                dirtyUsers.add(userId);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void remove(Long userId, Long productId) {
+        withCart(userId, cart -> {
+            if (cart.remove(productId)) {
+                dirtyUsers.add(userId);
+            }
+            return null;
+        });
+    }
+
+    // При оформлении заказа корзина очищается только после коммита заказа
+    @Override
+    public void clear(Long userId) {
+        Runnable clear = () -> withCart(userId, cart -> {
+            if (cart.size() > 0) {
+                cart.clear();
+                dirtyUsers.add(userId);
+            }
+            return null;
+        });
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear.run();
+                }
+            });
+        } else {
+            clear.run();
+        }
+    }
+
+    // ============ ОТЛОЖЕННАЯ ЗАПИСЬ ============
+
+    @Scheduled(fixedDelayString = "${app.cart.flush-interval-ms:2000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushTimer.record(this::flushDirty);
+            evictIdle(System.currentTimeMillis());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushLock.lock();
+        try {
+            flushDirty();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushDirty() {
+        List<Long> batch = new ArrayList<>(flushBatchSize);
+        for (Long userId : dirtyUsers) {
+            batch.add(userId);
+            if (batch.size() == flushBatchSize) {
+                flushBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flushBatch(batch);
+        }
+    }
+
+    private void flushBatch(List<Long> userIds) {
+        List<Long> lineUserIds = new ArrayList<>();
+        List<Long> productIds = new ArrayList<>();
+        List<Integer> quantities = new ArrayList<>();
+        List<LocalDateTime> addedAt = new ArrayList<>();
+
+        for (Long userId : userIds) {
+            // Снимаем флаг до копирования: изменение после копии снова пометит корзину
+            dirtyUsers.remove(userId);
+            MemoryCart cart = carts.get(userId);
+            if (cart == null) {
+                continue;
+            }
+            cart.lock.lock();
+            try {
+                cart.forEach((productId, quantity, added) -> {
+                    lineUserIds.add(userId);
+                    productIds.add(productId);
+                    quantities.add(quantity);
+                    addedAt.add(toDateTime(added));
+                });
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Long[] lineUsers = lineUserIds.toArray(new Long[0]);
+                Long[] products = productIds.toArray(new Long[0]);
+                cartItemRepository.deleteLinesNotIn(userIds.toArray(new Long[0]), lineUsers, products);
+                if (products.length > 0) {
+                    cartItemRepository.upsertLines(lineUsers, products,
+                            quantities.toArray(new Integer[0]), addedAt.toArray(new LocalDateTime[0]));
+                }
+            });
+        } catch (RuntimeException e) {
+            // Повторим в следующий раз
+            dirtyUsers.addAll(userIds);
+            flushFailures.increment();
+            log.warn("Cart flush failed for {} carts, will retry", userIds.size(), e);
+        }
+    }
+
+    // Выгружаем только чистые корзины — их состояние уже в cart_items
+    private void evictIdle(long nowMillis) {
+        for (Map.Entry<Long, MemoryCart> entry : carts.entrySet()) {
+            MemoryCart cart = entry.getValue();
+            cart.lock.lock();
+            try {
+                if (nowMillis - cart.getLastAccessMillis() >= idleEvictMs && !dirtyUsers.contains(entry.getKey())) {
+                    cart.markEvicted();
+                    carts.remove(entry.getKey(), cart);
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    private <T> T withCart(Long userId, Function<MemoryCart, T> action) {
+        while (true) {
+            MemoryCart cart = cart(userId);
+            cart.lock.lock();
+            try {
+                // Корзину могли выгрузить между get и захватом lock — берем заново
+                if (!cart.isEvicted()) {
+                    cart.touch(System.currentTimeMillis());
+                    return action.apply(cart);
+                }
+            } finally {
+                cart.lock.unlock();
+            }
+        }
+    }
+
+    private MemoryCart cart(Long userId) {
+        MemoryCart cart = carts.get(userId);
+        if (cart != null) {
+            cartHits.increment();
+            return cart;
+        }
+        cartLoads.increment();
+
+        // Загрузка вне compute, чтобы запрос к БД не держал бин таблицы
+        MemoryCart loaded = new MemoryCart();
+        for (CartItemRepository.LineView line : cartItemRepository.findLinesByUserId(userId)) {
+            loaded.put(line.getProductId(), line.getQuantity(), toMillis(line.getAddedAt()));
+        }
+        MemoryCart existing = carts.putIfAbsent(userId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE);
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime == null ? System.currentTimeMillis() : dateTime.atZone(ZONE).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,78 @@
+package com.estore.estore.cart;
+
+import com.estore.estore.model.CartItem;
+import com.estore.estore.model.Product;
+import com.estore.estore.repository.CartItemRepository;
+import com.estore.estore.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Корзина в cart_items: каждая операция — синхронный запрос в БД.
+ * Товары позиций загружаются сразу, чтобы ответ можно было собрать вне транзакции.
+ */
+@Component
+@Transactional
+@ConditionalOnProperty(name = "app.cart.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaCartStore implements CartStore {
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Override
+    public List<CartLine> getLines(Long userId) {
+        return cartItemRepository.findWithProductByUserId(userId).stream()
+                .map(JpaCartStore::toLine)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<CartLine> find(Long userId, Long productId) {
+        return cartItemRepository.findWithProductByUserIdAndProductId(userId, productId).map(JpaCartStore::toLine);
+    }
+
+    @Override
+    public CartLine add(Long userId, Product product, int quantity) {
+        // Проверяем, есть ли уже этот товар в корзине
+        Optional<CartItem> existingItem = cartItemRepository.findWithProductByUserIdAndProductId(userId, product.getId());
+
+        CartItem cartItem;
+        if (existingItem.isPresent()) {
+            // Обновляем количество если товар уже в корзине
+            cartItem = existingItem.get();
+            cartItem.setQuantity(cartItem.getQuantity() + quantity);
+        } else {
+            cartItem = new CartItem(userRepository.getReferenceById(userId), product, quantity);
+        }
+
+        return toLine(cartItemRepository.save(cartItem));
+    }
+
+    @Override
+    public void setQuantity(Long userId, Long productId, int quantity) {
+        cartItemRepository.updateQuantity(userId, productId, quantity);
+    }
+
+    @Override
+    public void remove(Long userId, Long productId) {
+        cartItemRepository.deleteByUserIdAndProductId(userId, productId);
+    }
+
+    @Override
+    public void clear(Long userId) {
+        cartItemRepository.deleteByUserId(userId);
+    }
+
+    private static CartLine toLine(CartItem cartItem) {
+        return new CartLine(cartItem.getId(), cartItem.getProduct(), cartItem.getQuantity(), cartItem.getAddedAt());
+    }
+}
@@ -0,0 +1,127 @@
+package com.estore.estore.cart;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Корзина одного пользователя в памяти: параллельные примитивные массивы
+ * productId → quantity (+ время добавления). Корзины маленькие, поэтому
+ * линейный поиск быстрее и компактнее хеш-таблицы с упаковкой в Long/Integer.
+ * Не потокобезопасна — доступ только под lock самой корзины
+ * (ReentrantLock, а не synchronized: ожидание монитора закрепляет виртуальный поток).
+ */
+final class MemoryCart {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    final ReentrantLock lock = new ReentrantLock();
+
+    private long[] productIds = new long[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private long[] addedAt = new long[INITIAL_CAPACITY];
+    private int size;
+
+    private long lastAccessMillis;
+    private boolean evicted;
+
+    interface LineConsumer {
+        void accept(long productId, int quantity, long addedAtMillis);
+    }
+
+    int get(long productId) {
+        int index = indexOf(productId);
+        return index < 0 ? 0 : quantities[index];
+    }
+
+    long addedAt(long productId) {
+        int index = indexOf(productId);
+        return index < 0 ? 0 : addedAt[index];
+    }
+
+    // Добавить количество; возвращает новое количество позиции
+    int add(long productId, int quantity, long nowMillis) {
+        int index = indexOf(productId);
+        if (index >= 0) {
+            quantities[index] += quantity;
+            return quantities[index];
+        }
+        put(productId, quantity, nowMillis);
+        return quantity;
+    }
+
+    boolean set(long productId, int quantity) {
+        int index = indexOf(productId);
+        if (index < 0) {
+            return false;
+        }
+        quantities[index] = quantity;
+        return true;
+    }
+
+    boolean remove(long productId) {
+        int index = indexOf(productId);
+        if (index < 0) {
+            return false;
+        }
+        // Сдвигаем хвост, чтобы сохранить порядок добавления
+        int tail = size - index - 1;
+        System.arraycopy(productIds, index + 1, productIds, index, tail);
+        System.arraycopy(quantities, index + 1, quantities, index, tail);
+        System.arraycopy(addedAt, index + 1, addedAt, index, tail);
+        size--;
+        return true;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(LineConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept(productIds[i], quantities[i], addedAt[i]);
+        }
+    }
+
+    // Используется при загрузке из cart_items
+    void put(long productId, int quantity, long addedAtMillis) {
+        if (size == productIds.length) {
+            int capacity = size * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            addedAt = Arrays.copyOf(addedAt, capacity);
+        }
+        productIds[size] = productId;
+        quantities[size] = quantity;
+        addedAt[size] = addedAtMillis;
+        size++;
+    }
+
+    void touch(long nowMillis) {
+        lastAccessMillis = nowMillis;
+    }
+
+    long getLastAccessMillis() {
+        return lastAccessMillis;
+    }
+
+    void markEvicted() {
+        evicted = true;
+    }
+
+    boolean isEvicted() {
+        return evicted;
+    }
+
+    private int indexOf(long productId) {
+        for (int i = 0; i < size; i++) {
+            if (productIds[i] == productId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,271 @@
+package com.estore.estore.catalog;
+
+import com.estore.estore.exception.ApiException;
+import com.estore.estore.exception.BusinessException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Delta-sync каталога для зеркал (edge-кэши, мобильное приложение).
+ * Отдает изменения товаров и категорий после водяного знака страницами в NDJSON:
+ * строка на изменение (UPSERT с текущим состоянием или DELETE из catalog_tombstones),
+ * последняя строка — CHECKPOINT с токеном следующего запроса.
+ * Строки идут из курсора сразу в поток ответа, как в выгрузке заказов.
+ */
+@Service
+public class CatalogChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogChangeFeed.class);
+
+    static final String CATEGORY = "CATEGORY";
+    static final String PRODUCT = "PRODUCT";
+
+    // Ветки UNION ALL: в каждой свой индекс (change_xid, id) и свой LIMIT, поэтому
+    // страница читает не больше limit строк из каждой таблицы. Тип сущности — строка
+    // в COLLATE "C": 'CATEGORY' < 'PRODUCT', категория приходит раньше своих товаров.
+    private static final String CATEGORIES_BRANCH =
+            "(SELECT CAST('" + CATEGORY + "' AS text) COLLATE \"C\" AS entity_type, c.id, c.change_xid, " +
+            "c.name, c.description, NULL AS model, NULL::numeric AS price, NULL::integer AS stock_quantity, " +
+            "NULL::bigint AS category_id, NULL AS image_url, FALSE AS deleted " +
+            "FROM categories c WHERE (c.change_xid, c.id) > (?, ?) ORDER BY c.change_xid, c.id LIMIT ?)";
+
+    private static final String PRODUCTS_BRANCH =
+            "(SELECT CAST('" + PRODUCT + "' AS text) COLLATE \"C\", p.id, p.change_xid, " +
+            "p.name, p.description, p.model, p.price, p.stock_quantity, p.category_id, p.image_url, FALSE " +
+            "FROM products p WHERE (p.change_xid, p.id) > (?, ?) ORDER BY p.change_xid, p.id LIMIT ?)";
+
+    private static final String TOMBSTONES_BRANCH =
+            "(SELECT CAST(t.entity_type AS text) COLLATE \"C\", t.entity_id, t.change_xid, " +
+            "NULL, NULL, NULL, NULL::numeric, NULL::integer, NULL::bigint, NULL, TRUE " +
+            "FROM catalog_tombstones t WHERE (t.change_xid, t.entity_type, t.entity_id) > (?, ?, ?) " +
+            "ORDER BY t.change_xid, t.entity_type, t.entity_id LIMIT ?)";
+
+    @Value("${app.catalog.changes.max-page-size:5000}")
+    private int maxPageSize;
+
+    @Value("${app.catalog.changes.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${app.catalog.changes.tombstone-retention-hours:720}")
+    private long tombstoneRetentionHours;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private Counter streamedChanges;
+
+    @PostConstruct
+    void init() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        streamedChanges = Counter.builder("catalog.changes.streamed").register(meterRegistry);
+    }
+
+    // Параметры и срок токена проверяются до начала потока, чтобы ответить 400/410
+    public StreamingResponseBody changes(String since, int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new BusinessException("Limit must be between 1 and " + maxPageSize);
+        }
+
+        CatalogSyncToken token = since != null ? CatalogSyncToken.decode(since) : CatalogSyncToken.initial();
+        long retentionStart = System.currentTimeMillis() - Duration.ofHours(tombstoneRetentionHours).toMillis();
+        if (!token.isFullSync() && token.getSinceAt() < retentionStart) {
+            // Удаления старше срока хранения уже вычищены — инкремент был бы неполным
+            throw new ApiException(HttpStatus.GONE, "Sync token has expired, start a full sync without 'since'");
+        }
+
+        return outputStream -> {
+            long rows = readOnlyTransaction.execute(tx -> {
+                try {
+                    return writePage(outputStream, token, limit);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            streamedChanges.increment(rows);
+        };
+    }
+
+    private long writePage(OutputStream outputStream, CatalogSyncToken token, int limit) throws IOException {
+        CatalogSyncToken position = token;
+        if (!position.hasHorizon()) {
+            // Горизонт снимается до чтения: все xid ниже него уже завершены и будут видны запросу
+            Long horizon = jdbcTemplate.queryForObject(
+                    "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint", Long.class);
+            position = position.withHorizon(horizon, System.currentTimeMillis());
+        }
+
+        ChangeWriter writer = new ChangeWriter(outputStream, objectMapper);
+        CatalogSyncToken start = position;
+        jdbcTemplate.query(connection -> prepare(connection, start, limit), rs -> {
+            try {
+                writer.row(rs);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        boolean hasMore = writer.rows() == limit;
+        CatalogSyncToken next = hasMore
+                ? position.after(writer.lastXid, writer.lastType, writer.lastId)
+                : position.completed();
+        writer.checkpoint(next.encode(), hasMore);
+        return writer.rows();
+    }
+
+    private static PreparedStatement prepare(Connection connection, CatalogSyncToken position, int limit)
+            throws SQLException {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM (");
+
+        sql.append(CATEGORIES_BRANCH);
+        addLiveBranchParams(params, position, CATEGORY, limit);
+        sql.append(" UNION ALL ").append(PRODUCTS_BRANCH);
+        addLiveBranchParams(params, position, PRODUCT, limit);
+
+        // Новому зеркалу удалять нечего
+        if (!position.isFullSync()) {
+            sql.append(" UNION ALL ").append(TOMBSTONES_BRANCH);
+            params.add(position.getAfterXid());
+            params.add(position.getAfterType());
+            params.add(position.getAfterId());
+            params.add(limit);
+        }
+
+        sql.append(") ch ORDER BY change_xid, entity_type, id LIMIT ?");
+        params.add(limit);
+
+        PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        for (int i = 0; i < params.size(); i++) {
+            statement.setObject(i + 1, params.get(i));
+        }
+        return statement;
+    }
+
+    /**
+     * В ветке одного типа условие (change_xid, type, id) &gt; позиции сводится
+     * к (change_xid, id) &gt; (xid, bound) — так его использует индекс таблицы.
+     */
+    private static void addLiveBranchParams(List<Object> params, CatalogSyncToken position, String type, int limit) {
+        int order = type.compareTo(position.getAfterType());
+        long idBound = order > 0 ? 0 : order == 0 ? position.getAfterId() : Long.MAX_VALUE;
+        params.add(position.getAfterXid());
+        params.add(idBound);
+        params.add(limit);
+    }
+
+    // Удаления хранятся ограниченное время; более старые токены получают 410 и делают полную выгрузку
+    @Scheduled(fixedDelayString = "${app.catalog.changes.cleanup-interval-ms:3600000}")
+    public void deleteExpiredTombstones() {
+        int deleted = jdbcTemplate.update(
+                "DELETE FROM catalog_tombstones WHERE deleted_at < now() - make_interval(hours => ?)",
+                (int) tombstoneRetentionHours);
+        if (deleted > 0) {
+            log.info("Deleted {} catalog tombstones older than {} h", deleted, tombstoneRetentionHours);
+        }
+    }
+
+    private static final class ChangeWriter {
+        private final JsonGenerator json;
+        private long rows;
+        private long lastXid;
+        private String lastType;
+        private long lastId;
+
+        ChangeWriter(OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(outputStream);
+            this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.json.setRootValueSeparator(new SerializedString(""));
+        }
+
+        void row(ResultSet rs) throws SQLException, IOException {
+            lastType = rs.getString("entity_type");
+            lastId = rs.getLong("id");
+            lastXid = rs.getLong("change_xid");
+            rows++;
+
+            json.writeStartObject();
+            json.writeStringField("type", lastType);
+            json.writeNumberField("id", lastId);
+            if (rs.getBoolean("deleted")) {
+                json.writeStringField("op", "DELETE");
+            } else {
+                json.writeStringField("op", "UPSERT");
+                json.writeStringField("name", rs.getString("name"));
+                json.writeStringField("description", rs.getString("description"));
+                if (PRODUCT.equals(lastType)) {
+                    json.writeStringField("model", rs.getString("model"));
+                    json.writeNumberField("price", rs.getBigDecimal("price"));
+                    writeLong("stockQuantity", rs.getObject("stock_quantity"));
+                    writeLong("categoryId", rs.getObject("category_id"));
+                    json.writeStringField("imageUrl", rs.getString("image_url"));
+                }
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        void checkpoint(String next, boolean hasMore) throws IOException {
+            json.writeStartObject();
+            json.writeStringField("type", "CHECKPOINT");
+            json.writeStringField("next", next);
+            json.writeBooleanField("hasMore", hasMore);
+            json.writeEndObject();
+            json.writeRaw('\n');
+            json.flush();
+        }
+
+        private void writeLong(String field, Object value) throws IOException {
+            if (value == null) {
+                json.writeNullField(field);
+            } else {
+                json.writeNumberField(field, ((Number) value).longValue());
+            }
+        }
+
+        long rows() {
+            return rows;
+        }
+    }
+}
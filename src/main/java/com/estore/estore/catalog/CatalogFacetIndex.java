@@ -0,0 +1,302 @@
+package com.estore.estore.catalog;
+
+import com.estore.estore.dto.response.ProductBrowseResponse;
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Product;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Колоночный индекс снимка каталога для faceted-просмотра.
+ * Товар — строка (row), его атрибуты лежат в примитивных массивах: категория,
+ * цена в копейках, ценовой диапазон, остаток. Фильтры и счетчики фасетов считаются
+ * одним проходом по массивам, без GROUP BY в БД. Порядки сортировки хранятся
+ * перестановками строк, счетчики для каталога без фильтров посчитаны при построении.
+ * Неизменяем и привязан к версии снимка. Для снимка, где поменялись только остатки,
+ * индекс не строится заново: см. {@link #withStock}.
+ */
+public final class CatalogFacetIndex {
+
+    private static final List<String> SORT_KEYS = List.of("createdAt", "price", "name");
+
+    private final long version;
+    private final long structureVersion;
+
+    // Строки в порядке id
+    private final Product[] products;
+    private final Map<Long, Integer> rowById;
+    private final int[] categoryOrdinal;
+    private final long[] priceCents;
+    private final int[] priceBucket;
+    private final int[] stock;
+
+    // Ключ сортировки -> строки по возрастанию
+    private final Map<String, int[]> sortOrders;
+
+    // Категории в порядке имени; ordinal — индекс в этих массивах
+    private final Category[] categories;
+    private final Map<Long, Integer> categoryOrdinalById;
+
+    // Нижние границы диапазонов цены, начиная со второго (первый начинается с 0)
+    private final BigDecimal[] bucketBounds;
+    private final long[] bucketBoundCents;
+
+    // Счетчики фасетов каталога без фильтров
+    private final long[] allCategoryCounts;
+    private final long[] allBucketCounts;
+    private final long allInStock;
+
+    private CatalogFacetIndex(CatalogSnapshot snapshot, List<BigDecimal> priceBounds) {
+        this.version = snapshot.getVersion();
+        this.structureVersion = snapshot.getStructureVersion();
+
+        this.categories = snapshot.getCategoriesByName().toArray(new Category[0]);
+        Map<Long, Integer> categoryOrdinals = new HashMap<>();
+        for (int i = 0; i < categories.length; i++) {
+            categoryOrdinals.put(categories[i].getId(), i);
+        }
+        this.categoryOrdinalById = Map.copyOf(categoryOrdinals);
+
+        this.bucketBounds = new TreeSet<>(priceBounds).toArray(new BigDecimal[0]);
+        this.bucketBoundCents = Arrays.stream(bucketBounds).mapToLong(CatalogFacetIndex::cents).toArray();
+
+        this.products = snapshot.getProductsSorted("id", true).toArray(new Product[0]);
+        int n = products.length;
+        this.categoryOrdinal = new int[n];
+        this.priceCents = new long[n];
+        this.priceBucket = new int[n];
+        this.stock = new int[n];
+        this.allCategoryCounts = new long[categories.length];
+        this.allBucketCounts = new long[bucketBounds.length + 1];
+
+        Map<Long, Integer> rows = new HashMap<>(n * 2);
+        long inStock = 0;
+        for (int row = 0; row < n; row++) {
+            Product product = products[row];
+            rows.put(product.getId(), row);
+
+            Integer ordinal = product.getCategory() != null
+                    ? categoryOrdinals.get(product.getCategory().getId())
+                    : null;
+            categoryOrdinal[row] = ordinal != null ? ordinal : -1;
+            priceCents[row] = cents(product.getPrice());
+            priceBucket[row] = bucketOf(priceCents[row]);
+            stock[row] = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+
+            if (categoryOrdinal[row] >= 0) {
+                allCategoryCounts[categoryOrdinal[row]]++;
+            }
+            allBucketCounts[priceBucket[row]]++;
+            if (stock[row] > 0) {
+                inStock++;
+            }
+        }
+        this.rowById = rows;
+        this.allInStock = inStock;
+
+        Map<String, int[]> orders = new HashMap<>();
+        for (String key : SORT_KEYS) {
+            orders.put(key, snapshot.getProductsSorted(key, true).stream()
+                    .mapToInt(product -> rows.get(product.getId()))
+                    .toArray());
+        }
+        this.sortOrders = Map.copyOf(orders);
+    }
+
+    // Общие с base перестановки, категории и цены; свои только товары и остатки
+    private CatalogFacetIndex(CatalogFacetIndex base, CatalogSnapshot snapshot) {
+        this.version = snapshot.getVersion();
+        this.structureVersion = base.structureVersion;
+        this.rowById = base.rowById;
+        this.categoryOrdinal = base.categoryOrdinal;
+        this.priceCents = base.priceCents;
+        this.priceBucket = base.priceBucket;
+        this.sortOrders = base.sortOrders;
+        this.categories = base.categories;
+        this.categoryOrdinalById = base.categoryOrdinalById;
+        this.bucketBounds = base.bucketBounds;
+        this.bucketBoundCents = base.bucketBoundCents;
+        this.allCategoryCounts = base.allCategoryCounts;
+        this.allBucketCounts = base.allBucketCounts;
+
+        // Порядок по id у снимков одной структуры совпадает, строка товара та же
+        this.products = snapshot.getProductsSorted("id", true).toArray(new Product[0]);
+        this.stock = new int[products.length];
+        long inStock = 0;
+        for (int row = 0; row < products.length; row++) {
+            Integer quantity = products[row].getStockQuantity();
+            stock[row] = quantity != null ? quantity : 0;
+            if (stock[row] > 0) {
+                inStock++;
+            }
+        }
+        this.allInStock = inStock;
+    }
+
+    public static CatalogFacetIndex build(CatalogSnapshot snapshot, List<BigDecimal> priceBounds) {
+        return new CatalogFacetIndex(snapshot, priceBounds);
+    }
+
+    /**
+     * Индекс для снимка, отличающегося от исходного только остатками (CatalogSnapshot.withStock):
+     * один проход по строкам вместо сортировок и группировок полного построения.
+     */
+    public CatalogFacetIndex withStock(CatalogSnapshot snapshot) {
+        if (snapshot.getStructureVersion() != structureVersion) {
+            throw new IllegalArgumentException("Snapshot " + snapshot.getVersion() +
+                    " does not share structure version " + structureVersion);
+        }
+        return new CatalogFacetIndex(this, snapshot);
+    }
+
+    public static boolean isSortable(String sortBy) {
+        return SORT_KEYS.contains(sortBy);
+    }
+
+    public ProductBrowseResponse browse(ProductBrowseQuery query) {
+        int n = products.length;
+        boolean filterCategory = !query.categoryIds().isEmpty();
+        boolean filterPrice = query.minPrice() != null || query.maxPrice() != null;
+        boolean filterText = query.rankedIds() != null;
+
+        BitSet matched = new BitSet(n);
+        long[] categoryCounts;
+        long[] bucketCounts;
+        long inStockCount;
+
+        if (!filterCategory && !filterPrice && !filterText && !query.inStockOnly()) {
+            // Без фильтров — готовые счетчики
+            matched.set(0, n);
+            categoryCounts = allCategoryCounts;
+            bucketCounts = allBucketCounts;
+            inStockCount = allInStock;
+        } else {
+            boolean[] selected = new boolean[categories.length];
+            for (Long categoryId : query.categoryIds()) {
+                Integer ordinal = categoryOrdinalById.get(categoryId);
+                if (ordinal != null) {
+                    selected[ordinal] = true;
+                }
+            }
+            long minCents = query.minPrice() != null ? cents(query.minPrice()) : Long.MIN_VALUE;
+            long maxCents = query.maxPrice() != null ? cents(query.maxPrice()) : Long.MAX_VALUE;
+            BitSet textRows = filterText ? rowsOf(query.rankedIds()) : null;
+
+            categoryCounts = new long[categories.length];
+            bucketCounts = new long[allBucketCounts.length];
+            long inStock = 0;
+
+            // Счетчик фасета учитывает все фильтры, кроме своего
+            for (int row = 0; row < n; row++) {
+                if (textRows != null && !textRows.get(row)) {
+                    continue;
+                }
+                int ordinal = categoryOrdinal[row];
+                boolean categoryMatch = !filterCategory || (ordinal >= 0 && selected[ordinal]);
+                boolean priceMatch = priceCents[row] >= minCents && priceCents[row] <= maxCents;
+                boolean available = stock[row] > 0;
+                boolean stockMatch = !query.inStockOnly() || available;
+
+                if (priceMatch && stockMatch && ordinal >= 0) {
+                    categoryCounts[ordinal]++;
+                }
+                if (categoryMatch && stockMatch) {
+                    bucketCounts[priceBucket[row]]++;
+                }
+                if (categoryMatch && priceMatch && available) {
+                    inStock++;
+                }
+                if (categoryMatch && priceMatch && stockMatch) {
+                    matched.set(row);
+                }
+            }
+            inStockCount = inStock;
+        }
+
+        return new ProductBrowseResponse(page(query, matched), query.page(), query.size(), matched.cardinality(),
+                categoryFacets(categoryCounts), priceFacets(bucketCounts), inStockCount);
+    }
+
+    public long getVersion() { return version; }
+
+    public long getStructureVersion() { return structureVersion; }
+
+    // Товары страницы: обход строк в порядке сортировки с пропуском offset совпавших
+    private List<Product> page(ProductBrowseQuery query, BitSet matched) {
+        long offset = (long) query.page() * query.size();
+        List<Product> items = new ArrayList<>(query.size());
+        long seen = 0;
+
+        if (ProductBrowseQuery.RELEVANCE.equals(query.sortBy())) {
+            for (Long id : query.rankedIds()) {
+                Integer row = rowById.get(id);
+                if (row == null || !matched.get(row)) {
+                    continue;
+                }
+                if (seen++ >= offset) {
+                    items.add(products[row]);
+                    if (items.size() == query.size()) {
+                        break;
+                    }
+                }
+            }
+            return items;
+        }
+
+        int[] order = sortOrders.get(query.sortBy());
+        for (int i = 0; i < order.length; i++) {
+            int row = order[query.ascending() ? i : order.length - 1 - i];
+            if (!matched.get(row)) {
+                continue;
+            }
+            if (seen++ >= offset) {
+                items.add(products[row]);
+                if (items.size() == query.size()) {
+                    break;
+                }
+            }
+        }
+        return items;
+    }
+
+    private BitSet rowsOf(List<Long> ids) {
+        BitSet rows = new BitSet(products.length);
+        for (Long id : ids) {
+            Integer row = rowById.get(id);
+            if (row != null) {
+                rows.set(row);
+            }
+        }
+        return rows;
+    }
+
+    private List<ProductBrowseResponse.CategoryFacet> categoryFacets(long[] counts) {
+        List<ProductBrowseResponse.CategoryFacet> facets = new ArrayList<>(categories.length);
+        for (int i = 0; i < categories.length; i++) {
+            facets.add(new ProductBrowseResponse.CategoryFacet(categories[i].getId(), categories[i].getName(), counts[i]));
+        }
+        return facets;
+    }
+
+    private List<ProductBrowseResponse.PriceBucket> priceFacets(long[] counts) {
+        List<ProductBrowseResponse.PriceBucket> facets = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            BigDecimal from = i == 0 ? BigDecimal.ZERO : bucketBounds[i - 1];
+            BigDecimal to = i < bucketBounds.length ? bucketBounds[i] : null;
+            facets.add(new ProductBrowseResponse.PriceBucket(from, to, counts[i]));
+        }
+        return facets;
+    }
+
+    // Номер диапазона: сколько границ не больше цены
+    private int bucketOf(long cents) {
+        int position = Arrays.binarySearch(bucketBoundCents, cents);
+        return position >= 0 ? position + 1 : -position - 1;
+    }
+
+    private static long cents(BigDecimal price) {
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
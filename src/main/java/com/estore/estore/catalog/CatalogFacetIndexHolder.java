@@ -0,0 +1,81 @@
+package com.estore.estore.catalog;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Колоночный индекс для текущего снимка каталога.
+ * Строится лениво при первом просмотре после смены снимка: остатки меняются
+ * с каждым заказом, а перестраивать индекс без читателей незачем. Если поменялись
+ * только остатки, прежний индекс лишь обновляет их; пока другой поток готовит индекс,
+ * просмотр получает предыдущий, а не ждет.
+ */
+@Component
+public class CatalogFacetIndexHolder {
+
+    @Autowired
+    private CatalogSnapshotHolder catalogSnapshotHolder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Границы ценовых диапазонов фасета, BYN
+    @Value("${app.catalog.facets.price-buckets:100,300,500,1000,2000,5000}")
+    private List<BigDecimal> priceBuckets;
+
+    private volatile CatalogFacetIndex index;
+
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    private Timer buildTimer;
+    private Timer stockTimer;
+
+    @PostConstruct
+    void registerMetrics() {
+        buildTimer = Timer.builder("catalog.facets.build")
+                .description("Time to build the columnar facet index from a catalog snapshot")
+                .register(meterRegistry);
+        stockTimer = Timer.builder("catalog.facets.stock")
+                .description("Time to refresh stock columns of the facet index after a stock-only snapshot change")
+                .register(meterRegistry);
+    }
+
+    public CatalogFacetIndex current() {
+        CatalogSnapshot snapshot = catalogSnapshotHolder.current();
+        CatalogFacetIndex current = index;
+        if (current != null && current.getVersion() >= snapshot.getVersion()) {
+            return current;
+        }
+
+        // Один поток строит; остальные берут предыдущий индекс, а ждут только при первом построении
+        if (current != null) {
+            if (!buildLock.tryLock()) {
+                return current;
+            }
+        } else {
+            buildLock.lock();
+        }
+        try {
+            current = index;
+            if (current != null && current.getVersion() >= snapshot.getVersion()) {
+                return current;
+            }
+            CatalogFacetIndex base = current;
+            CatalogFacetIndex built = base != null && base.getStructureVersion() == snapshot.getStructureVersion()
+                    ? stockTimer.record(() -> base.withStock(snapshot))
+                    : buildTimer.record(() -> CatalogFacetIndex.build(snapshot, priceBuckets));
+            index = built;
+            return built;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+}
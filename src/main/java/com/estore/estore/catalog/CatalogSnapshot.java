@@ -0,0 +1,235 @@
+package com.estore.estore.catalog;
+
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Product;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Неизменяемый индексированный снимок каталога (товары и категории).
+ * Публикуется целиком через volatile-ссылку в CatalogSnapshotHolder,
+ * поэтому чтение не требует ни блокировок, ни обращений к БД.
+ * Сущности внутри снимка отсоединены от JPA и не должны изменяться.
+ */
+public final class CatalogSnapshot {
+
+    // Поддерживаемые ключи сортировки и соответствующие компараторы (по возрастанию)
+    private static final Map<String, Comparator<Product>> SORT_ORDERS = Map.of(
+            "createdAt", Comparator.comparing(Product::getCreatedAt, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+                    .thenComparing(Product::getId),
+            "price", Comparator.comparing(Product::getPrice).thenComparing(Product::getId),
+            "name", Comparator.comparing(Product::getName).thenComparing(Product::getId),
+            "id", Comparator.comparing(Product::getId)
+    );
+
+    private final long version;
+    // Версия снимка, с которым у этого общие товары, цены, категории и порядки; отличаться могут только остатки
+    private final long structureVersion;
+    private final Instant builtAt;
+
+    private final Map<Long, Product> productsById;
+    private final Map<String, Product> productsByModel;
+    private final Map<Long, List<Product>> productsByCategory;
+    private final Map<String, List<Product>> productsSortedAsc;
+    private final List<Product> availableProducts;
+
+    private final Map<Long, Category> categoriesById;
+    private final List<Category> categoriesByName;
+
+    private CatalogSnapshot(long version, Collection<Product> products, Collection<Category> categories) {
+        this.version = version;
+        this.structureVersion = version;
+        this.builtAt = Instant.now();
+
+        this.productsById = products.stream()
+                .collect(Collectors.toUnmodifiableMap(Product::getId, Function.identity()));
+        this.productsByModel = products.stream()
+                .collect(Collectors.toUnmodifiableMap(Product::getModel, Function.identity(), (a, b) -> a));
+
+        Map<String, List<Product>> sorted = new HashMap<>();
+        SORT_ORDERS.forEach((key, order) -> sorted.put(key, products.stream().sorted(order).toList()));
+        this.productsSortedAsc = Map.copyOf(sorted);
+
+        // Внутри категории — сначала новые товары, как в findAllByOrderByCreatedAtDesc
+        List<Product> newestFirst = reversed(sorted.get("createdAt"));
+        this.productsByCategory = newestFirst.stream()
+                .filter(product -> product.getCategory() != null)
+                .collect(Collectors.collectingAndThen(
+                        Collectors.groupingBy(product -> product.getCategory().getId(), Collectors.toUnmodifiableList()),
+                        Map::copyOf));
+        this.availableProducts = newestFirst.stream()
+                .filter(product -> product.getStockQuantity() != null && product.getStockQuantity() > 0)
+                .toList();
+
+        this.categoriesById = categories.stream()
+                .collect(Collectors.toUnmodifiableMap(Category::getId, Function.identity()));
+        this.categoriesByName = categories.stream()
+                .sorted(Comparator.comparing(Category::getName))
+                .toList();
+    }
+
+    // Готовые структуры (для withStock)
+    private CatalogSnapshot(long version, long structureVersion, Map<Long, Product> productsById,
+                            Map<String, Product> productsByModel, Map<Long, List<Product>> productsByCategory,
+                            Map<String, List<Product>> productsSortedAsc, List<Product> availableProducts,
+                            Map<Long, Category> categoriesById, List<Category> categoriesByName) {
+        this.version = version;
+        this.structureVersion = structureVersion;
+        this.builtAt = Instant.now();
+        this.productsById = productsById;
+        this.productsByModel = productsByModel;
+        this.productsByCategory = productsByCategory;
+        this.productsSortedAsc = productsSortedAsc;
+        this.availableProducts = availableProducts;
+        this.categoriesById = categoriesById;
+        this.categoriesByName = categoriesByName;
+    }
+
+    public static CatalogSnapshot of(long version, Collection<Product> products, Collection<Category> categories) {
+        return new CatalogSnapshot(version, products, categories);
+    }
+
+    /**
+     * Снимок с новыми остатками (id товара -> остаток). Остаток не входит ни в один ключ
+     * сортировки или группировки, поэтому порядки не пересчитываются: списки проходятся
+     * за O(N) с подменой измененных товаров их копиями. Неизвестные id пропускаются.
+     */
+    public CatalogSnapshot withStock(long newVersion, Map<Long, Integer> stock) {
+        Map<Long, Product> replaced = new HashMap<>();
+        stock.forEach((id, quantity) -> {
+            Product product = productsById.get(id);
+            if (product != null && !Objects.equals(product.getStockQuantity(), quantity)) {
+                replaced.put(id, copyWithStock(product, quantity));
+            }
+        });
+        if (replaced.isEmpty()) {
+            return this;
+        }
+
+        Function<Product, Product> swap = product -> replaced.getOrDefault(product.getId(), product);
+
+        Map<Long, Product> byId = new HashMap<>(productsById);
+        byId.putAll(replaced);
+        Map<String, Product> byModel = new HashMap<>(productsByModel);
+        byModel.replaceAll((model, product) -> swap.apply(product));
+
+        Map<String, List<Product>> sorted = new HashMap<>();
+        productsSortedAsc.forEach((key, list) -> sorted.put(key, list.stream().map(swap).toList()));
+
+        Set<Long> touchedCategories = new HashSet<>();
+        replaced.values().forEach(product -> {
+            if (product.getCategory() != null) {
+                touchedCategories.add(product.getCategory().getId());
+            }
+        });
+        Map<Long, List<Product>> byCategory = new HashMap<>(productsByCategory);
+        touchedCategories.forEach(categoryId ->
+                byCategory.computeIfPresent(categoryId, (id, list) -> list.stream().map(swap).toList()));
+
+        List<Product> available = reversed(sorted.get("createdAt")).stream()
+                .filter(product -> product.getStockQuantity() != null && product.getStockQuantity() > 0)
+                .toList();
+
+        return new CatalogSnapshot(newVersion, structureVersion, Map.copyOf(byId), Map.copyOf(byModel), Map.copyOf(byCategory),
+                Map.copyOf(sorted), available, categoriesById, categoriesByName);
+    }
+
+    public static boolean isSortable(String sortBy) {
+        return SORT_ORDERS.containsKey(sortBy);
+    }
+
+    // ============ ТОВАРЫ ============
+
+    public Optional<Product> getProduct(Long id) {
+        return Optional.ofNullable(productsById.get(id));
+    }
+
+    public Optional<Product> getProductByModel(String model) {
+        return Optional.ofNullable(productsByModel.get(model));
+    }
+
+    public Collection<Product> getProducts() {
+        return productsById.values();
+    }
+
+    public List<Product> getProductsNewestFirst() {
+        return reversed(productsSortedAsc.get("createdAt"));
+    }
+
+    public List<Product> getProductsSorted(String sortBy, boolean ascending) {
+        List<Product> asc = productsSortedAsc.get(sortBy);
+        if (asc == null) {
+            throw new IllegalArgumentException("Unsupported sort key: " + sortBy);
+        }
+        return ascending ? asc : reversed(asc);
+    }
+
+    public List<Product> getProductsByCategory(Long categoryId) {
+        return productsByCategory.getOrDefault(categoryId, List.of());
+    }
+
+    public List<Product> getAvailableProducts() {
+        return availableProducts;
+    }
+
+    public int getProductCount() {
+        return productsById.size();
+    }
+
+    // ============ КАТЕГОРИИ ============
+
+    public Optional<Category> getCategory(Long id) {
+        return Optional.ofNullable(categoriesById.get(id));
+    }
+
+    public List<Category> getCategoriesByName() {
+        return categoriesByName;
+    }
+
+    public Collection<Category> getCategories() {
+        return categoriesById.values();
+    }
+
+    // ============ МЕТАДАННЫЕ ============
+
+    public long getVersion() { return version; }
+
+    public long getStructureVersion() { return structureVersion; }
+
+    public Instant getBuiltAt() { return builtAt; }
+
+    // Отсоединенная копия товара с другим остатком; исходный экземпляр в старом снимке не меняется
+    private static Product copyWithStock(Product product, Integer stockQuantity) {
+        Product copy = new Product();
+        copy.setId(product.getId());
+        copy.setName(product.getName());
+        copy.setDescription(product.getDescription());
+        copy.setPrice(product.getPrice());
+        copy.setModel(product.getModel());
+        copy.setCategory(product.getCategory());
+        copy.setStockQuantity(stockQuantity);
+        copy.setImageUrl(product.getImageUrl());
+        copy.setCreatedAt(product.getCreatedAt());
+        copy.setUpdatedAt(product.getUpdatedAt());
+        return copy;
+    }
+
+    // Неизменяемое представление списка в обратном порядке (без копирования)
+    private static List<Product> reversed(List<Product> list) {
+        return new AbstractList<>() {
+            @Override
+            public Product get(int index) {
+                return list.get(list.size() - 1 - index);
+            }
+
+            @Override
+            public int size() {
+                return list.size();
+            }
+        };
+    }
+}
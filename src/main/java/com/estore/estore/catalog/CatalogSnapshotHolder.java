@@ -0,0 +1,277 @@
+package com.estore.estore.catalog;
+
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Product;
+import com.estore.estore.repository.CategoryRepository;
+import com.estore.estore.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Владелец текущего снимка каталога.
+ * Читатели получают снимок через current() без блокировок;
+ * записи сериализуются и публикуют новый снимок заменой volatile-ссылки
+ * (copy-on-write). Изменения, сделанные в транзакции, применяются после коммита.
+ * Остатки после заказов не применяются в потоке запроса: id копятся и одним фоновым
+ * потоком перечитываются из БД и накладываются на снимок без пересортировки.
+ */
+@Component
+public class CatalogSnapshotHolder {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotHolder.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private List<ProductChangeListener> changeListeners;
+
+    private volatile CatalogSnapshot snapshot;
+
+    // Не synchronized: rebuild читает БД, а монитор закрепил бы виртуальный поток за несущим
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // Товары с измененным остатком, ждущие применения; несколько коммитов сливаются в одно применение
+    private final Set<Long> pendingStock = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean stockRefreshScheduled = new AtomicBoolean();
+    private final ExecutorService stockApplier = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("catalog-stock").factory());
+
+    private Timer rebuildTimer;
+    private Timer patchTimer;
+    private Timer stockPatchTimer;
+
+    @PostConstruct
+    void registerMetrics() {
+        rebuildTimer = Timer.builder("catalog.snapshot.rebuild")
+                .description("Time to rebuild the catalog snapshot from the database")
+                .register(meterRegistry);
+        patchTimer = Timer.builder("catalog.snapshot.patch")
+                .description("Time to apply an incremental change to the catalog snapshot")
+                .register(meterRegistry);
+        stockPatchTimer = Timer.builder("catalog.snapshot.stock.patch")
+                .description("Time to apply coalesced stock changes to the catalog snapshot")
+                .register(meterRegistry);
+        Gauge.builder("catalog.snapshot.age.seconds", this, CatalogSnapshotHolder::snapshotAgeSeconds)
+                .description("Seconds since the current catalog snapshot was published")
+                .register(meterRegistry);
+        Gauge.builder("catalog.snapshot.products", this, holder -> holder.snapshot == null ? 0 : holder.snapshot.getProductCount())
+                .register(meterRegistry);
+        Gauge.builder("catalog.snapshot.version", this, holder -> holder.snapshot == null ? 0 : holder.snapshot.getVersion())
+                .register(meterRegistry);
+    }
+
+    // Текущий снимок; при первом обращении строится из БД
+    public CatalogSnapshot current() {
+        CatalogSnapshot current = snapshot;
+        if (current == null) {
+            return rebuild();
+        }
+        return current;
+    }
+
+    // Полная перестройка из БД
+    public CatalogSnapshot rebuild() {
+        writeLock.lock();
+        try {
+            return rebuildTimer.record(() -> {
+                List<Product> products = productRepository.findAll();
+                List<Category> categories = categoryRepository.findAll();
+                CatalogSnapshot rebuilt = CatalogSnapshot.of(nextVersion(), products, categories);
+                snapshot = rebuilt;
+                return rebuilt;
+            });
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // ============ ИНКРЕМЕНТАЛЬНЫЕ ИЗМЕНЕНИЯ ============
+
+    public void productSaved(Product product) {
+        afterCommit(() -> patchProducts(List.of(product), List.of()));
+    }
+
+    public void productDeleted(Long productId) {
+        afterCommit(() -> patchProducts(List.of(), List.of(productId)));
+    }
+
+    // Остатки изменились в БД (заказ, отмена, флеш-распродажа); применяются фоном после коммита
+    public void stockChanged(Collection<Long> productIds) {
+        List<Long> ids = List.copyOf(productIds);
+        afterCommit(() -> {
+            pendingStock.addAll(ids);
+            if (stockRefreshScheduled.compareAndSet(false, true)) {
+                stockApplier.execute(this::applyPendingStockChanges);
+            }
+        });
+    }
+
+    /**
+     * Применить накопленные изменения остатков. Остатки читаются проекцией (не из контекста
+     * персистентности, где сущности могут быть устаревшими) под writeLock: снимок, опубликованный
+     * позже, не может получить значения старее уже опубликованных.
+     */
+    public void applyPendingStockChanges() {
+        // Флаг сбрасывается до выборки: id, добавленные во время применения, запланируют новый проход
+        stockRefreshScheduled.set(false);
+        Set<Long> ids = new HashSet<>();
+        for (Iterator<Long> it = pendingStock.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        List<ProductDelta> deltas = new ArrayList<>();
+        writeLock.lock();
+        try {
+            CatalogSnapshot current = snapshot;
+            if (current == null) {
+                rebuild();
+                return;
+            }
+
+            stockPatchTimer.record(() -> {
+                Map<Long, Integer> stock = new HashMap<>();
+                for (ProductRepository.StockView view : productRepository.findStockByIdIn(ids)) {
+                    stock.put(view.getId(), view.getStockQuantity());
+                    Product previous = current.getProduct(view.getId()).orElse(null);
+                    if (previous != null && !Objects.equals(previous.getStockQuantity(), view.getStockQuantity())) {
+                        deltas.add(new ProductDelta(previous.getId(), categoryId(previous),
+                                previous.getPrice(), view.getStockQuantity(), false));
+                    }
+                }
+                // Удаленные товары убирает productDeleted
+                snapshot = current.withStock(nextVersion(), stock);
+            });
+        } catch (RuntimeException e) {
+            // Вернем id в очередь: они применятся со следующим изменением или перестройкой
+            pendingStock.addAll(ids);
+            log.warn("Failed to apply stock changes for {} products: {}", ids.size(), e.getMessage());
+            return;
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (!deltas.isEmpty()) {
+            changeListeners.forEach(listener -> listener.productsChanged(deltas));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        stockApplier.shutdownNow();
+    }
+
+    // Товары хранят ссылку на категорию, поэтому изменение категории — полная перестройка
+    public void categoriesChanged() {
+        afterCommit(this::rebuild);
+    }
+
+    private void patchProducts(Collection<Product> saved, Collection<Long> deletedIds) {
+        List<ProductDelta> deltas = new ArrayList<>();
+        writeLock.lock();
+        try {
+            CatalogSnapshot current = snapshot;
+            if (current == null) {
+                rebuild();
+                return;
+            }
+
+            patchTimer.record(() -> {
+                Map<Long, Product> products = new HashMap<>();
+                current.getProducts().forEach(product -> products.put(product.getId(), product));
+                for (Product product : saved) {
+                    Product previous = products.put(product.getId(), product);
+                    if (priceOrStockChanged(previous, product)) {
+                        deltas.add(new ProductDelta(product.getId(), categoryId(product),
+                                product.getPrice(), product.getStockQuantity(), false));
+                    }
+                }
+                for (Long id : deletedIds) {
+                    Product previous = products.remove(id);
+                    if (previous != null) {
+                        deltas.add(new ProductDelta(id, categoryId(previous), null, null, true));
+                    }
+                }
+
+                snapshot = CatalogSnapshot.of(nextVersion(), products.values(), current.getCategories());
+            });
+        } finally {
+            writeLock.unlock();
+        }
+
+        // Вне блокировки: слушатели только ставят изменения в очередь
+        if (!deltas.isEmpty()) {
+            changeListeners.forEach(listener -> listener.productsChanged(deltas));
+        }
+    }
+
+    private static boolean priceOrStockChanged(Product previous, Product current) {
+        return previous == null
+                || !samePrice(previous.getPrice(), current.getPrice())
+                || !Objects.equals(previous.getStockQuantity(), current.getStockQuantity());
+    }
+
+    // BigDecimal.equals учитывает масштаб: 10.0 и 10.00 — одна цена
+    private static boolean samePrice(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    private static Long categoryId(Product product) {
+        return product.getCategory() != null ? product.getCategory().getId() : null;
+    }
+
+    private long nextVersion() {
+        CatalogSnapshot current = snapshot;
+        return current == null ? 1 : current.getVersion() + 1;
+    }
+
+    private double snapshotAgeSeconds() {
+        CatalogSnapshot current = snapshot;
+        if (current == null) {
+            return 0;
+        }
+        return Duration.between(current.getBuiltAt(), Instant.now()).toMillis() / 1000.0;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.estore.estore.catalog;
+
+import com.estore.estore.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Непрозрачный водяной знак delta-sync каталога.
+ * Лента упорядочена по (change_xid, entity_type, id); токен хранит позицию
+ * последней отданной записи и горизонт — xmin снимка, снятый на первой странице.
+ * Все транзакции с xid ниже горизонта к тому моменту завершились, поэтому после
+ * последней страницы следующая синхронизация начинается с горизонта и не теряет
+ * изменения, закоммиченные не в порядке xid (повторно отданные записи безвредны).
+ */
+public final class CatalogSyncToken {
+
+    private static final String SEPARATOR = "|";
+    private static final long NO_HORIZON = -1;
+
+    // Время начала синхронизации, от которой отсчитываются изменения; 0 — полная выгрузка
+    private final long sinceAt;
+    private final long horizon;
+    private final long horizonAt;
+    private final long afterXid;
+    private final String afterType;
+    private final long afterId;
+
+    CatalogSyncToken(long sinceAt, long horizon, long horizonAt, long afterXid, String afterType, long afterId) {
+        this.sinceAt = sinceAt;
+        this.horizon = horizon;
+        this.horizonAt = horizonAt;
+        this.afterXid = afterXid;
+        this.afterType = afterType;
+        this.afterId = afterId;
+    }
+
+    // Полная выгрузка каталога с начала
+    public static CatalogSyncToken initial() {
+        return new CatalogSyncToken(0, NO_HORIZON, 0, 0, "", 0);
+    }
+
+    public static CatalogSyncToken decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, -1);
+            if (parts.length != 6) {
+                throw new BusinessException("Invalid sync token");
+            }
+            return new CatalogSyncToken(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                    Long.parseLong(parts[2]), Long.parseLong(parts[3]), parts[4], Long.parseLong(parts[5]));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("Invalid sync token");
+        }
+    }
+
+    public String encode() {
+        String raw = sinceAt + SEPARATOR + horizon + SEPARATOR + horizonAt + SEPARATOR
+                + afterXid + SEPARATOR + afterType + SEPARATOR + afterId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public CatalogSyncToken withHorizon(long horizon, long horizonAt) {
+        return new CatalogSyncToken(sinceAt, horizon, horizonAt, afterXid, afterType, afterId);
+    }
+
+    // Следующая страница той же синхронизации
+    public CatalogSyncToken after(long xid, String type, long id) {
+        return new CatalogSyncToken(sinceAt, horizon, horizonAt, xid, type, id);
+    }
+
+    // Синхронизация дочитана: следующая начинается с горизонта
+    public CatalogSyncToken completed() {
+        return new CatalogSyncToken(horizonAt, NO_HORIZON, 0, horizon, "", 0);
+    }
+
+    public boolean isFullSync() { return sinceAt == 0; }
+
+    public boolean hasHorizon() { return horizon != NO_HORIZON; }
+
+    public long getSinceAt() { return sinceAt; }
+
+    public long getHorizon() { return horizon; }
+
+    public long getHorizonAt() { return horizonAt; }
+
+    public long getAfterXid() { return afterXid; }
+
+    public String getAfterType() { return afterType; }
+
+    public long getAfterId() { return afterId; }
+}
@@ -0,0 +1,24 @@
+package com.estore.estore.catalog;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Параметры faceted-просмотра каталога.
+ * categoryIds — объединение (ИЛИ), пустое множество — все категории.
+ * rankedIds — результат полнотекстового поиска по убыванию релевантности, null — без текстового фильтра.
+ * sortBy — createdAt, price, name или relevance (только вместе с rankedIds).
+ */
+public record ProductBrowseQuery(Set<Long> categoryIds,
+                                 BigDecimal minPrice,
+                                 BigDecimal maxPrice,
+                                 boolean inStockOnly,
+                                 List<Long> rankedIds,
+                                 String sortBy,
+                                 boolean ascending,
+                                 int page,
+                                 int size) {
+
+    public static final String RELEVANCE = "relevance";
+}
@@ -0,0 +1,13 @@
+package com.estore.estore.catalog;
+
+import java.util.List;
+
+/**
+ * Получатель изменений цены и остатка. Вызывается CatalogSnapshotHolder
+ * после коммита и публикации нового снимка, в потоке, который применил изменение
+ * (часто — поток запроса), поэтому реализация не должна блокироваться.
+ */
+public interface ProductChangeListener {
+
+    void productsChanged(List<ProductDelta> deltas);
+}
@@ -0,0 +1,14 @@
+package com.estore.estore.catalog;
+
+import java.math.BigDecimal;
+
+/**
+ * Изменение цены или остатка товара в опубликованном снимке каталога.
+ * Для удаленного товара price и stockQuantity — null.
+ */
+public record ProductDelta(Long productId,
+                           Long categoryId,
+                           BigDecimal price,
+                           Integer stockQuantity,
+                           boolean deleted) {
+}
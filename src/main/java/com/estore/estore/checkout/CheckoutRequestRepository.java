@@ -0,0 +1,156 @@
+package com.estore.estore.checkout;
+
+import com.estore.estore.dto.response.CheckoutStatusResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * SQL очереди checkout_requests. Переходы статуса проверяют attempts —
+ * номер захвата: воркер, чья аренда истекла и запрос ушел другому,
+ * не сможет ни завершить, ни вернуть его.
+ */
+@Repository
+public class CheckoutRequestRepository {
+
+    private static final String STATUS_COLUMNS = "id, status, order_id, error, created_at, updated_at";
+
+    private static final RowMapper<CheckoutStatusResponse> STATUS_MAPPER = (rs, rowNum) -> new CheckoutStatusResponse(
+            rs.getLong("id"),
+            rs.getString("status"),
+            rs.getObject("order_id", Long.class),
+            rs.getString("error"),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getTimestamp("updated_at").toLocalDateTime());
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Захваченный воркером запрос: снимок корзины и номер захвата
+    public record CheckoutTask(Long id, Long userId, String shippingAddress, String notes,
+                               Long[] productIds, Integer[] quantities, BigDecimal[] prices, int attempts) {}
+
+    /**
+     * Поставить запрос в очередь. Пустой результат — запрос с таким ключом идемпотентности уже есть.
+     * Та же корзина, уже стоящая в очереди, — DuplicateKeyException (uk_checkout_requests_user_in_flight).
+     */
+    public Optional<Long> insert(Long userId, String idempotencyKey, String shippingAddress, String notes,
+                                 Long[] productIds, Integer[] quantities, BigDecimal[] prices, LocalDateTime now) {
+        List<Long> ids = jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO checkout_requests (user_id, status, idempotency_key, shipping_address, notes, " +
+                    "product_ids, quantities, prices, created_at, updated_at) " +
+                    "VALUES (?, 'ACCEPTED', ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (user_id, idempotency_key) WHERE idempotency_key IS NOT NULL DO NOTHING " +
+                    "RETURNING id");
+            statement.setLong(1, userId);
+            statement.setString(2, idempotencyKey);
+            statement.setString(3, shippingAddress);
+            statement.setString(4, notes);
+            statement.setArray(5, connection.createArrayOf("bigint", productIds));
+            statement.setArray(6, connection.createArrayOf("integer", quantities));
+            statement.setArray(7, connection.createArrayOf("numeric", prices));
+            statement.setTimestamp(8, Timestamp.valueOf(now));
+            statement.setTimestamp(9, Timestamp.valueOf(now));
+            return statement;
+        }, (rs, rowNum) -> rs.getLong(1));
+        return ids.stream().findFirst();
+    }
+
+    public Optional<CheckoutStatusResponse> find(Long id, Long userId) {
+        return jdbcTemplate.query(
+                "SELECT " + STATUS_COLUMNS + " FROM checkout_requests WHERE id = ? AND user_id = ?",
+                STATUS_MAPPER, id, userId).stream().findFirst();
+    }
+
+    public Optional<CheckoutStatusResponse> findByIdempotencyKey(Long userId, String idempotencyKey) {
+        return jdbcTemplate.query(
+                "SELECT " + STATUS_COLUMNS + " FROM checkout_requests WHERE user_id = ? AND idempotency_key = ?",
+                STATUS_MAPPER, userId, idempotencyKey).stream().findFirst();
+    }
+
+    // Запрос с той же корзиной, еще не оформленный (ACCEPTED или PROCESSING)
+    public Optional<CheckoutStatusResponse> findInFlight(Long userId, Long[] productIds, Integer[] quantities) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT " + STATUS_COLUMNS + " FROM checkout_requests " +
+                    "WHERE user_id = ? AND product_ids = ? AND quantities = ? AND status IN ('ACCEPTED', 'PROCESSING')");
+            statement.setLong(1, userId);
+            statement.setArray(2, connection.createArrayOf("bigint", productIds));
+            statement.setArray(3, connection.createArrayOf("integer", quantities));
+            return statement;
+        }, STATUS_MAPPER).stream().findFirst();
+    }
+
+    // Забрать до limit запросов в порядке поступления; параллельные воркеры пропускают чужие строки
+    public List<CheckoutTask> claim(int limit, LocalDateTime now) {
+        return jdbcTemplate.query(
+                "UPDATE checkout_requests c SET status = 'PROCESSING', attempts = c.attempts + 1, updated_at = ? " +
+                "FROM (SELECT id FROM checkout_requests WHERE status = 'ACCEPTED' " +
+                "      ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) next " +
+                "WHERE c.id = next.id " +
+                "RETURNING c.id, c.user_id, c.shipping_address, c.notes, c.product_ids, c.quantities, c.prices, c.attempts",
+                (rs, rowNum) -> new CheckoutTask(
+                        rs.getLong("id"),
+                        rs.getLong("user_id"),
+                        rs.getString("shipping_address"),
+                        rs.getString("notes"),
+                        (Long[]) rs.getArray("product_ids").getArray(),
+                        (Integer[]) rs.getArray("quantities").getArray(),
+                        (BigDecimal[]) rs.getArray("prices").getArray(),
+                        rs.getInt("attempts")),
+                Timestamp.valueOf(now), limit);
+    }
+
+    // Вызывается в транзакции заказа: false — захват потерян, заказ нужно откатить
+    public boolean complete(CheckoutTask task, Long orderId, LocalDateTime now) {
+        return jdbcTemplate.update(
+                "UPDATE checkout_requests SET status = 'COMPLETED', order_id = ?, error = NULL, updated_at = ? " +
+                "WHERE id = ? AND status = 'PROCESSING' AND attempts = ?",
+                orderId, Timestamp.valueOf(now), task.id(), task.attempts()) == 1;
+    }
+
+    public void fail(CheckoutTask task, String error, LocalDateTime now) {
+        jdbcTemplate.update(
+                "UPDATE checkout_requests SET status = 'FAILED', error = ?, updated_at = ? " +
+                "WHERE id = ? AND status = 'PROCESSING' AND attempts = ?",
+                error, Timestamp.valueOf(now), task.id(), task.attempts());
+    }
+
+    // Вернуть в очередь (временная ошибка, остановка воркера)
+    public void release(CheckoutTask task, LocalDateTime now) {
+        jdbcTemplate.update(
+                "UPDATE checkout_requests SET status = 'ACCEPTED', updated_at = ? " +
+                "WHERE id = ? AND status = 'PROCESSING' AND attempts = ?",
+                Timestamp.valueOf(now), task.id(), task.attempts());
+    }
+
+    /**
+     * Запросы, чья аренда истекла (воркер упал или завис): вернуть в очередь,
+     * а исчерпавшие попытки — перевести в FAILED. Возвращает число возвращенных.
+     */
+    public int recoverExpired(LocalDateTime leaseExpiredBefore, int maxAttempts, LocalDateTime now) {
+        jdbcTemplate.update(
+                "UPDATE checkout_requests SET status = 'FAILED', error = 'Processing did not complete', updated_at = ? " +
+                "WHERE status = 'PROCESSING' AND updated_at < ? AND attempts >= ?",
+                Timestamp.valueOf(now), Timestamp.valueOf(leaseExpiredBefore), maxAttempts);
+        return jdbcTemplate.update(
+                "UPDATE checkout_requests SET status = 'ACCEPTED', updated_at = ? " +
+                "WHERE status = 'PROCESSING' AND updated_at < ?",
+                Timestamp.valueOf(now), Timestamp.valueOf(leaseExpiredBefore));
+    }
+
+    public long countAccepted() {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM checkout_requests WHERE status = 'ACCEPTED'", Long.class);
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,424 @@
+package com.estore.estore.checkout;
+
+import com.estore.estore.catalog.CatalogSnapshot;
+import com.estore.estore.catalog.CatalogSnapshotHolder;
+import com.estore.estore.dto.request.OrderRequest;
+import com.estore.estore.dto.response.CartItemResponse;
+import com.estore.estore.dto.response.CartResponse;
+import com.estore.estore.dto.response.CheckoutStatusResponse;
+import com.estore.estore.exception.ApiException;
+import com.estore.estore.exception.BusinessException;
+import com.estore.estore.exception.ResourceNotFoundException;
+import com.estore.estore.flashsale.FlashSaleService;
+import com.estore.estore.idempotency.IdempotencyService;
+import com.estore.estore.model.Order;
+import com.estore.estore.model.Product;
+import com.estore.estore.security.CurrentUserResolver;
+import com.estore.estore.service.CartService;
+import com.estore.estore.service.OrderService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Асинхронное оформление заказа (app.checkout.mode=async).
+ *
+ * POST /api/orders только проверяет корзину и записывает ее снимок в checkout_requests
+ * (одна вставка, без списания остатков) и отвечает 202 с id запроса.
+ * Списание остатков, заказ и очистку корзины выполняют воркеры на виртуальных потоках:
+ * забирают запросы пачками (SKIP LOCKED) и оформляют каждый в своей транзакции,
+ * чтобы нехватка товара в одном заказе не откатывала соседние.
+ * Очередь в БД переживает рестарт: зависшие запросы возвращаются по истечении аренды.
+ * Если в очереди больше app.checkout.queue-capacity запросов — 429.
+ * Корзина пользователя стоит в очереди не больше одного раза: повторное оформление той же
+ * корзины, пока первый запрос не обработан, возвращает уже принятый запрос.
+ */
+@Service
+public class CheckoutService {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckoutService.class);
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Value("${app.checkout.mode:sync}")
+    private String mode;
+
+    @Value("${app.checkout.workers:4}")
+    private int workers;
+
+    @Value("${app.checkout.batch-size:32}")
+    private int batchSize;
+
+    @Value("${app.checkout.queue-capacity:10000}")
+    private long queueCapacity;
+
+    @Value("${app.checkout.poll-interval-ms:500}")
+    private long pollIntervalMs;
+
+    @Value("${app.checkout.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${app.checkout.max-attempts:3}")
+    private int maxAttempts;
+
+    @Autowired
+    private CheckoutRequestRepository checkoutRequestRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private FlashSaleService flashSaleService;
+
+    @Autowired
+    private CatalogSnapshotHolder catalogSnapshotHolder;
+
+    @Autowired
+    private CurrentUserResolver currentUserResolver;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Оценка длины очереди: пересчитывается из БД при восстановлении, между ними — локальные изменения
+    private final AtomicLong queueDepth = new AtomicLong();
+    // Сигнал воркерам о новых запросах, чтобы не ждать интервала опроса
+    private final Semaphore wakeUp = new Semaphore(0);
+    // Подписчики на результат (long polling) на этом экземпляре
+    private final Map<Long, Set<CompletableFuture<CheckoutStatusResponse>>> waiters = new ConcurrentHashMap<>();
+    private final List<Thread> workerThreads = new ArrayList<>();
+
+    private volatile boolean running;
+
+    private Counter accepted;
+    private Counter rejected;
+    private Counter completed;
+    private Counter failed;
+    private Timer processTimer;
+
+    @PostConstruct
+    void init() {
+        accepted = Counter.builder("checkout.requests").tag("result", "accepted").register(meterRegistry);
+        rejected = Counter.builder("checkout.requests").tag("result", "rejected").register(meterRegistry);
+        completed = Counter.builder("checkout.processed").tag("result", "completed").register(meterRegistry);
+        failed = Counter.builder("checkout.processed").tag("result", "failed").register(meterRegistry);
+        processTimer = Timer.builder("checkout.process")
+                .description("Time to place one queued order")
+                .register(meterRegistry);
+        Gauge.builder("checkout.queue.depth", queueDepth, AtomicLong::get).register(meterRegistry);
+
+        if (!isAsync()) {
+            return;
+        }
+        queueDepth.set(checkoutRequestRepository.countAccepted());
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            workerThreads.add(Thread.ofVirtual().name("checkout-worker-" + i).start(this::workerLoop));
+        }
+        log.info("Async checkout started: {} workers, batch size {}", workers, batchSize);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        wakeUp.release(workers);
+        for (Thread thread : workerThreads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    public boolean isAsync() {
+        return "async".equalsIgnoreCase(mode);
+    }
+
+    // ============ ПРИЕМ ЗАПРОСА ============
+
+    /**
+     * Проверить корзину и поставить снимок в очередь. С ключом идемпотентности
+     * повторный запрос возвращает уже принятый, а не создает новый.
+     */
+    public CheckoutStatusResponse enqueue(OrderRequest orderRequest, String idempotencyKey) {
+        Long userId = currentUserResolver.getUserId();
+        if (idempotencyKey != null) {
+            IdempotencyService.validateKey(idempotencyKey);
+            Optional<CheckoutStatusResponse> existing = checkoutRequestRepository.findByIdempotencyKey(userId, idempotencyKey);
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+        }
+
+        CartResponse cart = cartService.getCart();
+        if (cart.getTotalItems() == 0) {
+            throw new BusinessException("Cart is empty. Cannot create order.");
+        }
+        validate(cart.getItems());
+
+        if (queueDepth.get() >= queueCapacity) {
+            rejected.increment();
+            throw new ApiException(HttpStatus.TOO_MANY_REQUESTS, "Checkout queue is full, please retry later");
+        }
+
+        // Снимок упорядочен по товару: так одинаковые корзины дают одинаковые массивы
+        List<CartItemResponse> items = cart.getItems().stream()
+                .sorted(Comparator.comparing(CartItemResponse::getProductId))
+                .toList();
+        Long[] productIds = items.stream().map(CartItemResponse::getProductId).toArray(Long[]::new);
+        Integer[] quantities = items.stream().map(CartItemResponse::getQuantity).toArray(Integer[]::new);
+        BigDecimal[] prices = items.stream().map(CartItemResponse::getProductPrice).toArray(BigDecimal[]::new);
+
+        Optional<Long> id;
+        try {
+            id = checkoutRequestRepository.insert(userId, idempotencyKey,
+                    orderRequest.getShippingAddress(), orderRequest.getNotes(),
+                    productIds, quantities, prices, LocalDateTime.now());
+        } catch (DuplicateKeyException e) {
+            // Та же корзина уже в очереди (повторное нажатие без ключа) — второй заказ не создаем
+            return checkoutRequestRepository.findInFlight(userId, productIds, quantities)
+                    .orElseThrow(() -> new ApiException(HttpStatus.CONFLICT,
+                            "Checkout of this cart has just been processed, please refresh"));
+        }
+        if (id.isEmpty()) {
+            // Параллельный дубль с тем же ключом успел первым
+            return checkoutRequestRepository.findByIdempotencyKey(userId, idempotencyKey)
+                    .orElseThrow(() -> new ApiException(HttpStatus.CONFLICT, "Checkout request is being created"));
+        }
+
+        accepted.increment();
+        queueDepth.incrementAndGet();
+        wakeUp.release();
+        return getStatus(id.get());
+    }
+
+    public CheckoutStatusResponse getStatus(Long id) {
+        return findStatus(id, currentUserResolver.getUserId());
+    }
+
+    /**
+     * Long polling: ждать до waitMs, пока запрос не оформит воркер этого экземпляра.
+     * Завершенный запрос возвращается сразу, по таймауту — текущее состояние из БД
+     * (так же и для запросов, которые оформил другой экземпляр).
+     */
+    public CompletableFuture<CheckoutStatusResponse> awaitStatus(Long id, long waitMs) {
+        Long userId = currentUserResolver.getUserId();
+        CheckoutStatusResponse current = findStatus(id, userId);
+        if (waitMs <= 0 || isFinished(current)) {
+            return CompletableFuture.completedFuture(current);
+        }
+
+        CompletableFuture<CheckoutStatusResponse> future = new CompletableFuture<>();
+        waiters.computeIfAbsent(id, key -> ConcurrentHashMap.newKeySet()).add(future);
+        // Воркер мог завершить запрос до подписки
+        CheckoutStatusResponse recheck = findStatus(id, userId);
+        if (isFinished(recheck)) {
+            future.complete(recheck);
+        }
+
+        return future.completeOnTimeout(null, waitMs, TimeUnit.MILLISECONDS)
+                .whenComplete((result, error) -> removeWaiter(id, future))
+                .thenApply(result -> result != null ? result : findStatus(id, userId));
+    }
+
+    private CheckoutStatusResponse findStatus(Long id, Long userId) {
+        return checkoutRequestRepository.find(id, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Checkout request not found with id: " + id));
+    }
+
+    // ============ ВОРКЕРЫ ============
+
+    private void workerLoop() {
+        while (running) {
+            List<CheckoutRequestRepository.CheckoutTask> tasks;
+            try {
+                tasks = checkoutRequestRepository.claim(batchSize, LocalDateTime.now());
+            } catch (RuntimeException e) {
+                log.warn("Failed to claim checkout requests", e);
+                tasks = List.of();
+            }
+
+            if (tasks.isEmpty()) {
+                try {
+                    wakeUp.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                continue;
+            }
+
+            int claimed = tasks.size();
+            queueDepth.updateAndGet(depth -> Math.max(0, depth - claimed));
+            for (CheckoutRequestRepository.CheckoutTask task : tasks) {
+                if (!running) {
+                    // Остановка: необработанные вернем в очередь, их заберет следующий запуск
+                    release(task);
+                    continue;
+                }
+                processTimer.record(() -> process(task));
+            }
+        }
+    }
+
+    private void process(CheckoutRequestRepository.CheckoutTask task) {
+        try {
+            Long orderId = transactionTemplate.execute(status -> {
+                Order order = orderService.createOrderFromSnapshot(task.userId(), toItems(task),
+                        task.shippingAddress(), task.notes());
+                if (!checkoutRequestRepository.complete(task, order.getId(), LocalDateTime.now())) {
+                    throw new IllegalStateException("Checkout request " + task.id() + " was reclaimed by another worker");
+                }
+                return order.getId();
+            });
+            completed.increment();
+            notifyWaiters(task.id(), task.userId());
+            log.debug("Checkout request {} placed order {}", task.id(), orderId);
+        } catch (BusinessException | ResourceNotFoundException e) {
+            // Нехватка товара и т.п.: повтор не поможет
+            fail(task, e.getMessage());
+        } catch (RuntimeException e) {
+            if (task.attempts() >= maxAttempts) {
+                log.error("Checkout request {} failed after {} attempts", task.id(), task.attempts(), e);
+                fail(task, "Order could not be processed");
+            } else {
+                log.warn("Checkout request {} failed, will retry", task.id(), e);
+                release(task);
+            }
+        }
+    }
+
+    private void fail(CheckoutRequestRepository.CheckoutTask task, String error) {
+        try {
+            checkoutRequestRepository.fail(task, truncate(error), LocalDateTime.now());
+            failed.increment();
+            notifyWaiters(task.id(), task.userId());
+        } catch (RuntimeException e) {
+            // Останется в PROCESSING и вернется по истечении аренды
+            log.warn("Failed to mark checkout request {} as failed", task.id(), e);
+        }
+    }
+
+    private void release(CheckoutRequestRepository.CheckoutTask task) {
+        try {
+            checkoutRequestRepository.release(task, LocalDateTime.now());
+            queueDepth.incrementAndGet();
+        } catch (RuntimeException e) {
+            log.warn("Failed to release checkout request {}", task.id(), e);
+        }
+    }
+
+    private void notifyWaiters(Long id, Long userId) {
+        Set<CompletableFuture<CheckoutStatusResponse>> subscribers = waiters.remove(id);
+        if (subscribers == null) {
+            return;
+        }
+        try {
+            CheckoutStatusResponse status = findStatus(id, userId);
+            subscribers.forEach(future -> future.complete(status));
+        } catch (RuntimeException e) {
+            // Подписчики получат состояние по таймауту
+            log.debug("Failed to notify checkout waiters of request {}", id, e);
+        }
+    }
+
+    private void removeWaiter(Long id, CompletableFuture<CheckoutStatusResponse> future) {
+        waiters.computeIfPresent(id, (key, subscribers) -> {
+            subscribers.remove(future);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    // Возврат зависших запросов и сверка длины очереди с БД
+    @Scheduled(fixedDelayString = "${app.checkout.recovery-interval-ms:30000}")
+    public void recover() {
+        if (!isAsync()) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int requeued = checkoutRequestRepository.recoverExpired(now.minus(leaseMs, ChronoUnit.MILLIS), maxAttempts, now);
+            if (requeued > 0) {
+                log.warn("Requeued {} checkout requests with expired lease", requeued);
+                wakeUp.release(requeued);
+            }
+            queueDepth.set(checkoutRequestRepository.countAccepted());
+        } catch (RuntimeException e) {
+            log.warn("Checkout queue recovery failed", e);
+        }
+    }
+
+    // ============ ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ============
+
+    // Дешевые проверки по снимку каталога до постановки в очередь; окончательно остаток проверит воркер
+    private void validate(List<CartItemResponse> items) {
+        CatalogSnapshot snapshot = catalogSnapshotHolder.current();
+        for (CartItemResponse item : items) {
+            if (flashSaleService.isFlashSaleProduct(item.getProductId())) {
+                throw new BusinessException("Product " + item.getProductName() + " is on flash sale. " +
+                        "Order it via /api/flash-sales/" + item.getProductId() + "/orders");
+            }
+            Product product = snapshot.getProduct(item.getProductId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + item.getProductId()));
+            if (product.getStockQuantity() < item.getQuantity()) {
+                throw new BusinessException("Not enough stock for product: " + product.getName() +
+                        ". Available: " + product.getStockQuantity() + ", Requested: " + item.getQuantity());
+            }
+        }
+    }
+
+    private List<CartItemResponse> toItems(CheckoutRequestRepository.CheckoutTask task) {
+        CatalogSnapshot snapshot = catalogSnapshotHolder.current();
+        List<CartItemResponse> items = new ArrayList<>(task.productIds().length);
+        for (int i = 0; i < task.productIds().length; i++) {
+            Long productId = task.productIds()[i];
+            int quantity = task.quantities()[i];
+            BigDecimal price = task.prices()[i];
+            String name = snapshot.getProduct(productId).map(Product::getName).orElse("#" + productId);
+            items.add(new CartItemResponse(null, productId, name, price, quantity,
+                    price.multiply(BigDecimal.valueOf(quantity)), null));
+        }
+        return items;
+    }
+
+    private static boolean isFinished(CheckoutStatusResponse status) {
+        return CheckoutStatus.COMPLETED.name().equals(status.getStatus())
+                || CheckoutStatus.FAILED.name().equals(status.getStatus());
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -0,0 +1,6 @@
+package com.estore.estore.checkout;
+
+// Состояние запроса на оформление в очереди
+public enum CheckoutStatus {
+    ACCEPTED, PROCESSING, COMPLETED, FAILED
+}
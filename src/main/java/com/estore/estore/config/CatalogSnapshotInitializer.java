@@ -0,0 +1,26 @@
+package com.estore.estore.config;
+
+import com.estore.estore.catalog.CatalogSnapshot;
+import com.estore.estore.catalog.CatalogSnapshotHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CatalogSnapshotInitializer implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotInitializer.class);
+
+    @Autowired
+    private CatalogSnapshotHolder catalogSnapshotHolder;
+
+    @Override
+    public void run(String... args) throws Exception {
+        long start = System.currentTimeMillis();
+        CatalogSnapshot snapshot = catalogSnapshotHolder.rebuild();
+        log.info("Catalog snapshot built: {} products, {} categories in {} ms",
+                snapshot.getProductCount(), snapshot.getCategories().size(), System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,46 @@
+package com.estore.estore.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Оборачивает DataSource в BulkheadDataSource (app.db.bulkhead.enabled=true,
+ * по умолчанию включается вместе с виртуальными потоками).
+ * Число разрешений по умолчанию равно размеру пула Hikari.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.db.bulkhead.enabled", havingValue = "true")
+public class DataSourceBulkheadConfig {
+
+    // static: BeanPostProcessor создается раньше остальных бинов конфигурации
+    @Bean
+    public static BeanPostProcessor dataSourceBulkheadPostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof BulkheadDataSource)) {
+                    int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+                    int permits = environment.getProperty("app.db.bulkhead.permits", Integer.class, poolSize);
+                    long timeoutMs = environment.getProperty("app.db.bulkhead.acquire-timeout-ms", Long.class, 20000L);
+                    return new BulkheadDataSource(dataSource, permits, timeoutMs);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder dataSourceBulkheadMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof BulkheadDataSource bulkhead) {
+                bulkhead.bindTo(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package com.estore.estore.config;
+
+import com.estore.estore.flashsale.FlashSaleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FlashSaleInitializer implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(FlashSaleInitializer.class);
+
+    @Autowired
+    private FlashSaleService flashSaleService;
+
+    @Override
+    public void run(String... args) throws Exception {
+        int recovered = flashSaleService.recoverSales();
+        if (recovered > 0) {
+            log.info("Recovered {} flash sales after restart", recovered);
+        }
+    }
+}
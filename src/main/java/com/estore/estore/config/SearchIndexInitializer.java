@@ -0,0 +1,42 @@
+package com.estore.estore.config;
+
+import com.estore.estore.model.Product;
+import com.estore.estore.repository.CategoryRepository;
+import com.estore.estore.repository.ProductRepository;
+import com.estore.estore.search.ProductSearchIndex;
+import com.estore.estore.search.ProductSuggestIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class SearchIndexInitializer implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexInitializer.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Override
+    public void run(String... args) throws Exception {
+        long start = System.currentTimeMillis();
+        List<Product> products = productRepository.findAll();
+        productSearchIndex.rebuild(products);
+        productSuggestIndex.rebuild(products, categoryRepository.findAll());
+        log.info("Search index built: {} products, {} suggestion keys in {} ms",
+                productSearchIndex.size(), productSuggestIndex.size(), System.currentTimeMillis() - start);
+    }
+}
@@ -1,7 +1,9 @@
 package com.estore.estore.config;
 
 import com.estore.estore.security.AuthTokenFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -66,10 +68,14 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authz -> authz
+                        // Async-диспетчеризация дописывает уже авторизованный ответ (StreamingResponseBody)
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Публичные endpoints
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/test/**").permitAll()
                         .requestMatchers("/api/status").permitAll()
+                        // Health и метрики для Prometheus; management-порт слушает только localhost
+                        .requestMatchers(EndpointRequest.to("health", "prometheus")).permitAll()
                         
                         // Статические ресурсы (HTML, CSS, JS файлы)
                         .requestMatchers("/*.html", "/*.css", "/*.js", "/css/**", "/js/**", "/images/**").permitAll()
@@ -85,6 +91,8 @@ public class SecurityConfig {
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .requestMatchers("/api/orders").authenticated() // Заказы для авторизованных пользователей
                         .requestMatchers("/api/orders/all").hasRole("ADMIN") // Все заказы только для админа
+                        .requestMatchers("/api/orders/all/**").hasRole("ADMIN")
+                        .requestMatchers("/api/orders/export").hasRole("ADMIN")
                         // Product management - только ROLE_ADMIN
                         .requestMatchers(HttpMethod.POST, "/api/products").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/api/products/**").hasRole("ADMIN")
@@ -1,14 +1,20 @@
 package com.estore.estore.controller;
 
+import com.estore.estore.analytics.SalesAnalyticsService;
+import com.estore.estore.dto.response.SalesStatsResponse;
 import com.estore.estore.dto.response.UserResponse;
 import com.estore.estore.model.User;
+import com.estore.estore.service.UserOrderStatsService;
 import com.estore.estore.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -18,6 +24,12 @@ public class AdminController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserOrderStatsService userOrderStatsService;
+
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+
     @GetMapping("/test")
     @PreAuthorize("hasRole('ADMIN')")
     public String adminTest() {
@@ -34,10 +46,33 @@ public class AdminController {
         return ResponseEntity.ok(userResponses);
     }
 
+    // Продажи за период из роллапов: from/to — ISO дата-время, по умолчанию последние 7 дней
     @GetMapping("/stats")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<String> getStats() {
-        return ResponseEntity.ok("Статистика магазина (только для админов)");
+    public ResponseEntity<SalesStatsResponse> getStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) String granularity,
+            @RequestParam(defaultValue = "10") int top) {
+        return ResponseEntity.ok(salesAnalyticsService.getStats(from, to, categoryId, granularity, top));
+    }
+
+    // Пересчет роллапов за период из orders (первичное заполнение, восстановление)
+    @PostMapping("/stats/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> rebuildStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        salesAnalyticsService.rebuild(from, to);
+        return ResponseEntity.ok().build();
+    }
+
+    // Пересчет агрегатов заказов пользователей из таблицы orders (backfill/сверка)
+    @PostMapping("/user-order-stats/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> rebuildUserOrderStats() {
+        return ResponseEntity.ok(Map.of("users", userOrderStatsService.rebuildAll()));
     }
 
     @PutMapping("/users/{id}/role")
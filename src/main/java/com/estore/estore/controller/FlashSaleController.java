@@ -0,0 +1,75 @@
+package com.estore.estore.controller;
+
+import com.estore.estore.dto.request.FlashSaleOrderRequest;
+import com.estore.estore.dto.response.FlashSaleOrderResponse;
+import com.estore.estore.dto.response.FlashSaleStatusResponse;
+import com.estore.estore.exception.ApiException;
+import com.estore.estore.flashsale.FlashSaleResult;
+import com.estore.estore.flashsale.FlashSaleService;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@RestController
+public class FlashSaleController {
+
+    private static final long ORDER_TIMEOUT_SECONDS = 10;
+
+    @Autowired
+    private FlashSaleService flashSaleService;
+
+    // Заказ товара флеш-распродажи: быстрый ответ accepted/rejected + id заказа
+    @PostMapping("/api/flash-sales/{productId}/orders")
+    public ResponseEntity<FlashSaleOrderResponse> placeOrder(
+            @PathVariable Long productId,
+            @Valid @RequestBody FlashSaleOrderRequest request) {
+
+        FlashSaleResult result;
+        try {
+            result = flashSaleService.placeOrder(productId, request.getQuantity(), request.getShippingAddress())
+                    .get(ORDER_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "Request interrupted");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "Flash sale order could not be processed");
+        }
+
+        FlashSaleOrderResponse response = new FlashSaleOrderResponse(productId, result.getOrderId(),
+                request.getQuantity(), result.isAccepted(), result.getReason());
+        return result.isAccepted()
+                ? ResponseEntity.ok(response)
+                : ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    // Методы только для ADMIN
+    @GetMapping("/api/admin/flash-sales")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<FlashSaleStatusResponse>> getSales() {
+        return ResponseEntity.ok(flashSaleService.getSales());
+    }
+
+    @PostMapping("/api/admin/flash-sales/{productId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<FlashSaleStatusResponse> startSale(
+            @PathVariable Long productId,
+            @RequestParam int stock,
+            @RequestParam(required = false) BigDecimal price) {
+        return ResponseEntity.ok(flashSaleService.startSale(productId, stock, price));
+    }
+
+    @DeleteMapping("/api/admin/flash-sales/{productId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<FlashSaleStatusResponse> stopSale(@PathVariable Long productId) {
+        return ResponseEntity.ok(flashSaleService.stopSale(productId));
+    }
+}
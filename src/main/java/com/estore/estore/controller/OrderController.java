@@ -1,28 +1,72 @@
 package com.estore.estore.controller;
 
+import com.estore.estore.checkout.CheckoutService;
 import com.estore.estore.dto.request.OrderRequest;
+import com.estore.estore.dto.response.CheckoutStatusResponse;
+import com.estore.estore.dto.response.CursorPageResponse;
 import com.estore.estore.dto.response.OrderResponse;
+import com.estore.estore.dto.response.OrderSummaryResponse;
+import com.estore.estore.exception.BusinessException;
+import com.estore.estore.idempotency.IdempotencyService;
 import com.estore.estore.model.Order;
+import com.estore.estore.repository.OrderFilter;
+import com.estore.estore.service.OrderExportService;
 import com.estore.estore.service.OrderService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
 
+    private static final int MAX_SCROLL_SIZE = 100;
+    private static final long MAX_CHECKOUT_WAIT_MS = 30_000;
+
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private CheckoutService checkoutService;
+
     // Методы для аутентифицированных пользователей
+
+    // С заголовком Idempotency-Key повтор запроса возвращает уже созданный заказ.
+    // В режиме app.checkout.mode=async — 202 и id запроса в очереди, результат: GET /api/orders/checkouts/{id}
     @PostMapping
-    public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody OrderRequest orderRequest) {
-        OrderResponse order = orderService.createOrderFromCart(orderRequest);
+    public ResponseEntity<?> createOrder(
+            @Valid @RequestBody OrderRequest orderRequest,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        if (checkoutService.isAsync()) {
+            CheckoutStatusResponse checkout = checkoutService.enqueue(orderRequest, idempotencyKey);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/orders/checkouts/" + checkout.getId()))
+                    .body(checkout);
+        }
+
+        OrderResponse order = idempotencyKey == null
+                ? orderService.createOrderFromCart(orderRequest)
+                : idempotencyService.execute(idempotencyKey, orderRequest,
+                        () -> orderService.createOrderFromCart(orderRequest, idempotencyKey));
         return ResponseEntity.ok(order);
     }
 
@@ -32,6 +76,17 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    // Состояние асинхронного оформления; waitMs > 0 — ждать завершения (long polling)
+    @GetMapping("/checkouts/{id}")
+    public CompletableFuture<CheckoutStatusResponse> getCheckoutStatus(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0") long waitMs) {
+        if (waitMs < 0 || waitMs > MAX_CHECKOUT_WAIT_MS) {
+            throw new BusinessException("waitMs must be between 0 and " + MAX_CHECKOUT_WAIT_MS);
+        }
+        return checkoutService.awaitStatus(id, waitMs);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<OrderResponse> getOrderById(@PathVariable Long id) {
         OrderResponse order = orderService.getOrderById(id);
@@ -53,6 +108,47 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    // Курсорная пагинация с фильтрами: ?cursor=<nextCursor из предыдущего ответа>, created_at в [from, to)
+    @GetMapping("/all/scroll")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPageResponse<OrderSummaryResponse>> scrollAllOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            throw new BusinessException("Page size must be between 1 and " + MAX_SCROLL_SIZE);
+        }
+
+        OrderFilter filter = new OrderFilter(status, userId, from, to, minAmount);
+        return ResponseEntity.ok(orderService.scrollOrders(cursor, size, filter, includeTotal));
+    }
+
+    // Потоковая выгрузка заказов с позициями: format=csv|ndjson, фильтры по статусу и created_at [from, to)
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        OrderExportService.Format exportFormat = orderExportService.parseFormat(format);
+        StreamingResponseBody body = orderExportService.export(exportFormat, status, from, to);
+
+        boolean csv = exportFormat == OrderExportService.Format.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"orders." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+
     @PutMapping("/{id}/status")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<OrderResponse> updateOrderStatus(
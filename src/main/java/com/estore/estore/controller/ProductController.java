@@ -1,7 +1,12 @@
 package com.estore.estore.controller;
 
+import com.estore.estore.catalog.CatalogChangeFeed;
 import com.estore.estore.dto.request.ProductRequest;
+import com.estore.estore.dto.response.CursorPageResponse;
+import com.estore.estore.dto.response.ProductBrowseResponse;
+import com.estore.estore.dto.response.SuggestionResponse;
 import com.estore.estore.exception.BusinessException;
+import com.estore.estore.live.PriceStockBroadcaster;
 import com.estore.estore.model.Product;
 import com.estore.estore.service.ProductService;
 import jakarta.validation.Valid;
@@ -10,18 +15,33 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
 
+    private static final int MAX_SCROLL_SIZE = 100;
+    private static final int MAX_SUGGESTIONS = 20;
+
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private PriceStockBroadcaster priceStockBroadcaster;
+
+    @Autowired
+    private CatalogChangeFeed catalogChangeFeed;
+
     // --- Публичные GET методы ---
     @GetMapping
     public List<Product> getAllProducts() {
@@ -43,6 +63,98 @@ public class ProductController {
         return ResponseEntity.ok(productsPage);
     }
 
+    // Курсорная пагинация: ?cursor=<nextCursor из предыдущего ответа>
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPageResponse<Product>> scrollProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "createdAt") String sortBy,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            throw new BusinessException("Page size must be between 1 and " + MAX_SCROLL_SIZE);
+        }
+
+        Sort.Direction sortDirection = direction.equalsIgnoreCase("asc")
+                ? Sort.Direction.ASC : Sort.Direction.DESC;
+
+        return ResponseEntity.ok(productService.scrollProducts(
+                cursor, size, sortBy, sortDirection, categoryId, includeTotal));
+    }
+
+    // Каталог с фильтрами и счетчиками фасетов:
+    // ?categoryIds=1,2&minPrice=100&maxPrice=500&inStock=true&q=iphone&sortBy=price&direction=asc
+    @GetMapping("/browse")
+    public ResponseEntity<ProductBrowseResponse> browseProducts(
+            @RequestParam(required = false) List<Long> categoryIds,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            throw new BusinessException("Page size must be between 1 and " + MAX_SCROLL_SIZE);
+        }
+        if (page < 0) {
+            throw new BusinessException("Page must not be negative");
+        }
+
+        Sort.Direction sortDirection = direction.equalsIgnoreCase("asc")
+                ? Sort.Direction.ASC : Sort.Direction.DESC;
+
+        return ResponseEntity.ok(productService.browseProducts(
+                categoryIds != null ? new HashSet<>(categoryIds) : Set.of(), minPrice, maxPrice,
+                inStock, q, sortBy, sortDirection, page, size));
+    }
+
+    // SSE: события "changes" — массив {productId, categoryId, price, stockQuantity, deleted}.
+    // Без параметров — весь каталог, иначе ?productIds=1,2&categoryIds=3
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @RequestParam(required = false) List<Long> productIds,
+            @RequestParam(required = false) List<Long> categoryIds) {
+        return priceStockBroadcaster.subscribe(productIds, categoryIds);
+    }
+
+    // Delta-sync для зеркал каталога: NDJSON-страница изменений после ?since=<токен>,
+    // последняя строка — CHECKPOINT с токеном следующего запроса. Без since — полная выгрузка
+    @GetMapping("/changes")
+    public ResponseEntity<StreamingResponseBody> getChanges(
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "1000") int limit) {
+        StreamingResponseBody body = catalogChangeFeed.changes(since, limit);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // Подсказки при вводе: ?q=iph — товары и категории по популярности
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionResponse>> suggestProducts(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new BusinessException("Limit must be between 1 and " + MAX_SUGGESTIONS);
+        }
+        return ResponseEntity.ok(productService.suggestProducts(q, limit));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<Page<Product>> searchProducts(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+
+        Page<Product> productsPage = productService.searchProducts(query, PageRequest.of(page, size));
+        return ResponseEntity.ok(productsPage);
+    }
+
 
     @GetMapping("/{id}")
     public ResponseEntity<Product> getProductById(@PathVariable Long id) {
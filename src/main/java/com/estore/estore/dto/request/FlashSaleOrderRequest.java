@@ -0,0 +1,34 @@
+package com.estore.estore.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+public class FlashSaleOrderRequest {
+
+    @NotNull(message = "Quantity is required")
+    @Min(value = 1, message = "Quantity must be at least 1")
+    @Max(value = 10, message = "Quantity must not exceed 10")
+    private Integer quantity;
+
+    @NotBlank(message = "Shipping address is required")
+    @Size(min = 5, max = 200, message = "Shipping address must be between 5 and 200 characters")
+    private String shippingAddress;
+
+    // Конструкторы
+    public FlashSaleOrderRequest() {}
+
+    public FlashSaleOrderRequest(Integer quantity, String shippingAddress) {
+        this.quantity = quantity;
+        this.shippingAddress = shippingAddress;
+    }
+
+    // Геттеры и сеттеры
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+
+    public String getShippingAddress() { return shippingAddress; }
+    public void setShippingAddress(String shippingAddress) { this.shippingAddress = shippingAddress; }
+}
@@ -0,0 +1,37 @@
+package com.estore.estore.dto.response;
+
+public class FlashSaleOrderResponse {
+
+    private Long productId;
+    private Long orderId;
+    private int quantity;
+    private boolean accepted;
+    private String reason;
+
+    // Конструкторы
+    public FlashSaleOrderResponse() {}
+
+    public FlashSaleOrderResponse(Long productId, Long orderId, int quantity, boolean accepted, String reason) {
+        this.productId = productId;
+        this.orderId = orderId;
+        this.quantity = quantity;
+        this.accepted = accepted;
+        this.reason = reason;
+    }
+
+    // Геттеры и сеттеры
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+
+    public int getQuantity() { return quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+
+    public boolean isAccepted() { return accepted; }
+    public void setAccepted(boolean accepted) { this.accepted = accepted; }
+
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+}
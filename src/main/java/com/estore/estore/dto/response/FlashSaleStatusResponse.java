@@ -0,0 +1,50 @@
+package com.estore.estore.dto.response;
+
+import java.math.BigDecimal;
+
+public class FlashSaleStatusResponse {
+
+    private Long productId;
+    private BigDecimal price;
+    private long remainingStock;
+    private long acceptedOrders;
+    private long rejectedOrders;
+    private int queueSize;
+    private boolean running;
+
+    // Конструкторы
+    public FlashSaleStatusResponse() {}
+
+    public FlashSaleStatusResponse(Long productId, BigDecimal price, long remainingStock, long acceptedOrders,
+                                   long rejectedOrders, int queueSize, boolean running) {
+        this.productId = productId;
+        this.price = price;
+        this.remainingStock = remainingStock;
+        this.acceptedOrders = acceptedOrders;
+        this.rejectedOrders = rejectedOrders;
+        this.queueSize = queueSize;
+        this.running = running;
+    }
+
+    // Геттеры и сеттеры
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+
+    public long getRemainingStock() { return remainingStock; }
+    public void setRemainingStock(long remainingStock) { this.remainingStock = remainingStock; }
+
+    public long getAcceptedOrders() { return acceptedOrders; }
+    public void setAcceptedOrders(long acceptedOrders) { this.acceptedOrders = acceptedOrders; }
+
+    public long getRejectedOrders() { return rejectedOrders; }
+    public void setRejectedOrders(long rejectedOrders) { this.rejectedOrders = rejectedOrders; }
+
+    public int getQueueSize() { return queueSize; }
+    public void setQueueSize(int queueSize) { this.queueSize = queueSize; }
+
+    public boolean isRunning() { return running; }
+    public void setRunning(boolean running) { this.running = running; }
+}
@@ -43,6 +43,11 @@ public class OrderResponse {
     // Статический метод для конвертации из Order
 
     public static OrderResponse fromOrder(Order order) {
+        return fromOrder(order, order.getUser().getUsername());
+    }
+
+    // Имя пользователя передается явно, когда у заказа лишь ссылка на пользователя (без загрузки)
+    public static OrderResponse fromOrder(Order order, String username) {
         List<OrderItemResponse> items = order.getOrderItems().stream()
                 .map(OrderItemResponse::fromOrderItem)
                 .collect(Collectors.toList());
@@ -50,7 +55,7 @@ public class OrderResponse {
         return new OrderResponse(
                 order.getId(),
                 order.getUser().getId(),
-                order.getUser().getUsername(),
+                username,
                 order.getTotalAmount(),
                 order.getStatus().name(),
                 order.getCreatedAt(),
@@ -0,0 +1,59 @@
+package com.estore.estore.dto.response;
+
+import com.estore.estore.model.Order;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Строка списка заказов для админа: без позиций, только их количество
+public class OrderSummaryResponse {
+
+    private Long id;
+    private Long userId;
+    private String username;
+    private BigDecimal totalAmount;
+    private String status;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdAt;
+
+    private long itemCount;
+
+    // Конструкторы
+    public OrderSummaryResponse() {}
+
+    // Используется в JPQL-проекции (SELECT new ...)
+    public OrderSummaryResponse(Long id, Long userId, String username, BigDecimal totalAmount,
+                                Order.OrderStatus status, LocalDateTime createdAt, Long itemCount) {
+        this.id = id;
+        this.userId = userId;
+        this.username = username;
+        this.totalAmount = totalAmount;
+        this.status = status != null ? status.name() : null;
+        this.createdAt = createdAt;
+        this.itemCount = itemCount != null ? itemCount : 0;
+    }
+
+    // Геттеры и сеттеры
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public long getItemCount() { return itemCount; }
+    public void setItemCount(long itemCount) { this.itemCount = itemCount; }
+}
@@ -0,0 +1,102 @@
+package com.estore.estore.dto.response;
+
+import com.estore.estore.model.Product;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Страница /api/products/browse со счетчиками фасетов. Счетчик фасета учитывает все фильтры,
+// кроме своего собственного, — так в UI видно, сколько товаров даст выбор другого значения
+public class ProductBrowseResponse {
+    private List<Product> items;
+    private int page;
+    private int size;
+    private long totalElements;
+    private List<CategoryFacet> categories;
+    private List<PriceBucket> priceBuckets;
+    private long inStockCount;
+
+    // Товаров в категории
+    public static class CategoryFacet {
+        private Long categoryId;
+        private String categoryName;
+        private long count;
+
+        public CategoryFacet() {}
+
+        public CategoryFacet(Long categoryId, String categoryName, long count) {
+            this.categoryId = categoryId;
+            this.categoryName = categoryName;
+            this.count = count;
+        }
+
+        public Long getCategoryId() { return categoryId; }
+        public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
+
+        public String getCategoryName() { return categoryName; }
+        public void setCategoryName(String categoryName) { this.categoryName = categoryName; }
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+    }
+
+    // Товаров в ценовом диапазоне [from, to); to = null — без верхней границы
+    public static class PriceBucket {
+        private BigDecimal from;
+        private BigDecimal to;
+        private long count;
+
+        public PriceBucket() {}
+
+        public PriceBucket(BigDecimal from, BigDecimal to, long count) {
+            this.from = from;
+            this.to = to;
+            this.count = count;
+        }
+
+        public BigDecimal getFrom() { return from; }
+        public void setFrom(BigDecimal from) { this.from = from; }
+
+        public BigDecimal getTo() { return to; }
+        public void setTo(BigDecimal to) { this.to = to; }
+
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+    }
+
+    // Конструкторы
+    public ProductBrowseResponse() {}
+
+    public ProductBrowseResponse(List<Product> items, int page, int size, long totalElements,
+                                 List<CategoryFacet> categories, List<PriceBucket> priceBuckets, long inStockCount) {
+        this.items = items;
+        this.page = page;
+        this.size = size;
+        this.totalElements = totalElements;
+        this.categories = categories;
+        this.priceBuckets = priceBuckets;
+        this.inStockCount = inStockCount;
+    }
+
+    // Геттеры и сеттеры
+    public List<Product> getItems() { return items; }
+    public void setItems(List<Product> items) { this.items = items; }
+
+    public int getPage() { return page; }
+    public void setPage(int page) { this.page = page; }
+
+    public int getSize() { return size; }
+    public void setSize(int size) { this.size = size; }
+
+    public long getTotalElements() { return totalElements; }
+    public void setTotalElements(long totalElements) { this.totalElements = totalElements; }
+
+    public List<CategoryFacet> getCategories() { return categories; }
+    public void setCategories(List<CategoryFacet> categories) { this.categories = categories; }
+
+    public List<PriceBucket> getPriceBuckets() { return priceBuckets; }
+    public void setPriceBuckets(List<PriceBucket> priceBuckets) { this.priceBuckets = priceBuckets; }
+
+    public long getInStockCount() { return inStockCount; }
+    public void setInStockCount(long inStockCount) { this.inStockCount = inStockCount; }
+}
@@ -0,0 +1,163 @@
+package com.estore.estore.dto.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// Сводка продаж за период для /api/admin/stats (отмененные заказы в выручку и штуки не входят)
+public class SalesStatsResponse {
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Long categoryId;
+    private BigDecimal revenue;
+    private long orderCount;
+    private long unitsSold;
+    private BigDecimal averageBasketSize;
+    private BigDecimal averageOrderValue;
+    private Map<String, Long> ordersByStatus;
+    private List<CategorySales> categories;
+    private List<ProductSales> topProducts;
+    private String granularity;
+    private List<SeriesPoint> series;
+
+    // Продажи категории
+    public static class CategorySales {
+        private Long categoryId;
+        private String categoryName;
+        private long orderCount;
+        private long unitsSold;
+        private BigDecimal revenue;
+
+        public CategorySales() {}
+
+        public CategorySales(Long categoryId, String categoryName, long orderCount, long unitsSold, BigDecimal revenue) {
+            this.categoryId = categoryId;
+            this.categoryName = categoryName;
+            this.orderCount = orderCount;
+            this.unitsSold = unitsSold;
+            this.revenue = revenue;
+        }
+
+        public Long getCategoryId() { return categoryId; }
+        public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
+
+        public String getCategoryName() { return categoryName; }
+        public void setCategoryName(String categoryName) { this.categoryName = categoryName; }
+
+        public long getOrderCount() { return orderCount; }
+        public void setOrderCount(long orderCount) { this.orderCount = orderCount; }
+
+        public long getUnitsSold() { return unitsSold; }
+        public void setUnitsSold(long unitsSold) { this.unitsSold = unitsSold; }
+
+        public BigDecimal getRevenue() { return revenue; }
+        public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+    }
+
+    // Продажи товара
+    public static class ProductSales {
+        private Long productId;
+        private String productName;
+        private Long categoryId;
+        private long unitsSold;
+        private BigDecimal revenue;
+
+        public ProductSales() {}
+
+        public ProductSales(Long productId, String productName, Long categoryId, long unitsSold, BigDecimal revenue) {
+            this.productId = productId;
+            this.productName = productName;
+            this.categoryId = categoryId;
+            this.unitsSold = unitsSold;
+            this.revenue = revenue;
+        }
+
+        public Long getProductId() { return productId; }
+        public void setProductId(Long productId) { this.productId = productId; }
+
+        public String getProductName() { return productName; }
+        public void setProductName(String productName) { this.productName = productName; }
+
+        public Long getCategoryId() { return categoryId; }
+        public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
+
+        public long getUnitsSold() { return unitsSold; }
+        public void setUnitsSold(long unitsSold) { this.unitsSold = unitsSold; }
+
+        public BigDecimal getRevenue() { return revenue; }
+        public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+    }
+
+    // Точка временного ряда (одна часовая или дневная корзина)
+    public static class SeriesPoint {
+        private LocalDateTime bucketStart;
+        private long orderCount;
+        private long unitsSold;
+        private BigDecimal revenue;
+
+        public SeriesPoint() {}
+
+        public SeriesPoint(LocalDateTime bucketStart, long orderCount, long unitsSold, BigDecimal revenue) {
+            this.bucketStart = bucketStart;
+            this.orderCount = orderCount;
+            this.unitsSold = unitsSold;
+            this.revenue = revenue;
+        }
+
+        public LocalDateTime getBucketStart() { return bucketStart; }
+        public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+
+        public long getOrderCount() { return orderCount; }
+        public void setOrderCount(long orderCount) { this.orderCount = orderCount; }
+
+        public long getUnitsSold() { return unitsSold; }
+        public void setUnitsSold(long unitsSold) { this.unitsSold = unitsSold; }
+
+        public BigDecimal getRevenue() { return revenue; }
+        public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+    }
+
+    // Конструкторы
+    public SalesStatsResponse() {}
+
+    // Геттеры и сеттеры
+    public LocalDateTime getFrom() { return from; }
+    public void setFrom(LocalDateTime from) { this.from = from; }
+
+    public LocalDateTime getTo() { return to; }
+    public void setTo(LocalDateTime to) { this.to = to; }
+
+    public Long getCategoryId() { return categoryId; }
+    public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
+
+    public BigDecimal getRevenue() { return revenue; }
+    public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+
+    public long getOrderCount() { return orderCount; }
+    public void setOrderCount(long orderCount) { this.orderCount = orderCount; }
+
+    public long getUnitsSold() { return unitsSold; }
+    public void setUnitsSold(long unitsSold) { this.unitsSold = unitsSold; }
+
+    public BigDecimal getAverageBasketSize() { return averageBasketSize; }
+    public void setAverageBasketSize(BigDecimal averageBasketSize) { this.averageBasketSize = averageBasketSize; }
+
+    public BigDecimal getAverageOrderValue() { return averageOrderValue; }
+    public void setAverageOrderValue(BigDecimal averageOrderValue) { this.averageOrderValue = averageOrderValue; }
+
+    public Map<String, Long> getOrdersByStatus() { return ordersByStatus; }
+    public void setOrdersByStatus(Map<String, Long> ordersByStatus) { this.ordersByStatus = ordersByStatus; }
+
+    public List<CategorySales> getCategories() { return categories; }
+    public void setCategories(List<CategorySales> categories) { this.categories = categories; }
+
+    public List<ProductSales> getTopProducts() { return topProducts; }
+    public void setTopProducts(List<ProductSales> topProducts) { this.topProducts = topProducts; }
+
+    public String getGranularity() { return granularity; }
+    public void setGranularity(String granularity) { this.granularity = granularity; }
+
+    public List<SeriesPoint> getSeries() { return series; }
+    public void setSeries(List<SeriesPoint> series) { this.series = series; }
+}
@@ -0,0 +1,32 @@
+package com.estore.estore.dto.response;
+
+// Подсказка поиска: товар или категория (type = PRODUCT / CATEGORY)
+public class SuggestionResponse {
+    private String type;
+    private Long id;
+    private String text;
+    private String model;
+
+    // Конструкторы
+    public SuggestionResponse() {}
+
+    public SuggestionResponse(String type, Long id, String text, String model) {
+        this.type = type;
+        this.id = id;
+        this.text = text;
+        this.model = model;
+    }
+
+    // Геттеры и сеттеры
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+
+    public String getModel() { return model; }
+    public void setModel(String model) { this.model = model; }
+}
@@ -1,5 +1,6 @@
 package com.estore.estore.dto.response;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 public class UserProfileResponse {
@@ -9,13 +10,15 @@ public class UserProfileResponse {
     private String role;
     private LocalDateTime createdAt;
     private int totalOrders;
-    private double totalSpent;
+    private BigDecimal totalSpent;
+    private LocalDateTime lastOrderAt;
 
     // Конструкторы
     public UserProfileResponse() {}
 
     public UserProfileResponse(Long id, String username, String email, String role,
-                               LocalDateTime createdAt, int totalOrders, double totalSpent) {
+                               LocalDateTime createdAt, int totalOrders, BigDecimal totalSpent,
+                               LocalDateTime lastOrderAt) {
         this.id = id;
         this.username = username;
         this.email = email;
@@ -23,6 +26,7 @@ public class UserProfileResponse {
         this.createdAt = createdAt;
         this.totalOrders = totalOrders;
         this.totalSpent = totalSpent;
+        this.lastOrderAt = lastOrderAt;
     }
 
     // Геттеры и сеттеры
@@ -44,6 +48,9 @@ public class UserProfileResponse {
     public int getTotalOrders() { return totalOrders; }
     public void setTotalOrders(int totalOrders) { this.totalOrders = totalOrders; }
 
-    public double getTotalSpent() { return totalSpent; }
-    public void setTotalSpent(double totalSpent) { this.totalSpent = totalSpent; }
+    public BigDecimal getTotalSpent() { return totalSpent; }
+    public void setTotalSpent(BigDecimal totalSpent) { this.totalSpent = totalSpent; }
+
+    public LocalDateTime getLastOrderAt() { return lastOrderAt; }
+    public void setLastOrderAt(LocalDateTime lastOrderAt) { this.lastOrderAt = lastOrderAt; }
 }
\ No newline at end of file
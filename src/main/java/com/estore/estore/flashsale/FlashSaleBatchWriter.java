@@ -0,0 +1,13 @@
+package com.estore.estore.flashsale;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Сохранение пачки принятых заявок. Вызывается только потоком секвенсора;
+ * возвращает id созданных заказов в том же порядке, что и заявки.
+ */
+public interface FlashSaleBatchWriter {
+
+    List<Long> persist(Long productId, BigDecimal price, List<FlashSaleRequest> requests);
+}
@@ -0,0 +1,55 @@
+package com.estore.estore.flashsale;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * SQL таблицы flash_sales: остаток каждой активной распродажи в БД.
+ * Меняется в тех же транзакциях, что и склад или заказы распродажи,
+ * поэтому всегда равен остатку секвенсора на момент последнего коммита.
+ */
+@Repository
+public class FlashSaleRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public record ActiveSale(Long productId, BigDecimal price, long remainingStock) {}
+
+    public void insert(Long productId, BigDecimal price, long stock, LocalDateTime now) {
+        jdbcTemplate.update(
+                "INSERT INTO flash_sales (product_id, price, remaining_stock, started_at) VALUES (?, ?, ?, ?)",
+                productId, price, stock, Timestamp.valueOf(now));
+    }
+
+    // false — распродажи нет или остатка не хватает (пачку сохранять нельзя)
+    public boolean decrementRemaining(Long productId, long units) {
+        return jdbcTemplate.update(
+                "UPDATE flash_sales SET remaining_stock = remaining_stock - ? " +
+                "WHERE product_id = ? AND remaining_stock >= ?",
+                units, productId, units) == 1;
+    }
+
+    // Завершить распродажу; возвращает нераспроданный остаток
+    public Optional<Long> delete(Long productId) {
+        List<Long> remaining = jdbcTemplate.queryForList(
+                "DELETE FROM flash_sales WHERE product_id = ? RETURNING remaining_stock", Long.class, productId);
+        return remaining.stream().findFirst();
+    }
+
+    public List<ActiveSale> findAll() {
+        return jdbcTemplate.query(
+                "SELECT product_id, price, remaining_stock FROM flash_sales ORDER BY product_id",
+                (rs, rowNum) -> new ActiveSale(
+                        rs.getLong("product_id"),
+                        rs.getBigDecimal("price"),
+                        rs.getLong("remaining_stock")));
+    }
+}
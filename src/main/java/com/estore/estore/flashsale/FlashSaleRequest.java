@@ -0,0 +1,26 @@
+package com.estore.estore.flashsale;
+
+import java.util.concurrent.CompletableFuture;
+
+// Заявка на покупку в рамках флеш-распродажи
+public class FlashSaleRequest {
+
+    private final Long userId;
+    private final int quantity;
+    private final String shippingAddress;
+    private final CompletableFuture<FlashSaleResult> result = new CompletableFuture<>();
+
+    public FlashSaleRequest(Long userId, int quantity, String shippingAddress) {
+        this.userId = userId;
+        this.quantity = quantity;
+        this.shippingAddress = shippingAddress;
+    }
+
+    public Long getUserId() { return userId; }
+
+    public int getQuantity() { return quantity; }
+
+    public String getShippingAddress() { return shippingAddress; }
+
+    public CompletableFuture<FlashSaleResult> getResult() { return result; }
+}
@@ -0,0 +1,28 @@
+package com.estore.estore.flashsale;
+
+public class FlashSaleResult {
+
+    private final boolean accepted;
+    private final Long orderId;
+    private final String reason;
+
+    private FlashSaleResult(boolean accepted, Long orderId, String reason) {
+        this.accepted = accepted;
+        this.orderId = orderId;
+        this.reason = reason;
+    }
+
+    public static FlashSaleResult accepted(Long orderId) {
+        return new FlashSaleResult(true, orderId, null);
+    }
+
+    public static FlashSaleResult rejected(String reason) {
+        return new FlashSaleResult(false, null, reason);
+    }
+
+    public boolean isAccepted() { return accepted; }
+
+    public Long getOrderId() { return orderId; }
+
+    public String getReason() { return reason; }
+}
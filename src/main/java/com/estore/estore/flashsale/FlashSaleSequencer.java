@@ -0,0 +1,161 @@
+package com.estore.estore.flashsale;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Секвенсор флеш-распродажи одного товара.
+ * Заявки попадают в кольцевой буфер, единственный поток-писатель распределяет
+ * остаток в памяти (без блокировок строк в БД) и сохраняет принятые заказы
+ * пачками (group commit). Заявки на товар обрабатываются строго по очереди.
+ */
+public class FlashSaleSequencer implements Runnable {
+
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    private final Long productId;
+    private final BigDecimal price;
+    private final int batchSize;
+    private final RingBuffer<FlashSaleRequest> ring;
+    private final FlashSaleBatchWriter writer;
+
+    // Изменяется только потоком-писателем, читается снаружи для статистики
+    private volatile long remainingStock;
+    private volatile long acceptedOrders;
+    private volatile long rejectedOrders;
+
+    private volatile boolean running = true;
+    private volatile Thread writerThread;
+
+    // Потоки внутри submit: писатель не завершается, пока кто-то из них может положить заявку в буфер
+    private final AtomicInteger submitting = new AtomicInteger();
+
+    public FlashSaleSequencer(Long productId, BigDecimal price, long stock,
+                              int ringSize, int batchSize, FlashSaleBatchWriter writer) {
+        this.productId = productId;
+        this.price = price;
+        this.remainingStock = stock;
+        this.batchSize = batchSize;
+        this.ring = new RingBuffer<>(ringSize);
+        this.writer = writer;
+    }
+
+    public Thread start() {
+        Thread thread = new Thread(this, "flash-sale-" + productId);
+        thread.setDaemon(true);
+        writerThread = thread;
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Поставить заявку в очередь. Никогда не блокируется:
+     * при переполненном буфере или остановленной распродаже заявка сразу отклоняется.
+     */
+    public CompletableFuture<FlashSaleResult> submit(FlashSaleRequest request) {
+        // Счетчик увеличивается до чтения running: писатель, увидевший running = false и ноль
+        // в submitting, знает, что все заявки, прошедшие проверку, уже в буфере
+        submitting.incrementAndGet();
+        try {
+            enqueue(request);
+        } finally {
+            submitting.decrementAndGet();
+        }
+        return request.getResult();
+    }
+
+    private void enqueue(FlashSaleRequest request) {
+        if (!running) {
+            request.getResult().complete(FlashSaleResult.rejected("Flash sale is over"));
+        } else if (remainingStock < request.getQuantity()) {
+            // Быстрый отказ без очереди; окончательное решение все равно за писателем
+            request.getResult().complete(FlashSaleResult.rejected("Sold out"));
+        } else if (!ring.offer(request)) {
+            request.getResult().complete(FlashSaleResult.rejected("Too many requests, try again"));
+        } else {
+            Thread thread = writerThread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        List<FlashSaleRequest> batch = new ArrayList<>(batchSize);
+        List<FlashSaleRequest> accepted = new ArrayList<>(batchSize);
+
+        // После остановки дорабатываем заявки, уже положенные в буфер или кладущиеся прямо сейчас
+        while (running || submitting.get() > 0 || !ring.isEmpty()) {
+            if (ring.drainTo(batch::add, batchSize) == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+
+            long remaining = remainingStock;
+            for (FlashSaleRequest request : batch) {
+                if (request.getQuantity() <= remaining) {
+                    remaining -= request.getQuantity();
+                    accepted.add(request);
+                } else {
+                    rejectedOrders++;
+                    request.getResult().complete(FlashSaleResult.rejected("Sold out"));
+                }
+            }
+            remainingStock = remaining;
+
+            if (!accepted.isEmpty()) {
+                persist(accepted);
+            }
+            batch.clear();
+            accepted.clear();
+        }
+    }
+
+    // Остановить прием заявок, дождаться обработки очереди; возвращает нераспроданный остаток
+    public long stop() throws InterruptedException {
+        running = false;
+        Thread thread = writerThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join();
+        }
+        return remainingStock;
+    }
+
+    private void persist(List<FlashSaleRequest> accepted) {
+        try {
+            List<Long> orderIds = writer.persist(productId, price, accepted);
+            for (int i = 0; i < accepted.size(); i++) {
+                accepted.get(i).getResult().complete(FlashSaleResult.accepted(orderIds.get(i)));
+            }
+            acceptedOrders += accepted.size();
+        } catch (RuntimeException e) {
+            // Пачка не сохранилась — возвращаем остаток и сообщаем об ошибке всем заявкам пачки
+            long returned = 0;
+            for (FlashSaleRequest request : accepted) {
+                returned += request.getQuantity();
+                request.getResult().completeExceptionally(e);
+            }
+            remainingStock += returned;
+        }
+    }
+
+    public Long getProductId() { return productId; }
+
+    public BigDecimal getPrice() { return price; }
+
+    public long getRemainingStock() { return remainingStock; }
+
+    public long getAcceptedOrders() { return acceptedOrders; }
+
+    public long getRejectedOrders() { return rejectedOrders; }
+
+    public int getQueueSize() { return ring.size(); }
+
+    public boolean isRunning() { return running; }
+}
@@ -0,0 +1,207 @@
+package com.estore.estore.flashsale;
+
+import com.estore.estore.catalog.CatalogSnapshotHolder;
+import com.estore.estore.dto.response.FlashSaleStatusResponse;
+import com.estore.estore.exception.ApiException;
+import com.estore.estore.exception.BusinessException;
+import com.estore.estore.exception.DuplicateResourceException;
+import com.estore.estore.exception.ResourceNotFoundException;
+import com.estore.estore.model.Product;
+import com.estore.estore.repository.ProductRepository;
+import com.estore.estore.security.CurrentUserResolver;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Флеш-распродажи: опциональный режим, в котором заказы на отмеченные товары
+ * идут не через OrderService (блокировка строки products), а через
+ * однопоточный секвенсор товара. При старте остаток переносится из БД
+ * в секвенсор, при остановке нераспроданное возвращается на склад.
+ * Остаток активной распродажи хранится в flash_sales, поэтому после падения
+ * приложения recoverSales восстанавливает секвенсоры, а не теряет остаток.
+ */
+@Service
+public class FlashSaleService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlashSaleService.class);
+
+    @Value("${app.flash-sale.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.flash-sale.ring-size:4096}")
+    private int ringSize;
+
+    @Value("${app.flash-sale.batch-size:256}")
+    private int batchSize;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CurrentUserResolver currentUserResolver;
+
+    @Autowired
+    private FlashSaleBatchWriter batchWriter;
+
+    @Autowired
+    private FlashSaleRepository flashSaleRepository;
+
+    @Autowired
+    private CatalogSnapshotHolder catalogSnapshotHolder;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final Map<Long, FlashSaleSequencer> sequencers = new ConcurrentHashMap<>();
+
+    // ============ АДМИНИСТРИРОВАНИЕ ============
+
+    public FlashSaleStatusResponse startSale(Long productId, int stock, BigDecimal price) {
+        requireEnabled();
+        if (stock <= 0) {
+            throw new BusinessException("Flash sale stock must be positive");
+        }
+        if (sequencers.containsKey(productId)) {
+            throw new DuplicateResourceException("Flash sale for product " + productId + " is already running");
+        }
+
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+        BigDecimal salePrice = price != null ? price : product.getPrice();
+
+        // Переносим остаток со склада в секвенсор тем же условным UPDATE, что и при обычном заказе,
+        // и в той же транзакции запоминаем распродажу
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> reserved = productRepository.decrementStock(new Long[]{productId}, new Integer[]{stock});
+            if (reserved.isEmpty()) {
+                throw new BusinessException("Not enough stock for product: " + product.getName() +
+                        ". Available: " + product.getStockQuantity() + ", Requested: " + stock);
+            }
+            flashSaleRepository.insert(productId, salePrice, stock, LocalDateTime.now());
+            catalogSnapshotHolder.stockChanged(List.of(productId));
+        });
+
+        return toStatus(startSequencer(productId, salePrice, stock));
+    }
+
+    public FlashSaleStatusResponse stopSale(Long productId) {
+        FlashSaleSequencer sequencer = sequencers.remove(productId);
+        if (sequencer == null) {
+            throw new ResourceNotFoundException("No flash sale running for product " + productId);
+        }
+        stopAndAwait(sequencer);
+        returnStock(productId);
+        return toStatus(sequencer);
+    }
+
+    /**
+     * Распродажи, оставшиеся в flash_sales после падения приложения. В режиме распродаж
+     * они продолжаются с сохраненным остатком, иначе остаток возвращается на склад.
+     */
+    public int recoverSales() {
+        int recovered = 0;
+        for (FlashSaleRepository.ActiveSale sale : flashSaleRepository.findAll()) {
+            if (sequencers.containsKey(sale.productId())) {
+                continue;
+            }
+            if (enabled) {
+                startSequencer(sale.productId(), sale.price(), sale.remainingStock());
+                log.info("Flash sale for product {} resumed with {} units", sale.productId(), sale.remainingStock());
+            } else {
+                returnStock(sale.productId());
+                log.info("Flash sale for product {} closed, {} units returned to stock",
+                        sale.productId(), sale.remainingStock());
+            }
+            recovered++;
+        }
+        return recovered;
+    }
+
+    public List<FlashSaleStatusResponse> getSales() {
+        return sequencers.values().stream().map(this::toStatus).toList();
+    }
+
+    // ============ ЗАКАЗ ============
+
+    public CompletableFuture<FlashSaleResult> placeOrder(Long productId, int quantity, String shippingAddress) {
+        requireEnabled();
+        FlashSaleSequencer sequencer = sequencers.get(productId);
+        if (sequencer == null) {
+            throw new ResourceNotFoundException("No flash sale running for product " + productId);
+        }
+        return sequencer.submit(new FlashSaleRequest(currentUserResolver.getUserId(), quantity, shippingAddress));
+    }
+
+    public boolean isFlashSaleProduct(Long productId) {
+        return sequencers.containsKey(productId);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        for (Long productId : List.copyOf(sequencers.keySet())) {
+            FlashSaleSequencer sequencer = sequencers.remove(productId);
+            stopAndAwait(sequencer);
+            returnStock(productId);
+        }
+    }
+
+    // ============ ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ============
+
+    private FlashSaleSequencer startSequencer(Long productId, BigDecimal price, long stock) {
+        FlashSaleSequencer sequencer = new FlashSaleSequencer(productId, price, stock, ringSize, batchSize, batchWriter);
+        sequencers.put(productId, sequencer);
+        sequencer.start();
+        return sequencer;
+    }
+
+    private long stopAndAwait(FlashSaleSequencer sequencer) {
+        try {
+            return sequencer.stop();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while stopping flash sale");
+        }
+    }
+
+    // Нераспроданное по flash_sales (остаток последней сохраненной пачки) — обратно на склад
+    private void returnStock(Long productId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            long leftover = flashSaleRepository.delete(productId).orElse(0L);
+            if (leftover > 0) {
+                productRepository.incrementStock(new Long[]{productId}, new Integer[]{(int) leftover});
+                catalogSnapshotHolder.stockChanged(List.of(productId));
+            }
+        });
+    }
+
+    private void requireEnabled() {
+        if (!enabled) {
+            throw new BusinessException("Flash sale mode is disabled");
+        }
+    }
+
+    private FlashSaleStatusResponse toStatus(FlashSaleSequencer sequencer) {
+        return new FlashSaleStatusResponse(
+                sequencer.getProductId(),
+                sequencer.getPrice(),
+                sequencer.getRemainingStock(),
+                sequencer.getAcceptedOrders(),
+                sequencer.getRejectedOrders(),
+                sequencer.getQueueSize(),
+                sequencer.isRunning()
+        );
+    }
+}
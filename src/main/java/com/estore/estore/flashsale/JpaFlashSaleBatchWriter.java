@@ -0,0 +1,77 @@
+package com.estore.estore.flashsale;
+
+import com.estore.estore.analytics.SalesAnalyticsService;
+import com.estore.estore.model.Order;
+import com.estore.estore.model.OrderItem;
+import com.estore.estore.model.Product;
+import com.estore.estore.outbox.OutboxService;
+import com.estore.estore.repository.OrderRepository;
+import com.estore.estore.repository.ProductRepository;
+import com.estore.estore.repository.UserRepository;
+import com.estore.estore.service.UserOrderStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// Сохраняет пачку заказов флеш-распродажи одной транзакцией (batch insert)
+@Component
+public class JpaFlashSaleBatchWriter implements FlashSaleBatchWriter {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserOrderStatsService userOrderStatsService;
+
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private FlashSaleRepository flashSaleRepository;
+
+    @Override
+    @Transactional
+    public List<Long> persist(Long productId, BigDecimal price, List<FlashSaleRequest> requests) {
+        // Остаток уже списан при старте распродажи, поэтому строку товара не трогаем
+        Product product = productRepository.getReferenceById(productId);
+
+        List<Order> orders = new ArrayList<>(requests.size());
+        for (FlashSaleRequest request : requests) {
+            Order order = new Order(userRepository.getReferenceById(request.getUserId()), null,
+                    Order.OrderStatus.PENDING, request.getShippingAddress(), "Flash sale");
+            order.addOrderItem(new OrderItem(order, product, request.getQuantity(), price));
+            order.setTotalAmount(order.calculateTotalAmount());
+            orders.add(order);
+        }
+
+        // Остаток распродажи в БД уменьшается вместе с заказами — после падения он точный
+        long units = requests.stream().mapToLong(FlashSaleRequest::getQuantity).sum();
+        if (!flashSaleRepository.decrementRemaining(productId, units)) {
+            throw new IllegalStateException("Flash sale for product " + productId + " is not active");
+        }
+
+        List<Order> saved = orderRepository.saveAll(orders);
+        userOrderStatsService.ordersPlaced(saved);
+        salesAnalyticsService.ordersPlaced(saved);
+        outboxService.ordersCreated(saved);
+
+        List<Long> orderIds = new ArrayList<>(saved.size());
+        for (Order order : saved) {
+            orderIds.add(order.getId());
+        }
+        return orderIds;
+    }
+}
@@ -0,0 +1,80 @@
+package com.estore.estore.flashsale;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Ограниченный кольцевой буфер: много писателей, один читатель (в духе Disruptor).
+ * Писатели захватывают слот CAS-ом по tail и публикуют элемент в слот;
+ * единственный читатель забирает опубликованные элементы по порядку.
+ */
+final class RingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final int capacity;
+
+    // Следующая позиция для записи (писатели)
+    private final AtomicLong tail = new AtomicLong();
+
+    // Следующая позиция для чтения (пишет только читатель)
+    private volatile long head;
+
+    RingBuffer(int requestedCapacity) {
+        // Размер — степень двойки, чтобы индекс считался маской
+        int size = 2;
+        while (size < requestedCapacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.capacity = size;
+    }
+
+    // false — буфер заполнен
+    boolean offer(E element) {
+        long position;
+        do {
+            position = tail.get();
+            if (position - head >= capacity) {
+                return false;
+            }
+        } while (!tail.compareAndSet(position, position + 1));
+
+        slots.lazySet((int) position & mask, element);
+        return true;
+    }
+
+    // Вызывается только потоком-читателем
+    int drainTo(Consumer<E> consumer, int limit) {
+        long position = head;
+        int drained = 0;
+        while (drained < limit) {
+            int index = (int) position & mask;
+            E element = slots.get(index);
+            if (element == null) {
+                // Слот захвачен, но еще не опубликован (или буфер пуст)
+                break;
+            }
+            slots.lazySet(index, null);
+            position++;
+            drained++;
+            consumer.accept(element);
+        }
+        head = position;
+        return drained;
+    }
+
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    int size() {
+        return (int) (tail.get() - head);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,58 @@
+package com.estore.estore.idempotency;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * SQL таблицы idempotency_keys. Вызывается в транзакции заказа:
+ * JdbcTemplate берет то же соединение, что и JPA.
+ */
+@Repository
+public class IdempotencyKeyRepository {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public record StoredKey(String requestHash, String response) {}
+
+    /**
+     * Занять ключ: вставить строку или перезаписать просроченную.
+     * Если ключ занят незакоммиченной транзакцией, INSERT ждет ее завершения.
+     * false — ключ уже использован и еще действует.
+     */
+    public boolean claim(Long userId, String key, String requestHash, LocalDateTime now, LocalDateTime expiresAt) {
+        int inserted = jdbcTemplate.update(
+                "INSERT INTO idempotency_keys (user_id, idem_key, request_hash, created_at, expires_at) " +
+                "VALUES (?, ?, ?, ?, ?) " +
+                "ON CONFLICT (user_id, idem_key) DO UPDATE SET " +
+                "request_hash = EXCLUDED.request_hash, order_id = NULL, response = NULL, " +
+                "created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at " +
+                "WHERE idempotency_keys.expires_at <= EXCLUDED.created_at",
+                userId, key, requestHash, Timestamp.valueOf(now), Timestamp.valueOf(expiresAt));
+        return inserted == 1;
+    }
+
+    public Optional<StoredKey> find(Long userId, String key) {
+        List<StoredKey> rows = jdbcTemplate.query(
+                "SELECT request_hash, response FROM idempotency_keys WHERE user_id = ? AND idem_key = ?",
+                (rs, rowNum) -> new StoredKey(rs.getString("request_hash"), rs.getString("response")),
+                userId, key);
+        return rows.stream().findFirst();
+    }
+
+    public void complete(Long userId, String key, Long orderId, String response) {
+        jdbcTemplate.update(
+                "UPDATE idempotency_keys SET order_id = ?, response = ? WHERE user_id = ? AND idem_key = ?",
+                orderId, response, userId, key);
+    }
+
+    public int deleteExpired(LocalDateTime now) {
+        return jdbcTemplate.update("DELETE FROM idempotency_keys WHERE expires_at <= ?", Timestamp.valueOf(now));
+    }
+}
@@ -0,0 +1,246 @@
+package com.estore.estore.idempotency;
+
+import com.estore.estore.dto.request.OrderRequest;
+import com.estore.estore.dto.response.OrderResponse;
+import com.estore.estore.exception.ApiException;
+import com.estore.estore.exception.BusinessException;
+import com.estore.estore.security.CurrentUserResolver;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Идемпотентное создание заказа по заголовку Idempotency-Key.
+ *
+ * Два уровня:
+ * - в памяти — ключ пользователя → результат первой попытки. Параллельный дубль
+ *   ждет ее завершения, повтор после успеха получает тот же OrderResponse без обращения к БД;
+ * - в БД (idempotency_keys) — ключ занимается и ответ сохраняется в транзакции заказа,
+ *   поэтому дубли видны и после рестарта, и на других экземплярах.
+ * Неудачная попытка ключ не занимает: повтор выполнится заново.
+ * Ключи живут app.idempotency.ttl-ms и вычищаются по расписанию.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    @Value("${app.idempotency.ttl-ms:86400000}")
+    private long ttlMs;
+
+    @Value("${app.idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    @Value("${app.idempotency.max-entries:100000}")
+    private int maxEntries;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private CurrentUserResolver currentUserResolver;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private Counter memoryReplays;
+    private Counter databaseReplays;
+
+    // Результат попытки с ключом; до завершения попытки не истекает
+    private static final class Entry {
+        final String requestHash;
+        final CompletableFuture<OrderResponse> result = new CompletableFuture<>();
+        volatile long expiresAt = Long.MAX_VALUE;
+
+        Entry(String requestHash) {
+            this.requestHash = requestHash;
+        }
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        memoryReplays = Counter.builder("orders.idempotency.replays").tag("source", "memory").register(meterRegistry);
+        databaseReplays = Counter.builder("orders.idempotency.replays").tag("source", "db").register(meterRegistry);
+        Gauge.builder("orders.idempotency.entries", entries, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Выполнить action один раз для ключа текущего пользователя.
+     * action должен сам вызвать claim/complete в своей транзакции.
+     */
+    public OrderResponse execute(String key, OrderRequest request, Supplier<OrderResponse> action) {
+        validateKey(key);
+        String id = currentUserResolver.getUserId() + ":" + key;
+        String requestHash = requestHash(request);
+
+        while (true) {
+            Entry entry = new Entry(requestHash);
+            Entry existing = entries.putIfAbsent(id, entry);
+            if (existing == null) {
+                return runFirst(id, entry, action);
+            }
+            if (existing.expiresAt <= System.currentTimeMillis()) {
+                entries.remove(id, existing);
+                continue;
+            }
+            if (!existing.requestHash.equals(requestHash)) {
+                throw keyReused();
+            }
+
+            OrderResponse response = await(existing);
+            if (response != null) {
+                memoryReplays.increment();
+                return response;
+            }
+            // Первая попытка упала и освободила ключ — пробуем сами
+        }
+    }
+
+    /**
+     * Занять ключ в текущей транзакции. Если ключ уже использован, возвращается сохраненный ответ.
+     * Дубль с другого экземпляра ждет здесь, пока транзакция первой попытки не завершится.
+     */
+    public Optional<OrderResponse> claim(Long userId, String key, OrderRequest request) {
+        String requestHash = requestHash(request);
+        LocalDateTime now = LocalDateTime.now();
+        if (idempotencyKeyRepository.claim(userId, key, requestHash, now, now.plus(ttlMs, ChronoUnit.MILLIS))) {
+            return Optional.empty();
+        }
+
+        IdempotencyKeyRepository.StoredKey stored = idempotencyKeyRepository.find(userId, key)
+                .orElseThrow(IdempotencyService::inProgress);
+        if (!stored.requestHash().equals(requestHash)) {
+            throw keyReused();
+        }
+        if (stored.response() == null) {
+            throw inProgress();
+        }
+
+        databaseReplays.increment();
+        try {
+            return Optional.of(objectMapper.readValue(stored.response(), OrderResponse.class));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Сохранить ответ в транзакции заказа: закоммитится вместе с заказом
+    public void complete(Long userId, String key, Long orderId, OrderResponse response) {
+        try {
+            idempotencyKeyRepository.complete(userId, key, orderId, objectMapper.writeValueAsString(response));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+        try {
+            int deleted = idempotencyKeyRepository.deleteExpired(LocalDateTime.now());
+            if (deleted > 0) {
+                log.debug("Deleted {} expired idempotency keys", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to delete expired idempotency keys", e);
+        }
+    }
+
+    private OrderResponse runFirst(String id, Entry entry, Supplier<OrderResponse> action) {
+        OrderResponse response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            entries.remove(id, entry);
+            entry.result.complete(null);
+            throw e;
+        }
+
+        entry.expiresAt = System.currentTimeMillis() + ttlMs;
+        entry.result.complete(response);
+        // Сверх лимита держим только незавершенные попытки, готовые ответы остаются в БД
+        if (entries.size() > maxEntries) {
+            entries.remove(id, entry);
+        }
+        return response;
+    }
+
+    // null — первая попытка завершилась ошибкой
+    private OrderResponse await(Entry entry) {
+        try {
+            return entry.result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw inProgress();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw inProgress();
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    public static void validateKey(String key) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BusinessException(HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+    }
+
+    // Отпечаток тела запроса: тот же ключ с другим заказом — ошибка клиента
+    private static String requestHash(OrderRequest request) {
+        String canonical = Objects.toString(request.getShippingAddress(), "") + '\u0000'
+                + Objects.toString(request.getNotes(), "");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ApiException keyReused() {
+        return new ApiException(HttpStatus.UNPROCESSABLE_ENTITY,
+                HEADER + " was already used with a different request");
+    }
+
+    private static ApiException inProgress() {
+        return new ApiException(HttpStatus.CONFLICT,
+                "A request with this " + HEADER + " is still being processed");
+    }
+}
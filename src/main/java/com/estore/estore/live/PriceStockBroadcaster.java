@@ -0,0 +1,239 @@
+package com.estore.estore.live;
+
+import com.estore.estore.catalog.ProductChangeListener;
+import com.estore.estore.catalog.ProductDelta;
+import com.estore.estore.exception.ApiException;
+import com.estore.estore.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рассылка изменений цены и остатка по SSE (GET /api/products/stream).
+ *
+ * Подписка — на товары, категории или весь каталог. Простаивающее соединение
+ * не держит поток: SseEmitter работает поверх асинхронного сервлета.
+ * productsChanged только раскладывает дельты по очередям подписчиков и возвращается;
+ * отправку делает виртуальный поток подписчика. Пока он пишет, новые дельты
+ * того же товара схлопываются до последней — медленный клиент получает
+ * актуальное состояние, а не растущую очередь.
+ */
+@Component
+public class PriceStockBroadcaster implements ProductChangeListener {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceStockBroadcaster.class);
+
+    private static final int MAX_IDS_PER_SUBSCRIPTION = 500;
+
+    @Value("${app.live.max-subscribers:20000}")
+    private int maxSubscribers;
+
+    @Value("${app.live.emitter-timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Long, Set<Subscriber>> byProduct = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Subscriber>> byCategory = new ConcurrentHashMap<>();
+    private final Set<Subscriber> wholeCatalog = ConcurrentHashMap.newKeySet();
+    private final Set<Subscriber> active = ConcurrentHashMap.newKeySet();
+    // Резерв мест до регистрации подписчика: проверка лимита атомарна
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+
+    private Counter eventsSent;
+    private Counter dropped;
+
+    // Соединение и его очередь: productId → последняя дельта
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final Set<Long> productIds;
+        final Set<Long> categoryIds;
+        final Map<Long, ProductDelta> pending = new ConcurrentHashMap<>();
+        final AtomicBoolean sending = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        volatile boolean heartbeat;
+
+        Subscriber(SseEmitter emitter, Set<Long> productIds, Set<Long> categoryIds) {
+            this.emitter = emitter;
+            this.productIds = productIds;
+            this.categoryIds = categoryIds;
+        }
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("live.subscribers", subscribers, AtomicInteger::get).register(meterRegistry);
+        eventsSent = Counter.builder("live.events.sent").register(meterRegistry);
+        dropped = Counter.builder("live.subscribers.dropped")
+                .description("Subscribers removed after a failed send")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        List.copyOf(active).forEach(subscriber -> subscriber.emitter.complete());
+        sender.shutdown();
+    }
+
+    /**
+     * Новая подписка. Пустые productIds и categoryIds — весь каталог.
+     */
+    public SseEmitter subscribe(Collection<Long> productIds, Collection<Long> categoryIds) {
+        Set<Long> products = productIds != null ? Set.copyOf(productIds) : Set.of();
+        Set<Long> categories = categoryIds != null ? Set.copyOf(categoryIds) : Set.of();
+        if (products.size() + categories.size() > MAX_IDS_PER_SUBSCRIPTION) {
+            throw new BusinessException("At most " + MAX_IDS_PER_SUBSCRIPTION + " products and categories per subscription");
+        }
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, "Too many live subscribers, please retry later");
+        }
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, products, categories);
+        if (products.isEmpty() && categories.isEmpty()) {
+            wholeCatalog.add(subscriber);
+        }
+        active.add(subscriber);
+        products.forEach(id -> addTo(byProduct, id, subscriber));
+        categories.forEach(id -> addTo(byCategory, id, subscriber));
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> unsubscribe(subscriber));
+
+        // Первый байт сразу: прокси и браузер видят, что поток открыт
+        subscriber.heartbeat = true;
+        schedule(subscriber);
+        return emitter;
+    }
+
+    @Override
+    public void productsChanged(List<ProductDelta> deltas) {
+        for (ProductDelta delta : deltas) {
+            offer(byProduct.get(delta.productId()), delta);
+            if (delta.categoryId() != null) {
+                offer(byCategory.get(delta.categoryId()), delta);
+            }
+            offer(wholeCatalog, delta);
+        }
+    }
+
+    // Комментарий раз в интервал, чтобы прокси не закрывали простаивающие соединения
+    @Scheduled(fixedDelayString = "${app.live.heartbeat-interval-ms:25000}")
+    public void heartbeat() {
+        for (Subscriber subscriber : active) {
+            subscriber.heartbeat = true;
+            schedule(subscriber);
+        }
+    }
+
+    // ============ ОТПРАВКА ============
+
+    private void offer(Set<Subscriber> targets, ProductDelta delta) {
+        if (targets == null) {
+            return;
+        }
+        for (Subscriber subscriber : targets) {
+            subscriber.pending.put(delta.productId(), delta);
+            schedule(subscriber);
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.closed.get() && subscriber.sending.compareAndSet(false, true)) {
+            sender.execute(() -> drain(subscriber));
+        }
+    }
+
+    // Один отправитель на подписчика; после сброса флага перепроверяем очередь, чтобы не потерять дельту
+    private void drain(Subscriber subscriber) {
+        do {
+            try {
+                List<ProductDelta> batch = takePending(subscriber);
+                if (!batch.isEmpty()) {
+                    subscriber.emitter.send(SseEmitter.event().name("changes").data(batch, MediaType.APPLICATION_JSON));
+                    eventsSent.increment();
+                    subscriber.heartbeat = false;
+                } else if (subscriber.heartbeat) {
+                    subscriber.heartbeat = false;
+                    subscriber.emitter.send(SseEmitter.event().comment("ping"));
+                }
+            } catch (Exception e) {
+                // Клиент ушел или соединение сломано
+                log.debug("Dropping live subscriber", e);
+                dropped.increment();
+                subscriber.emitter.completeWithError(e);
+                unsubscribe(subscriber);
+                return;
+            }
+            subscriber.sending.set(false);
+        } while ((!subscriber.pending.isEmpty() || subscriber.heartbeat)
+                && !subscriber.closed.get()
+                && subscriber.sending.compareAndSet(false, true));
+    }
+
+    private static List<ProductDelta> takePending(Subscriber subscriber) {
+        List<ProductDelta> batch = new ArrayList<>();
+        for (Long productId : subscriber.pending.keySet()) {
+            ProductDelta delta = subscriber.pending.remove(productId);
+            if (delta != null) {
+                batch.add(delta);
+            }
+        }
+        return batch;
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscribers.decrementAndGet();
+        active.remove(subscriber);
+        wholeCatalog.remove(subscriber);
+        subscriber.productIds.forEach(id -> removeFrom(byProduct, id, subscriber));
+        subscriber.categoryIds.forEach(id -> removeFrom(byCategory, id, subscriber));
+        subscriber.pending.clear();
+    }
+
+    // compute — атомарно относительно removeFrom: подписчик не попадет в уже удаленное множество
+    private static void addTo(Map<Long, Set<Subscriber>> index, Long id, Subscriber subscriber) {
+        index.compute(id, (key, set) -> {
+            Set<Subscriber> target = set != null ? set : ConcurrentHashMap.<Subscriber>newKeySet();
+            target.add(subscriber);
+            return target;
+        });
+    }
+
+    private static void removeFrom(Map<Long, Set<Subscriber>> index, Long id, Subscriber subscriber) {
+        index.computeIfPresent(id, (key, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
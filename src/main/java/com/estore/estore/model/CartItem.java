@@ -5,7 +5,9 @@ import jakarta.persistence.*;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "cart_items")
+@Table(name = "cart_items",
+        uniqueConstraints = @UniqueConstraint(name = "uk_cart_items_user_product", columnNames = {"user_id", "product_id"}),
+        indexes = @Index(name = "idx_cart_items_product_id", columnList = "product_id"))
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler", "user"})
 public class CartItem {
 
@@ -12,7 +12,14 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products",
+        uniqueConstraints = @UniqueConstraint(name = "uk_products_model", columnNames = "model"),
+        indexes = {
+                // Индексы под keyset-пагинацию (ключ сортировки + id)
+                @Index(name = "idx_products_created_at_id", columnList = "created_at, id"),
+                @Index(name = "idx_products_price_id", columnList = "price, id"),
+                @Index(name = "idx_products_category_created_at_id", columnList = "category_id, created_at, id")
+        })
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Product {
     @Id
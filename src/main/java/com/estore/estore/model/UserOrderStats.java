@@ -0,0 +1,37 @@
+package com.estore.estore.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Агрегат заказов пользователя (неотмененные заказы). Пишется только нативными upsert-ами репозитория
+@Entity
+@Table(name = "user_order_stats")
+public class UserOrderStats {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "order_count", nullable = false)
+    private int orderCount;
+
+    @Column(name = "total_spent", nullable = false)
+    private BigDecimal totalSpent = BigDecimal.ZERO;
+
+    @Column(name = "last_order_at")
+    private LocalDateTime lastOrderAt;
+
+    // Конструкторы
+    public UserOrderStats() {}
+
+    // Геттеры
+    public Long getUserId() { return userId; }
+
+    public int getOrderCount() { return orderCount; }
+
+    public BigDecimal getTotalSpent() { return totalSpent; }
+
+    public LocalDateTime getLastOrderAt() { return lastOrderAt; }
+}
@@ -0,0 +1,76 @@
+package com.estore.estore.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Локальная замена брокера: события дописываются в NDJSON-файл (строка на событие).
+ * Пачка сбрасывается на диск (force) до того, как релей отметит ее доставленной.
+ */
+@Component
+@ConditionalOnProperty(name = "app.outbox.file.enabled", havingValue = "true", matchIfMissing = true)
+public class FileOutboxSink implements OutboxSink {
+
+    @Value("${app.outbox.file.path:outbox/events.ndjson}")
+    private Path path;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private FileChannel channel;
+
+    @PostConstruct
+    void open() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> events) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (OutboxEvent event : events) {
+            ObjectNode node = objectMapper.createObjectNode();
+            node.put("id", event.id());
+            node.put("aggregateType", event.aggregateType());
+            node.put("aggregateId", event.aggregateId());
+            node.put("eventType", event.eventType());
+            node.put("createdAt", event.createdAt().toString());
+            node.set("payload", objectMapper.readTree(event.payload()));
+            lines.append(objectMapper.writeValueAsString(node)).append('\n');
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+}
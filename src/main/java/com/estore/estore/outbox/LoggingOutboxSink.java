@@ -0,0 +1,29 @@
+package com.estore.estore.outbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Отладочный получатель: события в лог (app.outbox.log.enabled=true)
+@Component
+@ConditionalOnProperty(name = "app.outbox.log.enabled", havingValue = "true")
+public class LoggingOutboxSink implements OutboxSink {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingOutboxSink.class);
+
+    @Override
+    public String name() {
+        return "log";
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            log.info("Outbox event {} {} {}#{}: {}", event.id(), event.eventType(),
+                    event.aggregateType(), event.aggregateId(), event.payload());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.estore.estore.outbox;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие из outbox_events. payload — JSON, формат зависит от eventType.
+ * id растет монотонно и служит ключом дедупликации у получателей.
+ */
+public record OutboxEvent(Long id,
+                          String aggregateType,
+                          Long aggregateId,
+                          String eventType,
+                          String payload,
+                          LocalDateTime createdAt) {
+}
@@ -0,0 +1,149 @@
+package com.estore.estore.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Релей outbox: пачками по порядку id передает недоставленные события всем OutboxSink
+ * и отмечает их доставленными в той же транзакции. Падение между доставкой и коммитом
+ * приводит к повтору пачки — доставка at-least-once. Транзакция держит advisory-блокировку,
+ * поэтому при нескольких экземплярах порядок не нарушается.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    @Value("${app.outbox.batch-size:200}")
+    private int batchSize;
+
+    // Пачек за один запуск: догоняем отставание, не занимая планировщик надолго
+    @Value("${app.outbox.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.outbox.retention-hours:72}")
+    private long retentionHours;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private List<OutboxSink> sinks;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    private Timer batchTimer;
+    private Timer deliveryLag;
+    private Counter published;
+    private Counter failures;
+
+    @PostConstruct
+    void registerMetrics() {
+        batchTimer = Timer.builder("outbox.relay.batch")
+                .description("Time to deliver one outbox batch to all sinks")
+                .register(meterRegistry);
+        deliveryLag = Timer.builder("outbox.delivery.lag")
+                .description("Time from commit of a change to delivery of its event")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        published = Counter.builder("outbox.events.published").register(meterRegistry);
+        failures = Counter.builder("outbox.relay.failures").register(meterRegistry);
+        Gauge.builder("outbox.events.pending", pending, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("outbox.lag.seconds", lagMillis, lag -> lag.get() / 1000.0).register(meterRegistry);
+        log.info("Outbox relay sinks: {}", sinks.stream().map(OutboxSink::name).toList());
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.relay-interval-ms:500}")
+    public void relay() {
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                int delivered = batchTimer.record(this::relayBatch);
+                if (delivered < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Outbox relay failed, batch will be retried", e);
+        } finally {
+            refreshBacklog();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.cleanup-interval-ms:3600000}")
+    public void deletePublished() {
+        try {
+            int deleted = outboxRepository.deletePublishedBefore(LocalDateTime.now().minusHours(retentionHours));
+            if (deleted > 0) {
+                log.info("Deleted {} published outbox events", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to delete published outbox events", e);
+        }
+    }
+
+    private int relayBatch() {
+        Integer delivered = transactionTemplate.execute(status -> {
+            if (!outboxRepository.tryLockRelay()) {
+                return 0;
+            }
+            List<OutboxEvent> events = outboxRepository.findPending(batchSize);
+            if (events.isEmpty() || sinks.isEmpty()) {
+                return 0;
+            }
+
+            for (OutboxSink sink : sinks) {
+                try {
+                    sink.publish(events);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Outbox sink '" + sink.name() + "' failed", e);
+                }
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            outboxRepository.markPublished(events.stream().map(OutboxEvent::id).toArray(Long[]::new), now);
+            for (OutboxEvent event : events) {
+                deliveryLag.record(Duration.between(event.createdAt(), now).toMillis(), TimeUnit.MILLISECONDS);
+            }
+            return events.size();
+        });
+        int count = delivered != null ? delivered : 0;
+        published.increment(count);
+        return count;
+    }
+
+    private void refreshBacklog() {
+        try {
+            OutboxRepository.Backlog backlog = outboxRepository.backlog();
+            pending.set(backlog.pending());
+            lagMillis.set(backlog.oldestCreatedAt() != null
+                    ? Math.max(0, Duration.between(backlog.oldestCreatedAt(), LocalDateTime.now()).toMillis())
+                    : 0);
+        } catch (RuntimeException e) {
+            log.debug("Failed to read outbox backlog", e);
+        }
+    }
+}
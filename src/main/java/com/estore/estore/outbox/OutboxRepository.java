@@ -0,0 +1,98 @@
+package com.estore.estore.outbox;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQL таблицы outbox_events. append вызывается в транзакции изменения,
+ * остальное — релеем.
+ */
+@Repository
+public class OutboxRepository {
+
+    // Ключ advisory-блокировки релея: одновременно outbox разбирает один экземпляр
+    private static final long RELAY_LOCK_KEY = 0x6f7574626f78L;
+
+    // Таблица строк агрегата; имена из этой карты, а не из параметров — в SQL не попадает внешний ввод
+    private static final Map<String, String> AGGREGATE_TABLES = Map.of(
+            OutboxService.ORDER, "orders",
+            OutboxService.PRODUCT, "products");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Блокировка строки агрегата до конца транзакции. Параллельная транзакция того же агрегата
+     * ждет здесь (или на своем UPDATE) и получит id события только после нашего коммита.
+     * Удаленную в этой транзакции строку уже держит DELETE — запрос просто ничего не найдет.
+     */
+    public void lockAggregate(String aggregateType, Long aggregateId) {
+        String table = AGGREGATE_TABLES.get(aggregateType);
+        if (table == null) {
+            throw new IllegalArgumentException("Unknown aggregate type: " + aggregateType);
+        }
+        jdbcTemplate.query("SELECT id FROM " + table + " WHERE id = ? FOR UPDATE", rs -> {}, aggregateId);
+    }
+
+    public void append(String aggregateType, Long aggregateId, String eventType, String payload, LocalDateTime now) {
+        jdbcTemplate.update(
+                "INSERT INTO outbox_events (aggregate_type, aggregate_id, event_type, payload, created_at) " +
+                "VALUES (?, ?, ?, ?, ?)",
+                aggregateType, aggregateId, eventType, payload, Timestamp.valueOf(now));
+    }
+
+    // Блокировка до конца текущей транзакции; false — релей уже работает на другом экземпляре
+    public boolean tryLockRelay() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(?)", Boolean.class, RELAY_LOCK_KEY));
+    }
+
+    public List<OutboxEvent> findPending(int limit) {
+        return jdbcTemplate.query(
+                "SELECT id, aggregate_type, aggregate_id, event_type, payload, created_at " +
+                "FROM outbox_events WHERE published_at IS NULL ORDER BY id LIMIT ?",
+                (rs, rowNum) -> new OutboxEvent(
+                        rs.getLong("id"),
+                        rs.getString("aggregate_type"),
+                        rs.getLong("aggregate_id"),
+                        rs.getString("event_type"),
+                        rs.getString("payload"),
+                        rs.getTimestamp("created_at").toLocalDateTime()),
+                limit);
+    }
+
+    public void markPublished(Long[] ids, LocalDateTime now) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE outbox_events SET published_at = ? WHERE id = ANY(?)");
+            statement.setTimestamp(1, Timestamp.valueOf(now));
+            statement.setArray(2, connection.createArrayOf("bigint", ids));
+            return statement;
+        });
+    }
+
+    // Число недоставленных событий и время самого старого из них (null — очередь пуста)
+    public record Backlog(long pending, LocalDateTime oldestCreatedAt) {}
+
+    public Backlog backlog() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) AS pending, MIN(created_at) AS oldest FROM outbox_events WHERE published_at IS NULL",
+                (rs, rowNum) -> {
+                    Timestamp oldest = rs.getTimestamp("oldest");
+                    return new Backlog(rs.getLong("pending"), oldest != null ? oldest.toLocalDateTime() : null);
+                });
+    }
+
+    public int deletePublishedBefore(LocalDateTime before) {
+        return jdbcTemplate.update(
+                "DELETE FROM outbox_events WHERE published_at IS NOT NULL AND published_at < ?",
+                Timestamp.valueOf(before));
+    }
+}
@@ -0,0 +1,123 @@
+package com.estore.estore.outbox;
+
+import com.estore.estore.model.Order;
+import com.estore.estore.model.OrderItem;
+import com.estore.estore.model.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запись доменных событий в outbox. Только внутри транзакции изменения (MANDATORY):
+ * событие появляется тогда и только тогда, когда закоммичено само изменение.
+ * Перед вставкой изменения сбрасываются в БД, а строка агрегата блокируется:
+ * id события (BIGSERIAL) выдается уже под блокировкой, поэтому события одного
+ * агрегата получают id в порядке коммита и релей публикует их по порядку.
+ */
+@Service
+@Transactional(propagation = Propagation.MANDATORY)
+public class OutboxService {
+
+    public static final String ORDER = "Order";
+    public static final String PRODUCT = "Product";
+
+    public static final String ORDER_CREATED = "OrderCreated";
+    public static final String ORDER_STATUS_CHANGED = "OrderStatusChanged";
+    public static final String PRODUCT_CREATED = "ProductCreated";
+    public static final String PRODUCT_UPDATED = "ProductUpdated";
+    public static final String PRODUCT_DELETED = "ProductDeleted";
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // ============ ЗАКАЗЫ ============
+
+    public void orderCreated(Order order) {
+        Map<String, Object> payload = orderPayload(order);
+        List<Map<String, Object>> items = order.getOrderItems().stream()
+                .map(OutboxService::itemPayload)
+                .toList();
+        payload.put("items", items);
+        append(ORDER, order.getId(), ORDER_CREATED, payload);
+    }
+
+    public void ordersCreated(List<Order> orders) {
+        orders.forEach(this::orderCreated);
+    }
+
+    public void orderStatusChanged(Order order, Order.OrderStatus previous) {
+        if (order.getStatus() == previous) {
+            return;
+        }
+        Map<String, Object> payload = orderPayload(order);
+        payload.put("previousStatus", previous.name());
+        append(ORDER, order.getId(), ORDER_STATUS_CHANGED, payload);
+    }
+
+    // ============ КАТАЛОГ ============
+
+    public void productSaved(Product product, boolean created) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("productId", product.getId());
+        payload.put("name", product.getName());
+        payload.put("model", product.getModel());
+        payload.put("price", product.getPrice());
+        payload.put("stockQuantity", product.getStockQuantity());
+        payload.put("categoryId", product.getCategory() != null ? product.getCategory().getId() : null);
+        append(PRODUCT, product.getId(), created ? PRODUCT_CREATED : PRODUCT_UPDATED, payload);
+    }
+
+    public void productDeleted(Long productId) {
+        append(PRODUCT, productId, PRODUCT_DELETED, Map.of("productId", productId));
+    }
+
+    // ============ ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ============
+
+    private void append(String aggregateType, Long aggregateId, String eventType, Object payload) {
+        // UPDATE/DELETE агрегата уходят в БД раньше INSERT события
+        entityManager.flush();
+        outboxRepository.lockAggregate(aggregateType, aggregateId);
+        try {
+            outboxRepository.append(aggregateType, aggregateId, eventType,
+                    objectMapper.writeValueAsString(payload), LocalDateTime.now());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // user — ссылка без SELECT: getId() прокси не инициализирует
+    private static Map<String, Object> orderPayload(Order order) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("userId", order.getUser() != null ? order.getUser().getId() : null);
+        payload.put("status", order.getStatus().name());
+        payload.put("totalAmount", order.getTotalAmount());
+        payload.put("createdAt", order.getCreatedAt());
+        return payload;
+    }
+
+    private static Map<String, Object> itemPayload(OrderItem item) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("productId", item.getProduct().getId());
+        payload.put("quantity", item.getQuantity());
+        payload.put("price", item.getPrice());
+        return payload;
+    }
+}
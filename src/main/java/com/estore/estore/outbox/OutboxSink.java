@@ -0,0 +1,15 @@
+package com.estore.estore.outbox;
+
+import java.util.List;
+
+/**
+ * Получатель событий outbox. Пачка передается по порядку id;
+ * исключение — пачка не доставлена, релей повторит ее целиком
+ * (во все получатели), поэтому получатели должны терпеть повторы.
+ */
+public interface OutboxSink {
+
+    String name();
+
+    void publish(List<OutboxEvent> events) throws Exception;
+}
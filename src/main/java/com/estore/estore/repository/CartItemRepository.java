@@ -3,8 +3,12 @@ package com.estore.estore.repository;
 import com.estore.estore.model.CartItem;
 import com.estore.estore.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,11 +19,69 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
 
     List<CartItem> findByUserId(Long userId);
 
+    // Корзина вместе с товарами и их категориями одним запросом (без N+1)
+    @Query("SELECT ci FROM CartItem ci " +
+            "JOIN FETCH ci.product p " +
+            "LEFT JOIN FETCH p.category " +
+            "WHERE ci.user.id = :userId " +
+            "ORDER BY ci.addedAt, ci.id")
+    List<CartItem> findWithProductByUserId(@Param("userId") Long userId);
+
     Optional<CartItem> findByUserIdAndProductId(Long userId, Long productId);
 
+    @Query("SELECT ci FROM CartItem ci JOIN FETCH ci.product " +
+            "WHERE ci.user.id = :userId AND ci.product.id = :productId")
+    Optional<CartItem> findWithProductByUserIdAndProductId(@Param("userId") Long userId,
+                                                           @Param("productId") Long productId);
+
     void deleteByUserIdAndProductId(Long userId, Long productId);
 
     void deleteByUserId(Long userId);
 
     boolean existsByUserIdAndProductId(Long userId, Long productId);
+
+    @Modifying
+    @Query("UPDATE CartItem ci SET ci.quantity = :quantity " +
+            "WHERE ci.user.id = :userId AND ci.product.id = :productId")
+    int updateQuantity(@Param("userId") Long userId,
+                       @Param("productId") Long productId,
+                       @Param("quantity") Integer quantity);
+
+    // ============ ОТЛОЖЕННАЯ ЗАПИСЬ КОРЗИН ИЗ ПАМЯТИ ============
+
+    interface LineView {
+        Long getProductId();
+        Integer getQuantity();
+        LocalDateTime getAddedAt();
+    }
+
+    @Query("SELECT ci.product.id AS productId, ci.quantity AS quantity, ci.addedAt AS addedAt " +
+            "FROM CartItem ci WHERE ci.user.id = :userId ORDER BY ci.addedAt, ci.id")
+    List<LineView> findLinesByUserId(@Param("userId") Long userId);
+
+    // Удалить строки пользователей userIds, которых нет среди пар (lineUserIds[i], productIds[i])
+    @Modifying
+    @Query(value = "DELETE FROM cart_items c " +
+            "WHERE c.user_id = ANY(CAST(:userIds AS bigint[])) " +
+            "AND NOT EXISTS (SELECT 1 FROM unnest(CAST(:lineUserIds AS bigint[]), CAST(:productIds AS bigint[])) " +
+            "AS v(user_id, product_id) WHERE v.user_id = c.user_id AND v.product_id = c.product_id)",
+            nativeQuery = true)
+    int deleteLinesNotIn(@Param("userIds") Long[] userIds,
+                         @Param("lineUserIds") Long[] lineUserIds,
+                         @Param("productIds") Long[] productIds);
+
+    // Вставить или обновить строки одним запросом; товары и пользователи, удаленные за это время, пропускаются
+    @Modifying
+    @Query(value = "INSERT INTO cart_items (user_id, product_id, quantity, added_at) " +
+            "SELECT v.user_id, v.product_id, v.quantity, v.added_at " +
+            "FROM unnest(CAST(:userIds AS bigint[]), CAST(:productIds AS bigint[]), " +
+            "CAST(:quantities AS integer[]), CAST(:addedAt AS timestamp[])) AS v(user_id, product_id, quantity, added_at) " +
+            "JOIN products p ON p.id = v.product_id " +
+            "JOIN users u ON u.id = v.user_id " +
+            "ON CONFLICT (user_id, product_id) DO UPDATE SET quantity = EXCLUDED.quantity",
+            nativeQuery = true)
+    int upsertLines(@Param("userIds") Long[] userIds,
+                    @Param("productIds") Long[] productIds,
+                    @Param("quantities") Integer[] quantities,
+                    @Param("addedAt") LocalDateTime[] addedAt);
 }
\ No newline at end of file
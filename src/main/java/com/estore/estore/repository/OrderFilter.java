@@ -0,0 +1,17 @@
+package com.estore.estore.repository;
+
+import com.estore.estore.model.Order;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Фильтры списка заказов для админа. null — фильтр не задан.
+ * Интервал по created_at полуоткрытый: [from, to).
+ */
+public record OrderFilter(Order.OrderStatus status,
+                          Long userId,
+                          LocalDateTime from,
+                          LocalDateTime to,
+                          BigDecimal minAmount) {
+}
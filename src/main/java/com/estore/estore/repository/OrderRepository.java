@@ -3,15 +3,35 @@ package com.estore.estore.repository;
 
 import com.estore.estore.model.Order;
 import com.estore.estore.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
     List<Order> findByUserOrderByCreatedAtDesc(User user);
     List<Order> findByUserId(Long userId);
     List<Order> findAllByOrderByCreatedAtDesc();
     List<Order> findByStatus(Order.OrderStatus status);
+
+    // Заказы вместе с пользователем, позициями и товарами — для OrderResponse.fromOrder без N+1
+    @EntityGraph(attributePaths = {"user", "orderItems", "orderItems.product", "orderItems.product.category"})
+    List<Order> findWithItemsByUserIdOrderByCreatedAtDesc(Long userId);
+
+    @EntityGraph(attributePaths = {"user", "orderItems", "orderItems.product", "orderItems.product.category"})
+    List<Order> findAllWithItemsByOrderByCreatedAtDesc();
+
+    @EntityGraph(attributePaths = {"user", "orderItems", "orderItems.product", "orderItems.product.category"})
+    Optional<Order> findWithItemsById(Long id);
+
+    // Блокировка строки заказа до конца транзакции: смены статуса одного заказа идут по очереди,
+    // и статус, прочитанный после нее, уже не изменится. Отдельным запросом — FOR UPDATE
+    // не применим к outer join графа позиций
+    @Query(value = "SELECT id FROM orders WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
 }
\ No newline at end of file
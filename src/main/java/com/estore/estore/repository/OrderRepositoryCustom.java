@@ -0,0 +1,18 @@
+package com.estore.estore.repository;
+
+import com.estore.estore.dto.response.OrderSummaryResponse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Запросы, которые нельзя выразить derived-методами: условия WHERE собираются из заданных фильтров
+public interface OrderRepositoryCustom {
+
+    /**
+     * Страница заказов от новых к старым, начиная после позиции (afterCreatedAt, afterId).
+     * Для первой страницы позиция null.
+     */
+    List<OrderSummaryResponse> findSummaries(OrderFilter filter, LocalDateTime afterCreatedAt, Long afterId, int limit);
+
+    long countSummaries(OrderFilter filter);
+}
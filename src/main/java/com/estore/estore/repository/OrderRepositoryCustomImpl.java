@@ -0,0 +1,79 @@
+package com.estore.estore.repository;
+
+import com.estore.estore.dto.response.OrderSummaryResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset-пагинация списка заказов. В запрос попадают только заданные фильтры,
+ * поэтому планировщик выбирает индекс под конкретную комбинацию:
+ * (status, created_at, id), (user_id, created_at, id) или (created_at, id).
+ * Количество позиций считается подзапросом по idx_order_items_order_id — сами позиции не загружаются.
+ */
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderSummaryResponse> findSummaries(OrderFilter filter, LocalDateTime afterCreatedAt,
+                                                    Long afterId, int limit) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.estore.estore.dto.response.OrderSummaryResponse(" +
+                "o.id, u.id, u.username, o.totalAmount, o.status, o.createdAt, " +
+                "(SELECT COUNT(i) FROM OrderItem i WHERE i.order = o)) " +
+                "FROM Order o LEFT JOIN o.user u WHERE 1 = 1");
+        appendFilter(jpql, params, filter);
+        if (afterId != null) {
+            jpql.append(" AND (o.createdAt, o.id) < (:afterCreatedAt, :afterId)");
+            params.put("afterCreatedAt", afterCreatedAt);
+            params.put("afterId", afterId);
+        }
+        jpql.append(" ORDER BY o.createdAt DESC, o.id DESC");
+
+        TypedQuery<OrderSummaryResponse> query = entityManager.createQuery(jpql.toString(), OrderSummaryResponse.class);
+        params.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public long countSummaries(OrderFilter filter) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        StringBuilder jpql = new StringBuilder("SELECT COUNT(o) FROM Order o WHERE 1 = 1");
+        appendFilter(jpql, params, filter);
+
+        TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class);
+        params.forEach(query::setParameter);
+        return query.getSingleResult();
+    }
+
+    private static void appendFilter(StringBuilder jpql, Map<String, Object> params, OrderFilter filter) {
+        if (filter.status() != null) {
+            jpql.append(" AND o.status = :status");
+            params.put("status", filter.status());
+        }
+        if (filter.userId() != null) {
+            jpql.append(" AND o.user.id = :userId");
+            params.put("userId", filter.userId());
+        }
+        if (filter.from() != null) {
+            jpql.append(" AND o.createdAt >= :from");
+            params.put("from", filter.from());
+        }
+        if (filter.to() != null) {
+            jpql.append(" AND o.createdAt < :to");
+            params.put("to", filter.to());
+        }
+        if (filter.minAmount() != null) {
+            jpql.append(" AND o.totalAmount >= :minAmount");
+            params.put("minAmount", filter.minAmount());
+        }
+    }
+}
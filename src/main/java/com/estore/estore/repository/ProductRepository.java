@@ -1,13 +1,20 @@
 package com.estore.estore.repository;
 
 import com.estore.estore.model.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +26,13 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     // НОВЫЙ: Пагинация по категории
     Page<Product> findByCategoryId(Long categoryId, Pageable pageable);
 
+    // Keyset-пагинация (без OFFSET и COUNT)
+    Window<Product> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+
+    Window<Product> findByCategoryId(Long categoryId, ScrollPosition position, Sort sort, Limit limit);
+
+    long countByCategoryId(Long categoryId);
+
     Optional<Product> findByModel(String model);
 
     List<Product> findByStockQuantityGreaterThan(Integer quantity);
@@ -39,4 +53,44 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findAllByOrderByCreatedAtDesc();
 
     boolean existsByModel(String model);
+
+    // Остатки без загрузки сущностей (читаются из БД, а не из контекста персистентности)
+    interface StockView {
+        Long getId();
+        String getName();
+        Integer getStockQuantity();
+    }
+
+    List<StockView> findStockByIdIn(Collection<Long> ids);
+
+    /**
+     * Блокировка строк товаров в порядке id до конца транзакции. UPDATE ... FROM unnest
+     * порядок блокировок не гарантирует, поэтому многотоварные списания и возвраты сначала
+     * вызывают этот метод: транзакции с пересекающимися наборами товаров ждут друг друга,
+     * а не блокируются взаимно.
+     */
+    @Query(value = "SELECT p.id FROM products p WHERE p.id = ANY(CAST(:ids AS bigint[])) ORDER BY p.id FOR UPDATE",
+            nativeQuery = true)
+    List<Long> lockInIdOrder(@Param("ids") Long[] ids);
+
+    /**
+     * Атомарное условное списание остатков по всем позициям одним UPDATE.
+     * Строка меняется, только если stock_quantity >= qty; возвращаются id
+     * списанных товаров. Если вернулись не все id — заказ нужно откатить.
+     */
+    @Transactional
+    @Query(value = "WITH reserved AS (" +
+            "UPDATE products p SET stock_quantity = p.stock_quantity - v.qty " +
+            "FROM unnest(CAST(:ids AS bigint[]), CAST(:quantities AS integer[])) AS v(id, qty) " +
+            "WHERE p.id = v.id AND p.stock_quantity >= v.qty " +
+            "RETURNING p.id) " +
+            "SELECT id FROM reserved", nativeQuery = true)
+    List<Long> decrementStock(@Param("ids") Long[] ids, @Param("quantities") Integer[] quantities);
+
+    // Возврат остатков одним UPDATE (отмена заказа)
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE products p SET stock_quantity = p.stock_quantity + v.qty " +
+            "FROM unnest(CAST(:ids AS bigint[]), CAST(:quantities AS integer[])) AS v(id, qty) " +
+            "WHERE p.id = v.id", nativeQuery = true)
+    int incrementStock(@Param("ids") Long[] ids, @Param("quantities") Integer[] quantities);
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.estore.estore.repository;
+
+import com.estore.estore.model.UserOrderStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Repository
+public interface UserOrderStatsRepository extends JpaRepository<UserOrderStats, Long> {
+
+    /**
+     * Пересчет и инкрементальные дельты исключают друг друга advisory-блокировками
+     * (namespace, блок user_id): дельта берет разделяемую, пересчет — исключительную.
+     * Блокировка строк тут не годится: строки агрегата нового пользователя еще нет,
+     * и его первый upsert проходит мимо FOR UPDATE пересчета.
+     */
+    int LOCK_NAMESPACE = 0x756f73;
+    int LOCK_BLOCK_SIZE = 1024;
+
+    // Разделяемые блокировки блоков пользователей до конца транзакции, в порядке блоков
+    @Query(value = "SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock_shared(" + LOCK_NAMESPACE + ", CAST(b.block AS integer)) " +
+            "FROM (SELECT DISTINCT u.user_id / " + LOCK_BLOCK_SIZE + " AS block " +
+            "FROM unnest(CAST(:userIds AS bigint[])) AS u(user_id) ORDER BY block) b) l",
+            nativeQuery = true)
+    long lockUsersShared(@Param("userIds") Long[] userIds);
+
+    // Прибавить дельты к агрегатам одним запросом; userIds должны быть уникальны
+    @Modifying
+    @Query(value = "INSERT INTO user_order_stats (user_id, order_count, total_spent, last_order_at) " +
+            "SELECT v.user_id, v.order_count, v.total_spent, v.last_order_at " +
+            "FROM unnest(CAST(:userIds AS bigint[]), CAST(:counts AS integer[]), " +
+            "CAST(:amounts AS numeric[]), CAST(:lastOrderAt AS timestamp[])) AS v(user_id, order_count, total_spent, last_order_at) " +
+            "ON CONFLICT (user_id) DO UPDATE SET " +
+            "order_count = user_order_stats.order_count + EXCLUDED.order_count, " +
+            "total_spent = user_order_stats.total_spent + EXCLUDED.total_spent, " +
+            "last_order_at = GREATEST(user_order_stats.last_order_at, EXCLUDED.last_order_at)",
+            nativeQuery = true)
+    int applyDeltas(@Param("userIds") Long[] userIds,
+                    @Param("counts") Integer[] counts,
+                    @Param("amounts") BigDecimal[] amounts,
+                    @Param("lastOrderAt") LocalDateTime[] lastOrderAt);
+
+    // ============ ПЕРЕСЧЕТ (BACKFILL) ============
+
+    @Query(value = "SELECT COALESCE(MAX(id), 0) FROM users", nativeQuery = true)
+    long findMaxUserId();
+
+    // Исключительные блокировки блоков диапазона: дельты его пользователей, в том числе
+    // новых, ждут коммита пересчета, а пересчет — коммита уже начатых дельт
+    @Query(value = "SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock(" + LOCK_NAMESPACE + ", CAST(b AS integer)) " +
+            "FROM generate_series(CAST(:fromId AS bigint) / " + LOCK_BLOCK_SIZE + ", " +
+            "CAST(:toId AS bigint) / " + LOCK_BLOCK_SIZE + ") AS b) l",
+            nativeQuery = true)
+    long lockRange(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Modifying
+    @Query(value = "INSERT INTO user_order_stats (user_id, order_count, total_spent, last_order_at) " +
+            "SELECT o.user_id, " +
+            "COUNT(*) FILTER (WHERE o.status <> 'CANCELLED'), " +
+            "COALESCE(SUM(o.total_amount) FILTER (WHERE o.status <> 'CANCELLED'), 0), " +
+            "MAX(o.created_at) " +
+            "FROM orders o WHERE o.user_id BETWEEN :fromId AND :toId " +
+            "GROUP BY o.user_id " +
+            "ON CONFLICT (user_id) DO UPDATE SET " +
+            "order_count = EXCLUDED.order_count, " +
+            "total_spent = EXCLUDED.total_spent, " +
+            "last_order_at = EXCLUDED.last_order_at",
+            nativeQuery = true)
+    int rebuildRange(@Param("fromId") long fromId, @Param("toId") long toId);
+
+    @Modifying
+    @Query(value = "DELETE FROM user_order_stats s WHERE s.user_id BETWEEN :fromId AND :toId " +
+            "AND NOT EXISTS (SELECT 1 FROM orders o WHERE o.user_id = s.user_id)",
+            nativeQuery = true)
+    int deleteOrphansInRange(@Param("fromId") long fromId, @Param("toId") long toId);
+}
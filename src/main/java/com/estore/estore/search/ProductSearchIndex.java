@@ -0,0 +1,239 @@
+package com.estore.estore.search;
+
+import com.estore.estore.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс товаров в памяти с ранжированием BM25.
+ * Заменяет LIKE '%query%' по name/model/description.
+ * Строится при старте приложения и обновляется из ProductService.
+ */
+@Component
+public class ProductSearchIndex {
+
+    // Параметры BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Веса полей: совпадение в названии важнее, чем в описании
+    private static final int NAME_WEIGHT = 3;
+    private static final int MODEL_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // термин -> (id товара -> взвешенная частота термина)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    // id товара -> термины документа (нужны для удаления и обновления)
+    private final Map<Long, Map<String, Integer>> documents = new HashMap<>();
+
+    private final Map<Long, Integer> documentLengths = new HashMap<>();
+    private long totalLength;
+
+    // Полная перестройка индекса
+    public void rebuild(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            documentLengths.clear();
+            totalLength = 0;
+            for (Product product : products) {
+                addDocument(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Добавить или переиндексировать товар
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            addDocument(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Поиск товаров. Документ должен содержать все слова запроса,
+     * последнее слово сопоставляется как префикс ("iph" находит "iphone").
+     * Возвращает id товаров, отсортированные по убыванию релевантности.
+     */
+    public List<Long> search(String query) {
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (queryTerms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documentCount = documents.size();
+            if (documentCount == 0) {
+                return Collections.emptyList();
+            }
+            double avgLength = (double) totalLength / documentCount;
+
+            Map<Long, Double> scores = new HashMap<>();
+            Map<Long, Integer> matchedTerms = new HashMap<>();
+
+            for (int i = 0; i < queryTerms.size(); i++) {
+                String term = queryTerms.get(i);
+                boolean prefix = i == queryTerms.size() - 1;
+
+                Map<String, Map<Long, Integer>> candidates = prefix
+                        ? postings.subMap(term, true, term + Character.MAX_VALUE, true)
+                        : exactTerm(term);
+
+                // Для каждого документа берем лучший из подходящих терминов
+                Map<Long, Double> termScores = new HashMap<>();
+                for (Map<Long, Integer> postingList : candidates.values()) {
+                    double idf = idf(documentCount, postingList.size());
+                    for (Map.Entry<Long, Integer> posting : postingList.entrySet()) {
+                        Long productId = posting.getKey();
+                        double score = idf * termFrequencyScore(posting.getValue(),
+                                documentLengths.get(productId), avgLength);
+                        termScores.merge(productId, score, Math::max);
+                    }
+                }
+
+                termScores.forEach((productId, score) -> {
+                    scores.merge(productId, score, Double::sum);
+                    matchedTerms.merge(productId, 1, Integer::sum);
+                });
+            }
+
+            int required = queryTerms.size();
+            List<Map.Entry<Long, Double>> hits = new ArrayList<>();
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                if (matchedTerms.get(entry.getKey()) == required) {
+                    hits.add(entry);
+                }
+            }
+
+            // При равной релевантности — сначала более новые товары
+            hits.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.<Long, Double>comparingByKey().reversed()));
+
+            List<Long> result = new ArrayList<>(hits.size());
+            for (Map.Entry<Long, Double> hit : hits) {
+                result.add(hit.getKey());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Разбивка текста на термины: буквы/цифры, нижний регистр
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // ============ ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ (вызываются под write lock) ============
+
+    private void addDocument(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+
+        Map<String, Integer> terms = new HashMap<>();
+        addField(terms, product.getName(), NAME_WEIGHT);
+        addField(terms, product.getModel(), MODEL_WEIGHT);
+        addField(terms, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : terms.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>())
+                    .put(product.getId(), entry.getValue());
+            length += entry.getValue();
+        }
+
+        documents.put(product.getId(), terms);
+        documentLengths.put(product.getId(), length);
+        totalLength += length;
+    }
+
+    private void removeDocument(Long productId) {
+        Map<String, Integer> terms = documents.remove(productId);
+        if (terms == null) {
+            return;
+        }
+
+        for (String term : terms.keySet()) {
+            Map<Long, Integer> postingList = postings.get(term);
+            if (postingList != null) {
+                postingList.remove(productId);
+                if (postingList.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+
+        Integer length = documentLengths.remove(productId);
+        if (length != null) {
+            totalLength -= length;
+        }
+    }
+
+    private static void addField(Map<String, Integer> terms, String text, int weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private Map<String, Map<Long, Integer>> exactTerm(String term) {
+        Map<Long, Integer> postingList = postings.get(term);
+        return postingList == null
+                ? Collections.emptyMap()
+                : Collections.singletonMap(term, postingList);
+    }
+
+    private static double idf(int documentCount, int documentFrequency) {
+        return Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private static double termFrequencyScore(int termFrequency, int documentLength, double avgLength) {
+        return termFrequency * (K1 + 1)
+                / (termFrequency + K1 * (1 - B + B * documentLength / avgLength));
+    }
+}
@@ -0,0 +1,401 @@
+package com.estore.estore.search;
+
+import com.estore.estore.analytics.SalesRollupRepository;
+import com.estore.estore.dto.response.SuggestionResponse;
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Product;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Подсказки поиска (type-ahead) по названию и модели товара и названию категории.
+ * Ключи — хвосты фразы, начинающиеся с каждого слова ("apple iphone 15", "iphone 15", "15"),
+ * поэтому префикс совпадает с началом любого слова. Ключи отсортированы и лежат в одном
+ * char[] со смещениями; префиксу соответствует непрерывный диапазон, лучшие по популярности
+ * записи диапазона достаются деревом отрезков за O(k log n). Словарь неизменяем и публикуется
+ * заменой volatile-ссылки, запрос подсказок не берет блокировок и не ходит в БД.
+ * Изменения товаров и категорий только правят исходные данные; словарь перестраивается
+ * фоновым потоком, и серия изменений, пришедших за время сборки, дает одну перестройку.
+ * Популярность — продажи за app.suggest.popularity-window-days из роллапов.
+ */
+@Component
+public class ProductSuggestIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+    static final String PRODUCT = "PRODUCT";
+    static final String CATEGORY = "CATEGORY";
+
+    // Длинные названия обрезаются: для подсказки важно начало фразы
+    private static final int MAX_KEY_LENGTH = 64;
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Value("${app.suggest.popularity-window-days:30}")
+    private int popularityWindowDays;
+
+    // Исходные данные словаря, меняются под writeLock; revision растет с каждым изменением
+    private final Map<Long, Product> products = new HashMap<>();
+    private final Map<Long, Category> categories = new HashMap<>();
+    private Map<Long, Long> productUnits = Map.of();
+    private long revision;
+
+    // Не synchronized: как и в CatalogSnapshotHolder, запись не должна закреплять виртуальный поток
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // Сборки словаря идут по одной: более поздняя видит данные не старее предыдущей
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private long publishedRevision;
+
+    private final AtomicBoolean publishScheduled = new AtomicBoolean();
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("suggest-publish").factory());
+
+    private volatile Dictionary dictionary = Dictionary.build(List.of());
+
+    // Полная перестройка, словарь публикуется сразу
+    public void rebuild(Collection<Product> allProducts, Collection<Category> allCategories) {
+        writeLock.lock();
+        try {
+            products.clear();
+            allProducts.forEach(product -> products.put(product.getId(), product));
+            categories.clear();
+            allCategories.forEach(category -> categories.put(category.getId(), category));
+            revision++;
+        } finally {
+            writeLock.unlock();
+        }
+        publishPending();
+    }
+
+    public void index(Product product) {
+        writeLock.lock();
+        try {
+            products.put(product.getId(), product);
+            revision++;
+        } finally {
+            writeLock.unlock();
+        }
+        schedulePublish();
+    }
+
+    public void remove(Long productId) {
+        writeLock.lock();
+        try {
+            if (products.remove(productId) == null) {
+                return;
+            }
+            revision++;
+        } finally {
+            writeLock.unlock();
+        }
+        schedulePublish();
+    }
+
+    public void indexCategory(Category category) {
+        writeLock.lock();
+        try {
+            categories.put(category.getId(), category);
+            revision++;
+        } finally {
+            writeLock.unlock();
+        }
+        schedulePublish();
+    }
+
+    public void removeCategory(Long categoryId) {
+        writeLock.lock();
+        try {
+            if (categories.remove(categoryId) == null) {
+                return;
+            }
+            revision++;
+        } finally {
+            writeLock.unlock();
+        }
+        schedulePublish();
+    }
+
+    // Популярность обновляется фоном; сбой оставляет прежнее ранжирование
+    @Scheduled(fixedDelayString = "${app.suggest.popularity-refresh-ms:300000}")
+    public void refreshPopularity() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Long> units;
+        try {
+            units = salesRollupRepository.unitsByProduct(
+                    SalesRollupRepository.BucketRange.of(now.minusDays(popularityWindowDays), now));
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh suggestion popularity: {}", e.getMessage());
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            productUnits = Map.copyOf(units);
+            revision++;
+        } finally {
+            writeLock.unlock();
+        }
+        publishPending();
+    }
+
+    /**
+     * Собрать и опубликовать словарь, если исходные данные менялись после прошлой сборки.
+     * Сборка идет вне writeLock: изменения каталога не ждут ее, а попадут в следующую.
+     */
+    public void publishPending() {
+        // Флаг сбрасывается до сборки: изменения во время сборки запланируют новую
+        publishScheduled.set(false);
+        publishLock.lock();
+        try {
+            long target;
+            List<Entry> entries;
+            writeLock.lock();
+            try {
+                if (revision == publishedRevision) {
+                    return;
+                }
+                target = revision;
+                entries = entries();
+            } finally {
+                writeLock.unlock();
+            }
+            dictionary = Dictionary.build(entries);
+            publishedRevision = target;
+        } catch (RuntimeException e) {
+            log.warn("Failed to publish suggestion dictionary: {}", e.getMessage());
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        publisher.shutdownNow();
+    }
+
+    public int size() {
+        return dictionary.keyCount();
+    }
+
+    /**
+     * Подсказки по началу ввода. Регистр и знаки препинания не важны,
+     * последнее слово сопоставляется как префикс ("iphone 15 p" находит "iPhone 15 Pro").
+     */
+    public List<SuggestionResponse> suggest(String query, int limit) {
+        String prefix = String.join(" ", ProductSearchIndex.tokenize(query));
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        return dictionary.top(prefix.length() > MAX_KEY_LENGTH ? prefix.substring(0, MAX_KEY_LENGTH) : prefix, limit);
+    }
+
+    private void schedulePublish() {
+        if (publishScheduled.compareAndSet(false, true)) {
+            publisher.execute(this::publishPending);
+        }
+    }
+
+    // Под writeLock
+    private List<Entry> entries() {
+        Map<Long, Long> categoryUnits = new HashMap<>();
+        List<Entry> entries = new ArrayList<>(products.size() + categories.size());
+        for (Product product : products.values()) {
+            long units = productUnits.getOrDefault(product.getId(), 0L);
+            if (product.getCategory() != null) {
+                categoryUnits.merge(product.getCategory().getId(), units, Long::sum);
+            }
+            entries.add(new Entry(PRODUCT, product.getId(), product.getName(), product.getModel(), units));
+        }
+        for (Category category : categories.values()) {
+            entries.add(new Entry(CATEGORY, category.getId(), category.getName(), null,
+                    categoryUnits.getOrDefault(category.getId(), 0L)));
+        }
+        return entries;
+    }
+
+    private record Entry(String type, long id, String text, String model, long popularity) {
+
+        SuggestionResponse toResponse() {
+            return new SuggestionResponse(type, id, text, model);
+        }
+    }
+
+    private record Key(String text, int entry, boolean phraseStart) {}
+
+    /**
+     * Неизменяемый словарь: отсортированные ключи в одном char[] и дерево отрезков
+     * по рангу ключа (популярность записи, затем совпадение с началом фразы).
+     */
+    private static final class Dictionary {
+
+        private final Entry[] entries;
+        private final char[] chars;
+        private final int[] offsets;
+        private final int[] keyEntry;
+        private final long[] rank;
+        // Дерево отрезков: в узле — номер ключа с максимальным рангом, листья с индекса n
+        private final int[] tree;
+
+        private Dictionary(Entry[] entries, List<Key> keys) {
+            this.entries = entries;
+            int n = keys.size();
+            this.offsets = new int[n + 1];
+            this.keyEntry = new int[n];
+            this.rank = new long[n];
+
+            int length = 0;
+            for (Key key : keys) {
+                length += key.text().length();
+            }
+            this.chars = new char[length];
+
+            int position = 0;
+            for (int i = 0; i < n; i++) {
+                Key key = keys.get(i);
+                offsets[i] = position;
+                key.text().getChars(0, key.text().length(), chars, position);
+                position += key.text().length();
+                keyEntry[i] = key.entry();
+                rank[i] = entries[key.entry()].popularity() * 2 + (key.phraseStart() ? 1 : 0);
+            }
+            offsets[n] = position;
+
+            this.tree = new int[2 * n];
+            for (int i = 0; i < n; i++) {
+                tree[n + i] = i;
+            }
+            for (int node = n - 1; node > 0; node--) {
+                tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+
+        static Dictionary build(List<Entry> entryList) {
+            Entry[] entries = entryList.toArray(new Entry[0]);
+            List<Key> keys = new ArrayList<>();
+            for (int i = 0; i < entries.length; i++) {
+                addKeys(keys, entries[i].text(), i);
+                addKeys(keys, entries[i].model(), i);
+            }
+            keys.sort(Comparator.comparing(Key::text).thenComparingInt(Key::entry)
+                    .thenComparing(Key::phraseStart, Comparator.reverseOrder()));
+
+            // Одинаковый ключ одной записи (слово и в названии, и в модели) — оставляем один
+            List<Key> unique = new ArrayList<>(keys.size());
+            for (Key key : keys) {
+                Key last = unique.isEmpty() ? null : unique.get(unique.size() - 1);
+                if (last == null || last.entry() != key.entry() || !last.text().equals(key.text())) {
+                    unique.add(key);
+                }
+            }
+            return new Dictionary(entries, unique);
+        }
+
+        private static void addKeys(List<Key> keys, String text, int entry) {
+            List<String> words = ProductSearchIndex.tokenize(text);
+            for (int i = 0; i < words.size(); i++) {
+                String key = String.join(" ", words.subList(i, words.size()));
+                keys.add(new Key(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key, entry, i == 0));
+            }
+        }
+
+        int keyCount() {
+            return keyEntry.length;
+        }
+
+        List<SuggestionResponse> top(String prefix, int limit) {
+            int from = bound(prefix, false);
+            int to = bound(prefix, true);
+            if (from >= to) {
+                return List.of();
+            }
+
+            // Лучший ключ диапазона, затем лучшие в частях слева и справа от него
+            PriorityQueue<int[]> ranges = new PriorityQueue<>(
+                    (a, b) -> Long.compare(rank[b[2]], rank[a[2]]));
+            ranges.add(new int[]{from, to, best(from, to)});
+
+            List<SuggestionResponse> result = new ArrayList<>(limit);
+            Set<Integer> seen = new HashSet<>();
+            while (!ranges.isEmpty() && result.size() < limit) {
+                int[] range = ranges.poll();
+                int key = range[2];
+                if (seen.add(keyEntry[key])) {
+                    result.add(entries[keyEntry[key]].toResponse());
+                }
+                if (range[0] < key) {
+                    ranges.add(new int[]{range[0], key, best(range[0], key)});
+                }
+                if (key + 1 < range[1]) {
+                    ranges.add(new int[]{key + 1, range[1], best(key + 1, range[1])});
+                }
+            }
+            return result;
+        }
+
+        // Первый ключ, который не меньше префикса (upper = false) или не начинается с него и больше (upper = true)
+        private int bound(String prefix, boolean upper) {
+            int low = 0;
+            int high = keyEntry.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int cmp = comparePrefix(middle, prefix);
+                if (cmp < 0 || (upper && cmp == 0)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // Сравнение ключа с префиксом: 0 — ключ начинается с префикса
+        private int comparePrefix(int key, String prefix) {
+            int start = offsets[key];
+            int length = offsets[key + 1] - start;
+            int common = Math.min(length, prefix.length());
+            for (int i = 0; i < common; i++) {
+                int diff = chars[start + i] - prefix.charAt(i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return length >= prefix.length() ? 0 : -1;
+        }
+
+        // Ключ с максимальным рангом в [from, to)
+        private int best(int from, int to) {
+            int n = keyEntry.length;
+            int result = from;
+            for (int left = from + n, right = to + n; left < right; left >>= 1, right >>= 1) {
+                if ((left & 1) == 1) {
+                    result = better(result, tree[left++]);
+                }
+                if ((right & 1) == 1) {
+                    result = better(result, tree[--right]);
+                }
+            }
+            return result;
+        }
+
+        private int better(int a, int b) {
+            if (rank[a] != rank[b]) {
+                return rank[a] > rank[b] ? a : b;
+            }
+            return Math.min(a, b);
+        }
+    }
+}
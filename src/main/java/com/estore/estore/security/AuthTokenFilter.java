@@ -2,7 +2,6 @@ package com.estore.estore.security;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -14,7 +13,6 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.List;
 
 @Component
 public class AuthTokenFilter extends OncePerRequestFilter {
@@ -30,32 +28,23 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             SecurityContextHolder.clearContext();
             
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                // ✅ ПОЛУЧАЕМ AUTHORITIES ИЗ ТОКЕНА
-                List<GrantedAuthority> authorities = jwtUtils.getAuthoritiesFromJwtToken(jwt);
-
-                // Создаем Authentication объект с authorities из токена
+            // Одна проверка подписи на запрос (или ни одной — если токен уже в кэше)
+            VerifiedToken token = jwt == null ? null : jwtUtils.verify(jwt);
+            if (token != null) {
+                // Principal с id и ролью из токена — сервисам не нужно искать пользователя в БД
                 UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(username, null, authorities);
+                        new UsernamePasswordAuthenticationToken(token.toPrincipal(), null, token.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
 
-                // Логирование для отладки
-                System.out.println("=== AUTH DEBUG ===");
-                System.out.println("User: " + username);
-                System.out.println("Authorities from token: " + authorities);
-                System.out.println("Request URI: " + request.getRequestURI());
-                System.out.println("SecurityContext set for: " + SecurityContextHolder.getContext().getAuthentication().getName());
-                System.out.println("==================");
-            } else {
-                System.out.println("=== AUTH DEBUG: No valid JWT token found ===");
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Authenticated " + token.getUsername() + " (id " + token.getUserId() +
+                            ") with " + token.getAuthorities() + " for " + request.getRequestURI());
+                }
             }
         } catch (Exception e) {
-            logger.error("Cannot set user authentication: {}", e);
-            System.err.println("=== AUTH ERROR: " + e.getMessage() + " ===");
+            logger.error("Cannot set user authentication", e);
         }
 
         filterChain.doFilter(request, response);
@@ -0,0 +1,68 @@
+package com.estore.estore.security;
+
+import com.estore.estore.exception.ResourceNotFoundException;
+import com.estore.estore.model.User;
+import com.estore.estore.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Текущий пользователь из SecurityContext.
+ * id берется из principal, который AuthTokenFilter собирает из claims токена,
+ * поэтому на горячем пути строка users не читается.
+ */
+@Component
+public class CurrentUserResolver {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    public UserPrincipal getPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null || !authentication.isAuthenticated() ||
+                "anonymousUser".equals(authentication.getName())) {
+            throw new ResourceNotFoundException("User not authenticated");
+        }
+
+        if (authentication.getPrincipal() instanceof UserPrincipal principal && principal.getId() != null) {
+            return principal;
+        }
+
+        // Токен, выданный до появления claim с id: один раз ищем по имени
+        String username = authentication.getName();
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
+        UserPrincipal principal = UserPrincipal.create(user);
+
+        // Запоминаем в контексте, чтобы повторные вызовы в этом запросе не ходили в БД
+        UsernamePasswordAuthenticationToken resolved =
+                new UsernamePasswordAuthenticationToken(principal, null, authentication.getAuthorities());
+        resolved.setDetails(authentication.getDetails());
+        SecurityContextHolder.getContext().setAuthentication(resolved);
+        return principal;
+    }
+
+    public Long getUserId() {
+        return getPrincipal().getId();
+    }
+
+    public String getUsername() {
+        return getPrincipal().getUsername();
+    }
+
+    // Ссылка на пользователя без SELECT — для связей (заказ, позиция корзины)
+    public User getUserReference() {
+        return userRepository.getReferenceById(getUserId());
+    }
+
+    // Полная загрузка — только там, где нужны поля пользователя (профиль)
+    public User loadUser() {
+        Long userId = getUserId();
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+    }
+}
@@ -2,27 +2,77 @@ package com.estore.estore.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 @Component
 public class JwtUtils {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtUtils.class);
+
     @Value("${app.jwt.secret}")
     private String jwtSecret;
 
     @Value("${app.jwt.expiration.ms}")
     private int jwtExpirationMs;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    @Value("${app.jwt.cache.max-size:10000}")
+    private int cacheSize;
+
+    // Ключ и парсер потокобезопасны — строятся один раз, а не на каждую проверку
+    private Key signingKey;
+    private JwtParser parser;
+
+    // LRU по порядку доступа: при переполнении вытесняется давно не использованный токен.
+    // Доступ меняет порядок записей, поэтому и чтение идет под cacheLock
+    private final LinkedHashMap<String, VerifiedToken> verifiedTokens = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+            return size() > cacheSize;
+        }
+    };
+    private final ReentrantLock cacheLock = new ReentrantLock();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer verifyTimer;
+    private Counter cacheHits;
+    private Counter cacheMisses;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+
+        verifyTimer = Timer.builder("jwt.verify")
+                .description("Signature check and claims parsing of a JWT (cache misses only)")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        cacheHits = Counter.builder("jwt.cache.requests").tag("result", "hit").register(meterRegistry);
+        cacheMisses = Counter.builder("jwt.cache.requests").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("jwt.cache.size", this, JwtUtils::cachedTokens).register(meterRegistry);
     }
 
     public String generateJwtToken(Authentication authentication) {
@@ -36,61 +86,132 @@ public class JwtUtils {
         return Jwts.builder()
                 .setSubject((userPrincipal.getUsername()))
                 .claim("authorities", authorities) // ✅ ДОБАВЛЯЕМ РОЛИ В ТОКЕН
+                .claim("uid", userPrincipal.getId()) // id пользователя, чтобы не искать его по имени
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        VerifiedToken verified = verify(token);
+        return verified == null ? null : verified.getUsername();
     }
 
-    // ДОБАВЛЯЕМ МЕТОД ДЛЯ ПОЛУЧЕНИЯ РОЛЕЙ ИЗ ТОКЕНА
     public List<GrantedAuthority> getAuthoritiesFromJwtToken(String token) {
-        try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-
-            if (claims.get("authorities") != null) {
-                String authoritiesStr = claims.get("authorities", String.class);
-                return Arrays.stream(authoritiesStr.split(","))
-                        .map(SimpleGrantedAuthority::new)
-                        .collect(Collectors.toList());
+        VerifiedToken verified = verify(token);
+        return verified == null ? Collections.emptyList() : verified.getAuthorities();
+    }
+
+    public boolean validateJwtToken(String authToken) {
+        return verify(authToken) != null;
+    }
+
+    /**
+     * Проверить токен один раз: подпись, срок, разбор claims.
+     * Результат кэшируется по SHA-256 токена до истечения его срока (не больше
+     * app.jwt.cache.max-size записей, LRU), повторные запросы с тем же токеном HMAC не считают.
+     * Возвращает null, если токен недействителен.
+     */
+    public VerifiedToken verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        String key = cacheSize > 0 ? digest(token) : null;
+        if (key != null) {
+            VerifiedToken cached = cached(key, now);
+            if (cached != null) {
+                if (!cached.isExpired(now)) {
+                    cacheHits.increment();
+                    return cached;
+                }
+                log.debug("JWT token is expired");
+                return null;
             }
-        } catch (Exception e) {
-            System.err.println("Error extracting authorities from JWT: " + e.getMessage());
+            cacheMisses.increment();
         }
 
-        return Collections.emptyList();
+        VerifiedToken verified = verifyTimer.record(() -> parse(token));
+        if (verified != null && key != null) {
+            cache(key, verified);
+        }
+        return verified;
     }
 
-    public boolean validateJwtToken(String authToken) {
+    private VerifiedToken parse(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+
+            List<GrantedAuthority> authorities = Collections.emptyList();
+            String authoritiesStr = claims.get("authorities", String.class);
+            if (authoritiesStr != null && !authoritiesStr.isEmpty()) {
+                authorities = Arrays.stream(authoritiesStr.split(","))
+                        .map(SimpleGrantedAuthority::new)
+                        .collect(Collectors.toList());
+            }
+
+            Number userId = claims.get("uid", Number.class);
+            Date expiration = claims.getExpiration();
+            return new VerifiedToken(
+                    userId == null ? null : userId.longValue(),
+                    claims.getSubject(),
+                    authorities,
+                    expiration == null ? Long.MAX_VALUE : expiration.getTime());
         } catch (MalformedJwtException e) {
-            System.err.println("Invalid JWT token: " + e.getMessage());
+            log.debug("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
-            System.err.println("JWT token is expired: " + e.getMessage());
+            log.debug("JWT token is expired: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
-            System.err.println("JWT token is unsupported: " + e.getMessage());
+            log.debug("JWT token is unsupported: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
-            System.err.println("JWT claims string is empty: " + e.getMessage());
+            log.debug("JWT claims string is empty: {}", e.getMessage());
         } catch (JwtException e) {
-            System.err.println("JWT error: " + e.getMessage());
+            log.debug("JWT error: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    // Истекшая запись удаляется при обращении и возвращается, чтобы не проверять токен заново
+    private VerifiedToken cached(String key, long now) {
+        cacheLock.lock();
+        try {
+            VerifiedToken cached = verifiedTokens.get(key);
+            if (cached != null && cached.isExpired(now)) {
+                verifiedTokens.remove(key);
+            }
+            return cached;
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    // Переполнение вытесняет одну самую давнюю запись (removeEldestEntry), а не весь кэш
+    private void cache(String key, VerifiedToken verified) {
+        cacheLock.lock();
+        try {
+            verifiedTokens.put(key, verified);
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    int cachedTokens() {
+        cacheLock.lock();
+        try {
+            return verifiedTokens.size();
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
-        return false;
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,8 @@ package com.estore.estore.security;
 
 import com.estore.estore.model.User;
 import com.estore.estore.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -12,6 +14,8 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
 
+    private static final Logger log = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
+
     @Autowired
     private UserRepository userRepository;
 
@@ -21,13 +25,11 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User Not Found: " + username));
 
-        System.out.println("🔍 UserDetailsService - Найден пользователь: " +
-                username + ", роль в БД: " + user.getRole());
+        log.debug("UserDetailsService - найден пользователь: {}, роль в БД: {}", username, user.getRole());
 
         UserDetails userDetails = UserPrincipal.create(user);
 
-        System.out.println("🔍 UserDetailsService - Создан UserDetails с authorities: " +
-                userDetails.getAuthorities());
+        log.debug("UserDetailsService - создан UserDetails с authorities: {}", userDetails.getAuthorities());
 
         return userDetails;
     }
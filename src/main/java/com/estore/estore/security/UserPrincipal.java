@@ -33,9 +33,6 @@ public class UserPrincipal implements UserDetails {
             roleName = "ROLE_USER";
         }
 
-        System.out.println("🔐 Создан UserPrincipal для: " + user.getUsername() +
-                ", роль: " + roleName + ", authority: " + roleName);
-
         List<GrantedAuthority> authorities = Collections.singletonList(
                 new SimpleGrantedAuthority(roleName)
         );
@@ -0,0 +1,40 @@
+package com.estore.estore.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+
+/**
+ * Проверенное содержимое JWT: подпись и срок уже проверены,
+ * authorities разобраны один раз в неизменяемый список.
+ */
+public final class VerifiedToken {
+
+    private final Long userId;
+    private final String username;
+    private final List<GrantedAuthority> authorities;
+    private final long expiresAtMillis;
+
+    public VerifiedToken(Long userId, String username, List<GrantedAuthority> authorities, long expiresAtMillis) {
+        this.userId = userId;
+        this.username = username;
+        this.authorities = List.copyOf(authorities);
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresAtMillis;
+    }
+
+    public UserPrincipal toPrincipal() {
+        return new UserPrincipal(userId, username, null, null, authorities);
+    }
+
+    public Long getUserId() { return userId; }
+
+    public String getUsername() { return username; }
+
+    public List<GrantedAuthority> getAuthorities() { return authorities; }
+
+    public long getExpiresAtMillis() { return expiresAtMillis; }
+}
@@ -1,66 +1,50 @@
 package com.estore.estore.service;
 
+import com.estore.estore.cart.CartLine;
+import com.estore.estore.cart.CartStore;
+import com.estore.estore.catalog.CatalogSnapshotHolder;
 import com.estore.estore.dto.request.CartItemRequest;
 import com.estore.estore.dto.response.CartItemResponse;
 import com.estore.estore.dto.response.CartResponse;
 import com.estore.estore.exception.BusinessException;
 import com.estore.estore.exception.ResourceNotFoundException;
-import com.estore.estore.model.CartItem;
 import com.estore.estore.model.Product;
-import com.estore.estore.model.User;
-import com.estore.estore.repository.CartItemRepository;
-import com.estore.estore.repository.ProductRepository;
-import com.estore.estore.repository.UserRepository;
+import com.estore.estore.security.CurrentUserResolver;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
+/**
+ * Транзакциями управляет хранилище корзины (CartStore): в режиме memory
+ * операции с корзиной не открывают транзакцию и не занимают соединение с БД.
+ */
 @Service
-@Transactional
 public class CartService {
 
+    private static final Logger log = LoggerFactory.getLogger(CartService.class);
+
     @Autowired
-    private CartItemRepository cartItemRepository;
+    private CartStore cartStore;
 
     @Autowired
-    private ProductRepository productRepository;
+    private CatalogSnapshotHolder catalogSnapshotHolder;
 
     @Autowired
-    private UserRepository userRepository;
-
-    // Получить текущего пользователя из SecurityContext
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
-        if (authentication == null || !authentication.isAuthenticated() || 
-            "anonymousUser".equals(authentication.getName())) {
-            throw new ResourceNotFoundException("User not authenticated");
-        }
-        
-        String username = authentication.getName();
-        System.out.println("=== CART DEBUG: Getting cart for user: " + username + " ===");
-        
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
-        
-        System.out.println("=== CART DEBUG: User ID: " + user.getId() + ", Username: " + user.getUsername() + " ===");
-        
-        return user;
-    }
+    private CurrentUserResolver currentUserResolver;
 
     // Получить корзину пользователя
+    @Timed(value = "estore.service", histogram = true)
     public CartResponse getCart() {
-        User user = getCurrentUser();
-        System.out.println("=== CART DEBUG: Fetching cart items for user ID: " + user.getId() + " ===");
-        List<CartItem> cartItems = cartItemRepository.findByUser(user);
-        System.out.println("=== CART DEBUG: Found " + cartItems.size() + " items in cart ===");
+        Long userId = currentUserResolver.getUserId();
+        List<CartLine> cartItems = cartStore.getLines(userId);
+        log.debug("Cart of user {}: {} items", userId, cartItems.size());
 
         List<CartItemResponse> items = cartItems.stream()
                 .map(this::convertToResponse)
@@ -78,11 +62,12 @@ public class CartService {
     }
 
     // Добавить товар в корзину
+    @Timed(value = "estore.service", histogram = true)
     public CartItemResponse addToCart(CartItemRequest request) {
-        User user = getCurrentUser();
-        System.out.println("=== CART DEBUG: Adding to cart for user ID: " + user.getId() + ", product ID: " + request.getProductId() + " ===");
-        
-        Product product = productRepository.findById(request.getProductId())
+        Long userId = currentUserResolver.getUserId();
+
+        // Товар из снимка каталога — без запроса к БД; остаток окончательно проверяется при оформлении заказа
+        Product product = catalogSnapshotHolder.current().getProduct(request.getProductId())
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + request.getProductId()));
 
         // Проверяем наличие товара
@@ -90,33 +75,19 @@ public class CartService {
             throw new BusinessException("Not enough stock for product: " + product.getName());
         }
 
-        // Проверяем, есть ли уже этот товар в корзине
-        Optional<CartItem> existingItem = cartItemRepository.findByUserIdAndProductId(user.getId(), product.getId());
-
-        CartItem cartItem;
-        if (existingItem.isPresent()) {
-            // Обновляем количество если товар уже в корзине
-            cartItem = existingItem.get();
-            cartItem.setQuantity(cartItem.getQuantity() + request.getQuantity());
-            System.out.println("=== CART DEBUG: Updating existing cart item, new quantity: " + cartItem.getQuantity() + " ===");
-        } else {
-            // Создаем новый элемент корзины
-            cartItem = new CartItem(user, product, request.getQuantity());
-            System.out.println("=== CART DEBUG: Creating new cart item for user ID: " + user.getId() + " ===");
-        }
-
-        CartItem savedItem = cartItemRepository.save(cartItem);
-        System.out.println("=== CART DEBUG: Cart item saved with ID: " + savedItem.getId() + ", user ID: " + savedItem.getUser().getId() + " ===");
-        return convertToResponse(savedItem);
+        CartLine line = cartStore.add(userId, product, request.getQuantity());
+        log.debug("Cart of user {}: product {} quantity {}", userId, product.getId(), line.getQuantity());
+        return convertToResponse(line);
     }
 
     // Обновить количество товара в корзине
+    @Timed(value = "estore.service", histogram = true)
     public CartItemResponse updateCartItem(Long productId, Integer quantity) {
-        User user = getCurrentUser();
-        CartItem cartItem = cartItemRepository.findByUserIdAndProductId(user.getId(), productId)
+        Long userId = currentUserResolver.getUserId();
+        CartLine line = cartStore.find(userId, productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found in cart: " + productId));
 
-        Product product = cartItem.getProduct();
+        Product product = line.getProduct();
 
         // Проверяем наличие товара
         if (product.getStockQuantity() < quantity) {
@@ -125,38 +96,44 @@ public class CartService {
 
         if (quantity <= 0) {
             // Если количество <= 0, удаляем товар из корзины
-            cartItemRepository.delete(cartItem);
+            cartStore.remove(userId, productId);
             return null;
         }
 
-        cartItem.setQuantity(quantity);
-        cartItemRepository.save(cartItem);
-        return convertToResponse(cartItem);
+        cartStore.setQuantity(userId, productId, quantity);
+        return convertToResponse(line.withQuantity(quantity));
     }
 
     // Удалить товар из корзины
+    @Timed(value = "estore.service", histogram = true)
     public void removeFromCart(Long productId) {
-        User user = getCurrentUser();
-        cartItemRepository.deleteByUserIdAndProductId(user.getId(), productId);
+        cartStore.remove(currentUserResolver.getUserId(), productId);
     }
 
     // Очистить корзину
+    @Timed(value = "estore.service", histogram = true)
     public void clearCart() {
-        User user = getCurrentUser();
-        cartItemRepository.deleteByUserId(user.getId());
+        cartStore.clear(currentUserResolver.getUserId());
+    }
+
+    // Удалить позиции из корзины пользователя (оформление заказа вне запроса пользователя)
+    public void removeItems(Long userId, Collection<Long> productIds) {
+        for (Long productId : productIds) {
+            cartStore.remove(userId, productId);
+        }
     }
 
-    // Вспомогательный метод для конвертации CartItem в CartItemResponse
-    private CartItemResponse convertToResponse(CartItem cartItem) {
-        Product product = cartItem.getProduct();
+    // Вспомогательный метод для конвертации позиции корзины в CartItemResponse
+    private CartItemResponse convertToResponse(CartLine line) {
+        Product product = line.getProduct();
         return new CartItemResponse(
-                cartItem.getId(),
+                line.getId(),
                 product.getId(),
                 product.getName(),
                 product.getPrice(),
-                cartItem.getQuantity(),
-                cartItem.getSubTotal(),
-                cartItem.getAddedAt().toString()
+                line.getQuantity(),
+                line.getSubTotal(),
+                line.getAddedAt().toString()
         );
     }
 }
\ No newline at end of file
@@ -1,8 +1,10 @@
 package com.estore.estore.service;
 
+import com.estore.estore.catalog.CatalogSnapshotHolder;
 import com.estore.estore.dto.request.CategoryRequest;
 import com.estore.estore.model.Category;
 import com.estore.estore.repository.CategoryRepository;
+import com.estore.estore.search.ProductSuggestIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -15,12 +17,18 @@ public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private CatalogSnapshotHolder catalogSnapshotHolder;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
     public List<Category> getAllCategories() {
-        return categoryRepository.findAllByOrderByNameAsc();
+        return catalogSnapshotHolder.current().getCategoriesByName();
     }
 
     public Optional<Category> getCategoryById(Long id) {
-        return categoryRepository.findById(id);
+        return catalogSnapshotHolder.current().getCategory(id);
     }
 
     public Category createCategory(CategoryRequest categoryRequest) {
@@ -34,7 +42,10 @@ public class CategoryService {
         category.setName(categoryRequest.getName());
         category.setDescription(categoryRequest.getDescription());
 
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        catalogSnapshotHolder.categoriesChanged();
+        productSuggestIndex.indexCategory(savedCategory);
+        return savedCategory;
     }
 
     public Category updateCategory(Long id, CategoryRequest categoryRequest) {
@@ -44,12 +55,17 @@ public class CategoryService {
         category.setName(categoryRequest.getName());
         category.setDescription(categoryRequest.getDescription());
 
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        catalogSnapshotHolder.categoriesChanged();
+        productSuggestIndex.indexCategory(savedCategory);
+        return savedCategory;
     }
 
     public void deleteCategory(Long id) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Category not found with id: " + id));
         categoryRepository.delete(category);
+        catalogSnapshotHolder.categoriesChanged();
+        productSuggestIndex.removeCategory(id);
     }
 }
@@ -0,0 +1,49 @@
+package com.estore.estore.service;
+
+import com.estore.estore.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор списка заказов для админа. Порядок фиксирован
+ * (created_at DESC, id DESC), поэтому курсор хранит только позицию последнего
+ * заказа страницы: следующая выбирается условием (created_at, id) &lt; (:createdAt, :id).
+ */
+public final class OrderCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    OrderCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public static String encode(LocalDateTime createdAt, Long id) {
+        String raw = id + SEPARATOR + createdAt;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new BusinessException("Invalid cursor");
+            }
+            return new OrderCursor(LocalDateTime.parse(raw.substring(separator + 1)),
+                    Long.valueOf(raw.substring(0, separator)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BusinessException("Invalid cursor");
+        }
+    }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public Long getId() { return id; }
+}
@@ -0,0 +1,315 @@
+package com.estore.estore.service;
+
+import com.estore.estore.exception.BusinessException;
+import com.estore.estore.model.Order;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковая выгрузка заказов с позициями (CSV — строка на позицию, NDJSON — объект на заказ).
+ * Строки читаются курсором PostgreSQL (forward-only, fetch size в транзакции)
+ * и сразу пишутся в выходной поток ответа, поэтому память не зависит от объема выгрузки.
+ */
+@Service
+public class OrderExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderExportService.class);
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String CSV_HEADER = "order_id,created_at,status,user_id,username,total_amount," +
+            "shipping_address,item_id,product_id,product_name,quantity,price";
+
+    @Value("${app.export.fetch-size:500}")
+    private int fetchSize;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private Counter exportedRows;
+
+    @PostConstruct
+    void init() {
+        // Отдельный JdbcTemplate: fetch size нужен только выгрузке
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        // Драйвер PostgreSQL читает порциями только при выключенном autocommit — поэтому транзакция
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        exportedRows = Counter.builder("orders.export.rows").register(meterRegistry);
+    }
+
+    public Format parseFormat(String format) {
+        try {
+            return Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("Invalid export format: " + format + " (expected csv or ndjson)");
+        }
+    }
+
+    // Параметры проверяются до начала потока: после первого байта статус ответа уже не поменять
+    public StreamingResponseBody export(Format format, Order.OrderStatus status, LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new BusinessException("'from' must be before 'to'");
+        }
+
+        return outputStream -> {
+            long started = System.currentTimeMillis();
+            long rows = readOnlyTransaction.execute(tx -> {
+                try {
+                    ExportWriter writer = format == Format.CSV
+                            ? new CsvWriter(outputStream)
+                            : new NdjsonWriter(outputStream, objectMapper);
+                    writer.begin();
+                    jdbcTemplate.query(connection -> prepare(connection, status, from, to), rs -> {
+                        try {
+                            writer.row(rs);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    writer.end();
+                    return writer.rows();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            exportedRows.increment(rows);
+            log.info("Exported {} order rows as {} in {} ms", rows, format, System.currentTimeMillis() - started);
+        };
+    }
+
+    private static PreparedStatement prepare(Connection connection, Order.OrderStatus status,
+                                             LocalDateTime from, LocalDateTime to) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+                "SELECT o.id AS order_id, o.created_at, o.status, o.user_id, u.username, o.total_amount, " +
+                "o.shipping_address, oi.id AS item_id, oi.product_id, p.name AS product_name, oi.quantity, oi.price " +
+                "FROM orders o " +
+                "LEFT JOIN users u ON u.id = o.user_id " +
+                "LEFT JOIN order_items oi ON oi.order_id = o.id " +
+                "LEFT JOIN products p ON p.id = oi.product_id " +
+                "WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND o.status = ?");
+            params.add(status.name());
+        }
+        if (from != null) {
+            sql.append(" AND o.created_at >= ?");
+            params.add(Timestamp.valueOf(from));
+        }
+        if (to != null) {
+            sql.append(" AND o.created_at < ?");
+            params.add(Timestamp.valueOf(to));
+        }
+        // Позиции одного заказа идут подряд — NDJSON собирает заказ без буферизации всей выборки
+        sql.append(" ORDER BY o.created_at, o.id, oi.id");
+
+        PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        for (int i = 0; i < params.size(); i++) {
+            statement.setObject(i + 1, params.get(i));
+        }
+        return statement;
+    }
+
+    // ============ ФОРМАТЫ ============
+
+    private interface ExportWriter {
+        void begin() throws IOException;
+        void row(ResultSet rs) throws SQLException, IOException;
+        void end() throws IOException;
+        long rows();
+    }
+
+    private static final class CsvWriter implements ExportWriter {
+        private final Writer out;
+        private long rows;
+
+        CsvWriter(OutputStream outputStream) {
+            this.out = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        @Override
+        public void begin() throws IOException {
+            out.write(CSV_HEADER);
+            out.write('\n');
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            out.write(Long.toString(rs.getLong("order_id")));
+            out.write(',');
+            writeValue(rs.getTimestamp("created_at"));
+            writeValue(rs.getString("status"));
+            writeValue(rs.getObject("user_id"));
+            writeValue(rs.getString("username"));
+            writeValue(rs.getBigDecimal("total_amount"));
+            writeValue(rs.getString("shipping_address"));
+            writeValue(rs.getObject("item_id"));
+            writeValue(rs.getObject("product_id"));
+            writeValue(rs.getString("product_name"));
+            writeValue(rs.getObject("quantity"));
+            BigDecimal price = rs.getBigDecimal("price");
+            if (price != null) {
+                out.write(price.toPlainString());
+            }
+            out.write('\n');
+            rows++;
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value instanceof Timestamp timestamp) {
+                out.write(timestamp.toLocalDateTime().toString());
+            } else if (value instanceof BigDecimal decimal) {
+                out.write(decimal.toPlainString());
+            } else if (value instanceof String text) {
+                writeText(text);
+            } else if (value != null) {
+                out.write(value.toString());
+            }
+            out.write(',');
+        }
+
+        // RFC 4180: кавычки, если есть запятая, кавычка или перевод строки
+        private void writeText(String text) throws IOException {
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                out.write(text);
+                return;
+            }
+            out.write('"');
+            out.write(text.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void end() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public long rows() {
+            return rows;
+        }
+    }
+
+    private static final class NdjsonWriter implements ExportWriter {
+        private final JsonGenerator json;
+        private long currentOrderId = -1;
+        private long rows;
+
+        NdjsonWriter(OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(outputStream);
+            // Поток ответа закрывает контейнер, а не генератор
+            this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Объекты разделяем сами переводом строки, без пробела Jackson между корневыми значениями
+            this.json.setRootValueSeparator(new SerializedString(""));
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            long orderId = rs.getLong("order_id");
+            if (orderId != currentOrderId) {
+                closeOrder();
+                currentOrderId = orderId;
+                rows++;
+
+                json.writeStartObject();
+                json.writeNumberField("id", orderId);
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                json.writeStringField("createdAt", createdAt == null ? null : createdAt.toLocalDateTime().toString());
+                json.writeStringField("status", rs.getString("status"));
+                writeLong("userId", rs.getObject("user_id"));
+                json.writeStringField("username", rs.getString("username"));
+                json.writeNumberField("totalAmount", rs.getBigDecimal("total_amount"));
+                json.writeStringField("shippingAddress", rs.getString("shipping_address"));
+                json.writeArrayFieldStart("items");
+            }
+
+            Object itemId = rs.getObject("item_id");
+            if (itemId != null) {
+                json.writeStartObject();
+                writeLong("id", itemId);
+                writeLong("productId", rs.getObject("product_id"));
+                json.writeStringField("productName", rs.getString("product_name"));
+                writeLong("quantity", rs.getObject("quantity"));
+                json.writeNumberField("price", rs.getBigDecimal("price"));
+                json.writeEndObject();
+            }
+        }
+
+        private void writeLong(String field, Object value) throws IOException {
+            if (value == null) {
+                json.writeNullField(field);
+            } else {
+                json.writeNumberField(field, ((Number) value).longValue());
+            }
+        }
+
+        private void closeOrder() throws IOException {
+            if (currentOrderId < 0) {
+                return;
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void end() throws IOException {
+            closeOrder();
+            json.flush();
+        }
+
+        @Override
+        public long rows() {
+            return rows;
+        }
+    }
+}
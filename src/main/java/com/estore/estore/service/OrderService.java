@@ -1,23 +1,40 @@
 package com.estore.estore.service;
 
+import com.estore.estore.analytics.SalesAnalyticsService;
+import com.estore.estore.catalog.CatalogSnapshotHolder;
 import com.estore.estore.dto.request.OrderRequest;
 import com.estore.estore.dto.response.CartItemResponse;
 import com.estore.estore.dto.response.CartResponse;
+import com.estore.estore.dto.response.CursorPageResponse;
 import com.estore.estore.dto.response.OrderResponse;
+import com.estore.estore.dto.response.OrderSummaryResponse;
 import com.estore.estore.exception.BusinessException;
 import com.estore.estore.exception.ResourceNotFoundException;
+import com.estore.estore.flashsale.FlashSaleService;
+import com.estore.estore.idempotency.IdempotencyService;
 import com.estore.estore.model.*;
+import com.estore.estore.outbox.OutboxService;
+import com.estore.estore.repository.OrderFilter;
 import com.estore.estore.repository.OrderRepository;
 import com.estore.estore.repository.ProductRepository;
 import com.estore.estore.repository.UserRepository;
+import com.estore.estore.security.CurrentUserResolver;
+import com.estore.estore.security.UserPrincipal;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,25 +45,74 @@ public class OrderService {
     private OrderRepository orderRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private CurrentUserResolver currentUserResolver;
 
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private UserRepository userRepository;
+
     @Autowired
     private CartService cartService;
 
-    // Получить текущего пользователя
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
+    @Autowired
+    private CatalogSnapshotHolder catalogSnapshotHolder;
+
+    @Autowired
+    private FlashSaleService flashSaleService;
+
+    @Autowired
+    private UserOrderStatsService userOrderStatsService;
+
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter ordersCreated;
+    private Counter ordersCancelled;
+    private Counter stockRejections;
+
+    @PostConstruct
+    void registerMetrics() {
+        ordersCreated = Counter.builder("orders.created")
+                .description("Orders created from carts")
+                .register(meterRegistry);
+        ordersCancelled = Counter.builder("orders.cancelled").register(meterRegistry);
+        stockRejections = Counter.builder("orders.stock.rejections")
+                .description("Checkouts rejected because of insufficient stock")
+                .register(meterRegistry);
     }
 
     // Создать заказ из корзины
+    @Timed(value = "estore.service", histogram = true)
     public OrderResponse createOrderFromCart(OrderRequest orderRequest) {
-        User user = getCurrentUser();
+        return createOrderFromCart(orderRequest, null);
+    }
+
+    /**
+     * Создать заказ из корзины с ключом идемпотентности (может быть null).
+     * Ключ занимается первым запросом транзакции: повтор с тем же ключом
+     * получает сохраненный ответ, корзина и остатки не трогаются.
+     */
+    @Timed(value = "estore.service", histogram = true)
+    public OrderResponse createOrderFromCart(OrderRequest orderRequest, String idempotencyKey) {
+        UserPrincipal principal = currentUserResolver.getPrincipal();
+
+        if (idempotencyKey != null) {
+            Optional<OrderResponse> replay = idempotencyService.claim(principal.getId(), idempotencyKey, orderRequest);
+            if (replay.isPresent()) {
+                return replay.get();
+            }
+        }
 
         // Получаем корзину пользователя
         CartResponse cart = cartService.getCart();
@@ -55,40 +121,60 @@ public class OrderService {
             throw new BusinessException("Cart is empty. Cannot create order.");
         }
 
-        // Проверяем наличие всех товаров
-        for (CartItemResponse item : cart.getItems()) {
-            Product product = productRepository.findById(item.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + item.getProductId()));
+        Order savedOrder = placeOrder(currentUserResolver.getUserReference(), cart.getItems(),
+                orderRequest.getShippingAddress(), orderRequest.getNotes());
+
+        // Очищаем корзину после создания заказа
+        cartService.clearCart();
 
-            if (product.getStockQuantity() < item.getQuantity()) {
-                throw new BusinessException("Not enough stock for product: " + product.getName() +
-                        ". Available: " + product.getStockQuantity() + ", Requested: " + item.getQuantity());
+        OrderResponse response = OrderResponse.fromOrder(savedOrder, principal.getUsername());
+        if (idempotencyKey != null) {
+            idempotencyService.complete(principal.getId(), idempotencyKey, savedOrder.getId(), response);
+        }
+        return response;
+    }
+
+    /**
+     * Оформить заказ из снимка корзины, принятого асинхронной очередью (CheckoutService).
+     * Вызывается воркером в его транзакции, без контекста безопасности.
+     * Из корзины удаляются только позиции снимка: пока заказ ждал в очереди, корзину могли пополнить.
+     */
+    @Timed(value = "estore.service", histogram = true)
+    public Order createOrderFromSnapshot(Long userId, List<CartItemResponse> items,
+                                         String shippingAddress, String notes) {
+        Order savedOrder = placeOrder(userRepository.getReferenceById(userId), items, shippingAddress, notes);
+        cartService.removeItems(userId, items.stream().map(CartItemResponse::getProductId).toList());
+        return savedOrder;
+    }
+
+    // Общая часть оформления: проверки, списание остатков, сохранение заказа и агрегатов
+    private Order placeOrder(User user, List<CartItemResponse> items, String shippingAddress, String notes) {
+        // Товары флеш-распродажи продаются только через секвенсор
+        for (CartItemResponse item : items) {
+            if (flashSaleService.isFlashSaleProduct(item.getProductId())) {
+                throw new BusinessException("Product " + item.getProductName() + " is on flash sale. " +
+                        "Order it via /api/flash-sales/" + item.getProductId() + "/orders");
             }
         }
 
+        // Списываем остатки одним условным UPDATE; при нехватке — исключение и откат транзакции
+        reserveStock(items);
+
         // Создаем заказ
         Order order = new Order();
-        order.setUser(user);
-        order.setShippingAddress(orderRequest.getShippingAddress());
-        order.setNotes(orderRequest.getNotes());
+        order.setUser(user); // ссылка без SELECT users
+        order.setShippingAddress(shippingAddress);
+        order.setNotes(notes);
         order.setStatus(Order.OrderStatus.PENDING);
 
-        // Добавляем товары из корзины в заказ
-        for (CartItemResponse cartItem : cart.getItems()) {
-            Product product = productRepository.findById(cartItem.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found: " + cartItem.getProductId()));
-
+        // Добавляем товары из корзины в заказ (товары уже загружены корзиной, повторных SELECT нет)
+        for (CartItemResponse cartItem : items) {
             OrderItem orderItem = new OrderItem();
-            orderItem.setOrder(order);
-            orderItem.setProduct(product);
+            orderItem.setProduct(productRepository.getReferenceById(cartItem.getProductId()));
             orderItem.setQuantity(cartItem.getQuantity());
-            orderItem.setPrice(product.getPrice()); // Цена на момент заказа
+            orderItem.setPrice(cartItem.getProductPrice()); // Цена на момент заказа
 
             order.addOrderItem(orderItem);
-
-            // Уменьшаем количество товара на складе
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-            productRepository.save(product);
         }
 
         // Рассчитываем общую сумму
@@ -96,17 +182,23 @@ public class OrderService {
 
         // Сохраняем заказ
         Order savedOrder = orderRepository.save(order);
+        userOrderStatsService.orderPlaced(savedOrder);
+        salesAnalyticsService.orderPlaced(savedOrder);
+        outboxService.orderCreated(savedOrder);
 
-        // Очищаем корзину после создания заказа
-        cartService.clearCart();
+        // Остатки изменились — обновим снимок каталога после коммита
+        catalogSnapshotHolder.stockChanged(items.stream()
+                .map(CartItemResponse::getProductId)
+                .collect(Collectors.toList()));
+        ordersCreated.increment();
 
-        return OrderResponse.fromOrder(savedOrder);
+        return savedOrder;
     }
 
     // Получить все заказы текущего пользователя
+    @Timed(value = "estore.service", histogram = true)
     public List<OrderResponse> getUserOrders() {
-        User user = getCurrentUser();
-        List<Order> orders = orderRepository.findByUserOrderByCreatedAtDesc(user);
+        List<Order> orders = orderRepository.findWithItemsByUserIdOrderByCreatedAtDesc(currentUserResolver.getUserId());
 
         return orders.stream()
                 .map(OrderResponse::fromOrder)
@@ -115,12 +207,12 @@ public class OrderService {
 
     // Получить заказ по ID (только свой заказ)
     public OrderResponse getOrderById(Long orderId) {
-        User user = getCurrentUser();
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
+        Long userId = currentUserResolver.getUserId();
+        // Статус читается под блокировкой: повторная отмена увидит CANCELLED и не вернет остатки второй раз
+        Order order = findLocked(orderId);
 
         // Проверяем, что заказ принадлежит пользователю
-        if (!order.getUser().getId().equals(user.getId())) {
+        if (!order.getUser().getId().equals(userId)) {
             throw new BusinessException("You don't have permission to view this order");
         }
 
@@ -129,32 +221,70 @@ public class OrderService {
 
     // Получить все заказы (для администратора)
     public List<OrderResponse> getAllOrders() {
-        List<Order> orders = orderRepository.findAllByOrderByCreatedAtDesc();
+        List<Order> orders = orderRepository.findAllWithItemsByOrderByCreatedAtDesc();
 
         return orders.stream()
                 .map(OrderResponse::fromOrder)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Список заказов для админа с фильтрами и keyset-пагинацией (от новых к старым).
+     * Строки — сводки без позиций; COUNT выполняется только при includeTotal = true.
+     */
+    @Transactional(readOnly = true)
+    @Timed(value = "estore.service", histogram = true)
+    public CursorPageResponse<OrderSummaryResponse> scrollOrders(String cursor, int size, OrderFilter filter,
+                                                                 boolean includeTotal) {
+        if (filter.from() != null && filter.to() != null && !filter.from().isBefore(filter.to())) {
+            throw new BusinessException("'from' must be before 'to'");
+        }
+
+        OrderCursor position = cursor != null ? OrderCursor.decode(cursor) : null;
+        // Лишняя строка показывает, есть ли следующая страница
+        List<OrderSummaryResponse> rows = orderRepository.findSummaries(filter,
+                position != null ? position.getCreatedAt() : null,
+                position != null ? position.getId() : null,
+                size + 1);
+
+        boolean hasNext = rows.size() > size;
+        List<OrderSummaryResponse> items = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            OrderSummaryResponse last = items.get(items.size() - 1);
+            nextCursor = OrderCursor.encode(last.getCreatedAt(), last.getId());
+        }
+
+        Long total = includeTotal ? orderRepository.countSummaries(filter) : null;
+        return new CursorPageResponse<>(List.copyOf(items), nextCursor, hasNext, total);
+    }
+
     // Обновить статус заказа (для администратора)
     public OrderResponse updateOrderStatus(Long orderId, Order.OrderStatus newStatus) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
+        Order order = findLocked(orderId);
 
+        Order.OrderStatus previous = order.getStatus();
+        if (previous == newStatus) {
+            return OrderResponse.fromOrder(order);
+        }
         order.setStatus(newStatus);
         Order updatedOrder = orderRepository.save(order);
+        userOrderStatsService.statusChanged(updatedOrder, previous);
+        salesAnalyticsService.statusChanged(updatedOrder, previous);
+        outboxService.orderStatusChanged(updatedOrder, previous);
 
         return OrderResponse.fromOrder(updatedOrder);
     }
 
     // 👇 НОВЫЙ МЕТОД: ОТМЕНА ЗАКАЗА
+    @Timed(value = "estore.service", histogram = true)
     public OrderResponse cancelOrder(Long orderId) {
-        User user = getCurrentUser();
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
+        Long userId = currentUserResolver.getUserId();
+        // Статус читается под блокировкой: повторная отмена увидит CANCELLED и не вернет остатки второй раз
+        Order order = findLocked(orderId);
 
         // Проверяем, что заказ принадлежит пользователю
-        if (!order.getUser().getId().equals(user.getId())) {
+        if (!order.getUser().getId().equals(userId)) {
             throw new BusinessException("You can only cancel your own orders");
         }
 
@@ -170,16 +300,72 @@ public class OrderService {
         }
 
         // Отменяем заказ
+        Order.OrderStatus previous = order.getStatus();
         order.setStatus(Order.OrderStatus.CANCELLED);
         Order cancelledOrder = orderRepository.save(order);
+        userOrderStatsService.statusChanged(cancelledOrder, previous);
+        salesAnalyticsService.statusChanged(cancelledOrder, previous);
+        outboxService.orderStatusChanged(cancelledOrder, previous);
 
-        // Возвращаем товары на склад
+        // Возвращаем товары на склад одним UPDATE; строки блокируются в порядке id, как при списании
+        Map<Long, Integer> returned = new TreeMap<>();
         for (OrderItem orderItem : cancelledOrder.getOrderItems()) {
-            Product product = orderItem.getProduct();
-            product.setStockQuantity(product.getStockQuantity() + orderItem.getQuantity());
-            productRepository.save(product);
+            returned.merge(orderItem.getProduct().getId(), orderItem.getQuantity(), Integer::sum);
+        }
+        Long[] returnedIds = returned.keySet().toArray(new Long[0]);
+        if (returnedIds.length > 1) {
+            productRepository.lockInIdOrder(returnedIds);
         }
+        productRepository.incrementStock(returnedIds, returned.values().toArray(new Integer[0]));
+
+        catalogSnapshotHolder.stockChanged(cancelledOrder.getOrderItems().stream()
+                .map(orderItem -> orderItem.getProduct().getId())
+                .collect(Collectors.toList()));
+        ordersCancelled.increment();
 
         return OrderResponse.fromOrder(cancelledOrder);
     }
+
+    // Заказ с позициями, строка заказа заблокирована до конца транзакции
+    private Order findLocked(Long orderId) {
+        orderRepository.lockById(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
+        return orderRepository.findWithItemsById(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
+    }
+
+    // Атомарное списание остатков по всем позициям корзины
+    private void reserveStock(List<CartItemResponse> items) {
+        Map<Long, Integer> requested = new TreeMap<>();
+        for (CartItemResponse item : items) {
+            requested.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+        Long[] ids = requested.keySet().toArray(new Long[0]);
+
+        // Порядок блокировок задает только SELECT ... ORDER BY id FOR UPDATE, не порядок массива в UPDATE
+        if (ids.length > 1) {
+            productRepository.lockInIdOrder(ids);
+        }
+        List<Long> reserved = productRepository.decrementStock(ids, requested.values().toArray(new Integer[0]));
+        if (reserved.size() == requested.size()) {
+            return;
+        }
+
+        stockRejections.increment();
+
+        // Определяем, какая позиция не прошла (строки этих товаров UPDATE не менял)
+        Set<Long> failed = new HashSet<>(requested.keySet());
+        reserved.forEach(failed::remove);
+        Map<Long, ProductRepository.StockView> stock = productRepository.findStockByIdIn(failed).stream()
+                .collect(Collectors.toMap(ProductRepository.StockView::getId, view -> view));
+
+        for (Long productId : failed) {
+            ProductRepository.StockView view = stock.get(productId);
+            if (view == null) {
+                throw new ResourceNotFoundException("Product not found: " + productId);
+            }
+            throw new BusinessException("Not enough stock for product: " + view.getName() +
+                    ". Available: " + view.getStockQuantity() + ", Requested: " + requested.get(productId));
+        }
+    }
 }
\ No newline at end of file
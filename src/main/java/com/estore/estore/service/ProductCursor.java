@@ -0,0 +1,124 @@
+package com.estore.estore.service;
+
+import com.estore.estore.exception.BusinessException;
+import com.estore.estore.model.Product;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Непрозрачный курсор для keyset-пагинации товаров.
+ * Хранит ключ сортировки, направление и позицию (значение ключа, id)
+ * последнего товара страницы, поэтому следующая страница выбирается
+ * условием WHERE (key, id) &lt; (:value, :id) без OFFSET.
+ */
+public final class ProductCursor {
+
+    public static final Set<String> SORT_KEYS = Set.of("createdAt", "price", "name", "id");
+
+    private static final String SEPARATOR = ":";
+
+    private final String sortBy;
+    private final Sort.Direction direction;
+    private final Long lastId;
+    private final Object lastValue;
+
+    private ProductCursor(String sortBy, Sort.Direction direction, Long lastId, Object lastValue) {
+        this.sortBy = sortBy;
+        this.direction = direction;
+        this.lastId = lastId;
+        this.lastValue = lastValue;
+    }
+
+    // Курсор первой страницы
+    public static ProductCursor first(String sortBy, Sort.Direction direction) {
+        if (!SORT_KEYS.contains(sortBy)) {
+            throw new BusinessException("Unsupported sort key: " + sortBy + ". Supported: " + SORT_KEYS);
+        }
+        return new ProductCursor(sortBy, direction, null, null);
+    }
+
+    // Курсор, указывающий на позицию после товара
+    public static String encode(Product last, String sortBy, Sort.Direction direction) {
+        String raw = sortBy + SEPARATOR + direction.name() + SEPARATOR + last.getId()
+                + SEPARATOR + valueToString(sortValue(last, sortBy));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // Значение идет последним: название товара может содержать разделитель
+            String[] parts = raw.split(SEPARATOR, 4);
+            if (parts.length != 4 || !SORT_KEYS.contains(parts[0])) {
+                throw new BusinessException("Invalid cursor");
+            }
+
+            String sortBy = parts[0];
+            return new ProductCursor(
+                    sortBy,
+                    Sort.Direction.valueOf(parts[1]),
+                    Long.valueOf(parts[2]),
+                    parseValue(sortBy, parts[3])
+            );
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BusinessException("Invalid cursor");
+        }
+    }
+
+    public String getSortBy() { return sortBy; }
+
+    public Sort.Direction getDirection() { return direction; }
+
+    // Сортировка всегда добивается id, чтобы позиция была однозначной
+    public Sort toSort() {
+        if ("id".equals(sortBy)) {
+            return Sort.by(direction, "id");
+        }
+        return Sort.by(direction, sortBy).and(Sort.by(direction, "id"));
+    }
+
+    public ScrollPosition toScrollPosition() {
+        if (lastId == null) {
+            return ScrollPosition.keyset();
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put(sortBy, lastValue);
+        keys.put("id", lastId);
+        return ScrollPosition.forward(keys);
+    }
+
+    private static Object sortValue(Product product, String sortBy) {
+        return switch (sortBy) {
+            case "createdAt" -> product.getCreatedAt();
+            case "price" -> product.getPrice();
+            case "name" -> product.getName();
+            default -> product.getId();
+        };
+    }
+
+    private static String valueToString(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return String.valueOf(value);
+    }
+
+    private static Object parseValue(String sortBy, String value) {
+        return switch (sortBy) {
+            case "createdAt" -> LocalDateTime.parse(value);
+            case "price" -> new BigDecimal(value);
+            case "name" -> value;
+            default -> Long.valueOf(value);
+        };
+    }
+}
@@ -1,17 +1,43 @@
 package com.estore.estore.service;
 
+import com.estore.estore.catalog.CatalogFacetIndex;
+import com.estore.estore.catalog.CatalogFacetIndexHolder;
+import com.estore.estore.catalog.CatalogSnapshot;
+import com.estore.estore.catalog.CatalogSnapshotHolder;
+import com.estore.estore.catalog.ProductBrowseQuery;
 import com.estore.estore.dto.request.ProductRequest;
+import com.estore.estore.dto.response.CursorPageResponse;
+import com.estore.estore.dto.response.ProductBrowseResponse;
+import com.estore.estore.dto.response.SuggestionResponse;
+import com.estore.estore.exception.BusinessException;
 import com.estore.estore.model.Category;
 import com.estore.estore.model.Product;
+import com.estore.estore.outbox.OutboxService;
 import com.estore.estore.repository.CategoryRepository;
 import com.estore.estore.repository.ProductRepository;
+import com.estore.estore.search.ProductSearchIndex;
+import com.estore.estore.search.ProductSuggestIndex;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
@@ -22,34 +48,149 @@ public class ProductService {
     @Autowired
     private CategoryRepository categoryRepository;
 
-    // Старый метод для обратной совместимости
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Autowired
+    private CatalogSnapshotHolder catalogSnapshotHolder;
+
+    @Autowired
+    private CatalogFacetIndexHolder catalogFacetIndexHolder;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    // Старый метод для обратной совместимости (из снимка каталога, без БД)
     public List<Product> getAllProducts() {
-        return productRepository.findAllByOrderByCreatedAtDesc();
+        return catalogSnapshotHolder.current().getProductsNewestFirst();
     }
 
     // НОВЫЙ: Пагинация всех товаров
     public Page<Product> getAllProducts(Pageable pageable) {
+        CatalogSnapshot snapshot = catalogSnapshotHolder.current();
+        if (pageable.getSort().isUnsorted()) {
+            return toPage(snapshot.getProductsNewestFirst(), pageable);
+        }
+
+        List<Sort.Order> orders = pageable.getSort().toList();
+        Sort.Order order = orders.get(0);
+        if (orders.size() == 1 && CatalogSnapshot.isSortable(order.getProperty())) {
+            return toPage(snapshot.getProductsSorted(order.getProperty(), order.isAscending()), pageable);
+        }
+
+        // Нестандартная сортировка — запрос в БД
         return productRepository.findAll(pageable);
     }
 
-    // НОВЫЙ: Пагинация с поиском
+    /**
+     * Keyset-пагинация товаров. Стоимость страницы не зависит от ее номера:
+     * выборка идет от позиции курсора по индексу сортировки, COUNT выполняется
+     * только при includeTotal = true.
+     */
+    @Timed(value = "estore.service", histogram = true)
+    public CursorPageResponse<Product> scrollProducts(String cursor, int size, String sortBy,
+                                                      Sort.Direction direction, Long categoryId,
+                                                      boolean includeTotal) {
+        ProductCursor position = cursor != null
+                ? ProductCursor.decode(cursor)
+                : ProductCursor.first(sortBy, direction);
+
+        if (cursor != null && (!position.getSortBy().equals(sortBy) || position.getDirection() != direction)) {
+            throw new BusinessException("Cursor was issued for a different sort order");
+        }
+
+        Window<Product> window = categoryId != null
+                ? productRepository.findByCategoryId(categoryId, position.toScrollPosition(),
+                        position.toSort(), Limit.of(size))
+                : productRepository.findAllBy(position.toScrollPosition(), position.toSort(), Limit.of(size));
+
+        List<Product> items = window.getContent();
+        String nextCursor = window.hasNext() && !items.isEmpty()
+                ? ProductCursor.encode(items.get(items.size() - 1), sortBy, direction)
+                : null;
+
+        Long total = null;
+        if (includeTotal) {
+            total = categoryId != null
+                    ? productRepository.countByCategoryId(categoryId)
+                    : productRepository.count();
+        }
+
+        return new CursorPageResponse<>(items, nextCursor, window.hasNext(), total);
+    }
+
+    // Поиск по инвертированному индексу (BM25), из БД читается только текущая страница
+    @Timed(value = "estore.service", histogram = true)
     public Page<Product> searchProducts(String query, Pageable pageable) {
-        return productRepository.searchProductsPage(query, pageable);
+        List<Long> rankedIds = productSearchIndex.search(query);
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(loadInOrder(rankedIds), pageable, rankedIds.size());
+        }
+
+        int from = (int) Math.min(pageable.getOffset(), rankedIds.size());
+        int to = Math.min(from + pageable.getPageSize(), rankedIds.size());
+        return new PageImpl<>(loadInOrder(rankedIds.subList(from, to)), pageable, rankedIds.size());
+    }
+
+    // Подсказки при вводе: только память, без БД
+    public List<SuggestionResponse> suggestProducts(String query, int limit) {
+        return productSuggestIndex.suggest(query, limit);
+    }
+
+    /**
+     * Просмотр каталога с комбинацией фильтров (категории, цена, наличие, текст) и счетчиками
+     * фасетов. Считается по колоночному индексу снимка, без запросов в БД.
+     * Сортировка relevance доступна только с текстовым запросом и выбирается для него по умолчанию.
+     */
+    @Timed(value = "estore.service", histogram = true)
+    public ProductBrowseResponse browseProducts(Set<Long> categoryIds, BigDecimal minPrice, BigDecimal maxPrice,
+                                                boolean inStockOnly, String query, String sortBy,
+                                                Sort.Direction direction, int page, int size) {
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new BusinessException("'minPrice' must not be greater than 'maxPrice'");
+        }
+
+        boolean hasQuery = query != null && !query.isBlank();
+        String sortKey = sortBy != null ? sortBy : hasQuery ? ProductBrowseQuery.RELEVANCE : "createdAt";
+        if (ProductBrowseQuery.RELEVANCE.equals(sortKey) ? !hasQuery : !CatalogFacetIndex.isSortable(sortKey)) {
+            throw new BusinessException("Unsupported sort: " + sortKey);
+        }
+
+        List<Long> rankedIds = hasQuery ? productSearchIndex.search(query) : null;
+        return catalogFacetIndexHolder.current().browse(new ProductBrowseQuery(categoryIds, minPrice, maxPrice,
+                inStockOnly, rankedIds, sortKey, direction == Sort.Direction.ASC, page, size));
     }
 
     // НОВЫЙ: Пагинация товаров по категории
     public Page<Product> getProductsByCategory(Long categoryId, Pageable pageable) {
-        return productRepository.findByCategoryId(categoryId, pageable);
+        List<Product> products = catalogSnapshotHolder.current().getProductsByCategory(categoryId);
+        if (pageable.getSort().isSorted()) {
+            Comparator<Product> comparator = null;
+            for (Sort.Order order : pageable.getSort()) {
+                if (!CatalogSnapshot.isSortable(order.getProperty())) {
+                    return productRepository.findByCategoryId(categoryId, pageable);
+                }
+                Comparator<Product> next = productComparator(order);
+                comparator = comparator == null ? next : comparator.thenComparing(next);
+            }
+            products = products.stream().sorted(comparator).toList();
+        }
+        return toPage(products, pageable);
     }
 
     public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+        return catalogSnapshotHolder.current().getProduct(id);
     }
 
     public List<Product> getAvailableProducts() {
-        return productRepository.findByStockQuantityGreaterThan(0);
+        return catalogSnapshotHolder.current().getAvailableProducts();
     }
 
+    // Изменения каталога — в транзакции вместе с событием outbox
+    @Transactional
     public Product createProduct(ProductRequest productRequest) {
         if (productRepository.existsByModel(productRequest.getModel())) {
             throw new RuntimeException("Product with model '" + productRequest.getModel() + "' already exists");
@@ -66,9 +207,14 @@ public class ProductService {
         product.setCategory(category);
         product.setStockQuantity(productRequest.getStockQuantity());
 
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        indexAfterCommit(savedProduct);
+        catalogSnapshotHolder.productSaved(savedProduct);
+        outboxService.productSaved(savedProduct, true);
+        return savedProduct;
     }
 
+    @Transactional
     public Product updateProduct(Long id, ProductRequest productRequest) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
@@ -79,18 +225,84 @@ public class ProductService {
             product.setCategory(category);
         }
 
+        // Модель уникальна (uk_products_model) — проверяем до UPDATE, как и при создании
+        if (!product.getModel().equals(productRequest.getModel()) && productRepository.existsByModel(productRequest.getModel())) {
+            throw new RuntimeException("Product with model '" + productRequest.getModel() + "' already exists");
+        }
+
         product.setName(productRequest.getName());
         product.setDescription(productRequest.getDescription());
         product.setPrice(productRequest.getPrice());
         product.setModel(productRequest.getModel());
         product.setStockQuantity(productRequest.getStockQuantity());
 
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        indexAfterCommit(savedProduct);
+        catalogSnapshotHolder.productSaved(savedProduct);
+        outboxService.productSaved(savedProduct, false);
+        return savedProduct;
     }
 
+    @Transactional
     public void deleteProduct(Long id) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
         productRepository.delete(product);
+        afterCommit(() -> {
+            productSearchIndex.remove(id);
+            productSuggestIndex.remove(id);
+        });
+        catalogSnapshotHolder.productDeleted(id);
+        outboxService.productDeleted(id);
+    }
+
+    // Индексы поиска меняются только после коммита: откат (например, FK при удалении) их не рассинхронизирует
+    private void indexAfterCommit(Product product) {
+        afterCommit(() -> {
+            productSearchIndex.index(product);
+            productSuggestIndex.index(product);
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // Товары по id из снимка каталога, в порядке ранжирования
+    private List<Product> loadInOrder(List<Long> ids) {
+        CatalogSnapshot snapshot = catalogSnapshotHolder.current();
+        return ids.stream()
+                .map(id -> snapshot.getProduct(id).orElse(null))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private static Page<Product> toPage(List<Product> products, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(products, pageable, products.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), products.size());
+        int to = Math.min(from + pageable.getPageSize(), products.size());
+        return new PageImpl<>(List.copyOf(products.subList(from, to)), pageable, products.size());
+    }
+
+    private static Comparator<Product> productComparator(Sort.Order order) {
+        Comparator<Product> comparator = switch (order.getProperty()) {
+            case "createdAt" -> Comparator.comparing(Product::getCreatedAt,
+                    Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()));
+            case "price" -> Comparator.comparing(Product::getPrice);
+            case "name" -> Comparator.comparing(Product::getName);
+            default -> Comparator.comparing(Product::getId);
+        };
+        return order.isAscending() ? comparator : comparator.reversed();
     }
 }
\ No newline at end of file
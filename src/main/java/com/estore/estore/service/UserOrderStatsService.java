@@ -0,0 +1,144 @@
+package com.estore.estore.service;
+
+import com.estore.estore.model.Order;
+import com.estore.estore.model.UserOrderStats;
+import com.estore.estore.repository.UserOrderStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Агрегат заказов пользователя (user_order_stats): число и сумма неотмененных заказов
+ * и время последнего заказа. Изменения применяются в транзакции самого заказа
+ * атомарным upsert-ом, поэтому профиль не читает заказы вовсе. Дельты и пересчет
+ * одного диапазона пользователей сериализуются advisory-блокировками.
+ */
+@Service
+public class UserOrderStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserOrderStatsService.class);
+
+    @Value("${app.user-order-stats.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    @Autowired
+    private UserOrderStatsRepository userOrderStatsRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Transactional(readOnly = true)
+    public Optional<UserOrderStats> getStats(Long userId) {
+        return userOrderStatsRepository.findById(userId);
+    }
+
+    @Transactional
+    public void orderPlaced(Order order) {
+        ordersPlaced(List.of(order));
+    }
+
+    // Пачка новых заказов (флеш-распродажа) — один upsert на всю пачку
+    @Transactional
+    public void ordersPlaced(Collection<Order> orders) {
+        Map<Long, Delta> deltas = new TreeMap<>();
+        for (Order order : orders) {
+            if (order.getStatus() != Order.OrderStatus.CANCELLED) {
+                deltas.computeIfAbsent(order.getUser().getId(), id -> new Delta())
+                        .add(1, order.getTotalAmount(), order.getCreatedAt());
+            }
+        }
+        apply(deltas);
+    }
+
+    // Переход в CANCELLED и обратно меняет число и сумму; остальные смены статуса агрегат не трогают
+    @Transactional
+    public void statusChanged(Order order, Order.OrderStatus previous) {
+        boolean wasCounted = previous != Order.OrderStatus.CANCELLED;
+        boolean isCounted = order.getStatus() != Order.OrderStatus.CANCELLED;
+        if (wasCounted == isCounted) {
+            return;
+        }
+
+        Delta delta = new Delta();
+        if (isCounted) {
+            delta.add(1, order.getTotalAmount(), null);
+        } else {
+            delta.add(-1, order.getTotalAmount().negate(), null);
+        }
+        apply(Map.of(order.getUser().getId(), delta));
+    }
+
+    /**
+     * Пересчитать агрегаты из orders диапазонами user_id, по транзакции на диапазон.
+     * Идемпотентен: можно запускать повторно для сверки или после ручных правок заказов.
+     */
+    public int rebuildAll() {
+        long maxUserId = userOrderStatsRepository.findMaxUserId();
+        int rebuilt = 0;
+        long started = System.currentTimeMillis();
+
+        for (long fromId = 1; fromId <= maxUserId; fromId += rebuildBatchSize) {
+            long from = fromId;
+            long to = fromId + rebuildBatchSize - 1;
+            Integer count = transactionTemplate.execute(status -> {
+                userOrderStatsRepository.lockRange(from, to);
+                userOrderStatsRepository.deleteOrphansInRange(from, to);
+                return userOrderStatsRepository.rebuildRange(from, to);
+            });
+            rebuilt += count == null ? 0 : count;
+        }
+
+        log.info("User order stats rebuilt for {} users in {} ms", rebuilt, System.currentTimeMillis() - started);
+        return rebuilt;
+    }
+
+    private void apply(Map<Long, Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        int size = deltas.size();
+        Long[] userIds = new Long[size];
+        Integer[] counts = new Integer[size];
+        BigDecimal[] amounts = new BigDecimal[size];
+        LocalDateTime[] lastOrderAt = new LocalDateTime[size];
+
+        int i = 0;
+        for (Map.Entry<Long, Delta> entry : deltas.entrySet()) {
+            userIds[i] = entry.getKey();
+            counts[i] = entry.getValue().count;
+            amounts[i] = entry.getValue().amount;
+            lastOrderAt[i] = entry.getValue().lastOrderAt;
+            i++;
+        }
+        // До коммита заказа пересчет диапазона ждет, иначе он перезаписал бы дельту
+        userOrderStatsRepository.lockUsersShared(userIds);
+        userOrderStatsRepository.applyDeltas(userIds, counts, amounts, lastOrderAt);
+    }
+
+    private static final class Delta {
+        private int count;
+        private BigDecimal amount = BigDecimal.ZERO;
+        private LocalDateTime lastOrderAt;
+
+        void add(int count, BigDecimal amount, LocalDateTime orderedAt) {
+            this.count += count;
+            this.amount = this.amount.add(amount);
+            if (orderedAt != null && (lastOrderAt == null || orderedAt.isAfter(lastOrderAt))) {
+                lastOrderAt = orderedAt;
+            }
+        }
+    }
+}
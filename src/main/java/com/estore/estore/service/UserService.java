@@ -4,17 +4,16 @@ import com.estore.estore.dto.request.UpdateProfileRequest;
 import com.estore.estore.dto.response.UserProfileResponse;
 import com.estore.estore.exception.DuplicateResourceException;
 import com.estore.estore.exception.ResourceNotFoundException;
-import com.estore.estore.model.Order;
 import com.estore.estore.model.Role;
 import com.estore.estore.model.User;
-import com.estore.estore.repository.OrderRepository;
+import com.estore.estore.model.UserOrderStats;
 import com.estore.estore.repository.UserRepository;
+import com.estore.estore.security.CurrentUserResolver;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,11 +26,14 @@ public class UserService {
     private UserRepository userRepository;
 
     @Autowired
-    private OrderRepository orderRepository;
+    private UserOrderStatsService userOrderStatsService;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private CurrentUserResolver currentUserResolver;
+
     // ============ МЕТОДЫ ДЛЯ УПРАВЛЕНИЯ ПОЛЬЗОВАТЕЛЯМИ (АДМИН) ============
 
     /**
@@ -148,31 +150,16 @@ public class UserService {
      * Получить профиль текущего пользователя со статистикой
      */
     public UserProfileResponse getCurrentUserProfile() {
-        User user = getCurrentUser();
-
-        // Получаем статистику заказов
-        List<Order> userOrders = orderRepository.findByUserId(user.getId());
-        int totalOrders = userOrders.size();
-        double totalSpent = userOrders.stream()
-                .mapToDouble(order -> order.getTotalAmount().doubleValue())
-                .sum();
+        User user = currentUserResolver.loadUser();
 
-        return new UserProfileResponse(
-                user.getId(),
-                user.getUsername(),
-                user.getEmail(),
-                user.getRole().toString(),
-                user.getCreatedAt(),
-                totalOrders,
-                totalSpent
-        );
+        return toProfile(user);
     }
 
     /**
      * Получить базовую информацию о текущем пользователе
      */
     public Map<String, Object> getCurrentUserInfo() {
-        User user = getCurrentUser();
+        User user = currentUserResolver.loadUser();
 
         Map<String, Object> userInfo = new HashMap<>();
         userInfo.put("id", user.getId());
@@ -189,7 +176,7 @@ public class UserService {
      * Обновить профиль текущего пользователя
      */
     public UserProfileResponse updateCurrentUserProfile(UpdateProfileRequest request) {
-        User user = getCurrentUser();
+        User user = currentUserResolver.loadUser();
 
         // Проверяем, изменился ли username
         if (!user.getUsername().equals(request.getUsername())) {
@@ -212,12 +199,12 @@ public class UserService {
         // Сохраняем изменения
         user = userRepository.save(user);
 
-        // Получаем статистику заказов
-        List<Order> userOrders = orderRepository.findByUserId(user.getId());
-        int totalOrders = userOrders.size();
-        double totalSpent = userOrders.stream()
-                .mapToDouble(order -> order.getTotalAmount().doubleValue())
-                .sum();
+        return toProfile(user);
+    }
+
+    // Статистика заказов — из агрегата user_order_stats, заказы не загружаются
+    private UserProfileResponse toProfile(User user) {
+        UserOrderStats stats = userOrderStatsService.getStats(user.getId()).orElse(null);
 
         return new UserProfileResponse(
                 user.getId(),
@@ -225,20 +212,9 @@ public class UserService {
                 user.getEmail(),
                 user.getRole().toString(),
                 user.getCreatedAt(),
-                totalOrders,
-                totalSpent
+                stats == null ? 0 : stats.getOrderCount(),
+                stats == null ? BigDecimal.ZERO : stats.getTotalSpent(),
+                stats == null ? null : stats.getLastOrderAt()
         );
     }
-
-    // ============ ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ============
-
-    /**
-     * Получить текущего аутентифицированного пользователя
-     */
-    private User getCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found: " + username));
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+-- Активные флеш-распродажи. Остаток, перенесенный со склада в секвенсор, хранится здесь
+-- и уменьшается в транзакции каждой сохраненной пачки заказов: после падения приложения
+-- при старте распродажа продолжается с этим остатком (или он возвращается на склад).
+CREATE TABLE flash_sales (
+    product_id      BIGINT         PRIMARY KEY REFERENCES products (id),
+    price           NUMERIC(38, 2) NOT NULL,
+    remaining_stock BIGINT         NOT NULL CHECK (remaining_stock >= 0),
+    started_at      TIMESTAMP(6)   NOT NULL
+);
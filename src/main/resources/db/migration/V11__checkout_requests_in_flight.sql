@@ -0,0 +1,6 @@
+-- Одна и та же корзина пользователя не может стоять в очереди дважды:
+-- повторное нажатие "Оформить" без Idempotency-Key, пока первый запрос в ACCEPTED
+-- или PROCESSING, упирается в этот индекс и получает уже принятый запрос.
+-- Снимок корзины записывается отсортированным по товару, поэтому массивы сравнимы.
+CREATE UNIQUE INDEX uk_checkout_requests_user_in_flight ON checkout_requests (user_id, product_ids, quantities)
+    WHERE status IN ('ACCEPTED', 'PROCESSING');
@@ -0,0 +1,71 @@
+-- Базовая схема: таблицы в том виде, в каком их создавал ddl-auto=update.
+-- На существующей БД эта миграция не выполняется, а помечается как baseline
+-- (spring.flyway.baseline-on-migrate=true), дальше применяются V2+.
+
+CREATE TABLE users (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username   VARCHAR(255) NOT NULL,
+    email      VARCHAR(255) NOT NULL,
+    password   VARCHAR(255) NOT NULL,
+    role       VARCHAR(255) CHECK (role IN ('ROLE_USER', 'ROLE_ADMIN')),
+    enabled    BOOLEAN      NOT NULL,
+    created_at TIMESTAMP(6),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE categories (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name        VARCHAR(255) NOT NULL,
+    description VARCHAR(255),
+    created_at  TIMESTAMP(6),
+    CONSTRAINT uk_categories_name UNIQUE (name)
+);
+
+CREATE TABLE products (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name           VARCHAR(255)   NOT NULL,
+    description    VARCHAR(1000),
+    price          NUMERIC(10, 2) NOT NULL,
+    model          VARCHAR(255)   NOT NULL,
+    category_id    BIGINT REFERENCES categories (id),
+    stock_quantity INTEGER,
+    image_url      VARCHAR(255),
+    created_at     TIMESTAMP(6),
+    updated_at     TIMESTAMP(6)
+);
+
+CREATE INDEX idx_products_created_at_id ON products (created_at, id);
+CREATE INDEX idx_products_price_id ON products (price, id);
+CREATE INDEX idx_products_category_created_at_id ON products (category_id, created_at, id);
+
+-- Заказы и позиции берут id пачками по 50 (allocationSize), чтобы вставки шли JDBC batch
+CREATE SEQUENCE orders_id_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE order_items_id_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE orders (
+    id               BIGINT PRIMARY KEY,
+    user_id          BIGINT REFERENCES users (id),
+    total_amount     NUMERIC(38, 2),
+    status           VARCHAR(255) CHECK (status IN ('PENDING', 'CONFIRMED', 'SHIPPED', 'DELIVERED', 'CANCELLED')),
+    created_at       TIMESTAMP(6),
+    shipping_address VARCHAR(500),
+    notes            VARCHAR(1000)
+);
+
+CREATE TABLE order_items (
+    id         BIGINT PRIMARY KEY,
+    order_id   BIGINT REFERENCES orders (id),
+    product_id BIGINT REFERENCES products (id),
+    quantity   INTEGER,
+    price      NUMERIC(38, 2)
+);
+
+CREATE TABLE cart_items (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id    BIGINT REFERENCES users (id),
+    product_id BIGINT REFERENCES products (id),
+    quantity   INTEGER,
+    added_at   TIMESTAMP(6),
+    CONSTRAINT uk_cart_items_user_product UNIQUE (user_id, product_id)
+);
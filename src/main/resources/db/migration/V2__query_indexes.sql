@@ -0,0 +1,63 @@
+-- Индексы под горячие запросы. IF NOT EXISTS — на БД, созданных ddl-auto,
+-- часть объектов может уже существовать.
+
+-- Корзина: одна строка на (пользователь, товар) — на этом держится ON CONFLICT при сбросе корзин.
+-- На старых БД могли остаться дубли: оставляем самую свежую строку.
+DELETE FROM cart_items c
+USING cart_items d
+WHERE c.user_id = d.user_id
+  AND c.product_id = d.product_id
+  AND c.id < d.id;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_cart_items_user_product') THEN
+        ALTER TABLE cart_items ADD CONSTRAINT uk_cart_items_user_product UNIQUE (user_id, product_id);
+    END IF;
+END $$;
+
+CREATE INDEX IF NOT EXISTS idx_cart_items_product_id ON cart_items (product_id);
+
+-- История заказов пользователя (WHERE user_id ORDER BY created_at DESC) и общий список для админа
+CREATE INDEX IF NOT EXISTS idx_orders_user_created_at ON orders (user_id, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_orders_created_at_id ON orders (created_at, id);
+
+-- Позиции заказа по заказу (загрузка заказа) и по товару (сверка остатков, удаление товара)
+CREATE INDEX IF NOT EXISTS idx_order_items_order_id ON order_items (order_id);
+CREATE INDEX IF NOT EXISTS idx_order_items_product_id ON order_items (product_id);
+
+-- Каталог: листинг категории и поиск по модели (модель уникальна — ProductService проверяет existsByModel)
+CREATE INDEX IF NOT EXISTS idx_products_category_created_at_id ON products (category_id, created_at, id);
+
+-- На старых БД модель не была уникальной. Товары нельзя удалить (на них ссылаются заказы),
+-- поэтому дубли переименовываются: модель остается у самого старого товара, остальные
+-- получают суффикс "-<id>". Переименованные товары перечисляются в логе миграции.
+DO $$
+DECLARE
+    duplicate RECORD;
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uk_products_model') THEN
+        FOR duplicate IN
+            SELECT p.id, p.model
+            FROM products p
+            WHERE EXISTS (SELECT 1 FROM products o WHERE o.model = p.model AND o.id < p.id)
+            ORDER BY p.id
+        LOOP
+            UPDATE products
+            SET model = left(duplicate.model, 255 - length('-' || duplicate.id)) || '-' || duplicate.id
+            WHERE id = duplicate.id;
+            RAISE NOTICE 'Duplicate product model "%" of product % renamed to make uk_products_model unique',
+                duplicate.model, duplicate.id;
+        END LOOP;
+
+        IF EXISTS (SELECT 1 FROM products GROUP BY model HAVING COUNT(*) > 1) THEN
+            RAISE EXCEPTION 'products.model still has duplicates after renaming; resolve them manually before adding uk_products_model';
+        END IF;
+
+        ALTER TABLE products ADD CONSTRAINT uk_products_model UNIQUE (model);
+    END IF;
+END $$;
+
+-- Старые БД создавали эти последовательности с шагом 1; Hibernate берет id пачками по 50
+ALTER SEQUENCE orders_id_seq INCREMENT BY 50;
+ALTER SEQUENCE order_items_id_seq INCREMENT BY 50;
@@ -0,0 +1,18 @@
+-- Агрегат заказов пользователя для профиля: число и сумма неотмененных заказов,
+-- время последнего заказа. Обновляется в транзакции заказа (UserOrderStatsService).
+CREATE TABLE user_order_stats (
+    user_id       BIGINT PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE,
+    order_count   INTEGER        NOT NULL DEFAULT 0,
+    total_spent   NUMERIC(38, 2) NOT NULL DEFAULT 0,
+    last_order_at TIMESTAMP(6)
+);
+
+-- Первичное заполнение из уже существующих заказов
+INSERT INTO user_order_stats (user_id, order_count, total_spent, last_order_at)
+SELECT o.user_id,
+       COUNT(*) FILTER (WHERE o.status <> 'CANCELLED'),
+       COALESCE(SUM(o.total_amount) FILTER (WHERE o.status <> 'CANCELLED'), 0),
+       MAX(o.created_at)
+FROM orders o
+WHERE o.user_id IS NOT NULL
+GROUP BY o.user_id;
@@ -0,0 +1,9 @@
+-- Список заказов для админа: keyset по (created_at, id) от новых к старым
+-- с фильтром по статусу или пользователю. id в конце индекса — чтобы позиция
+-- курсора (created_at, id) < (?, ?) проверялась по индексу без сортировки.
+CREATE INDEX IF NOT EXISTS idx_orders_status_created_at_id ON orders (status, created_at, id);
+
+-- Заменяет idx_orders_user_created_at: тот же префикс, плюс id для курсора.
+-- История пользователя (ORDER BY created_at DESC) читает его обратным сканом.
+CREATE INDEX IF NOT EXISTS idx_orders_user_created_at_id ON orders (user_id, created_at, id);
+DROP INDEX IF EXISTS idx_orders_user_created_at;
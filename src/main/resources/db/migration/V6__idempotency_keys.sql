@@ -0,0 +1,17 @@
+-- Ключи идемпотентности создания заказа (заголовок Idempotency-Key).
+-- Строка вставляется в транзакции заказа, поэтому параллельный дубль с другого
+-- экземпляра ждет на ее блокировке, а после коммита читает сохраненный ответ.
+-- order_id без внешнего ключа: Hibernate вставляет заказ при flush, уже после этой строки.
+CREATE TABLE idempotency_keys (
+    user_id      BIGINT       NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    idem_key     VARCHAR(255) NOT NULL,
+    request_hash VARCHAR(64)  NOT NULL,
+    order_id     BIGINT,
+    response     TEXT,
+    created_at   TIMESTAMP(6) NOT NULL,
+    expires_at   TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (user_id, idem_key)
+);
+
+-- Удаление просроченных ключей (IdempotencyService.evictExpired)
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
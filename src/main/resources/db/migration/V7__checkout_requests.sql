@@ -0,0 +1,28 @@
+-- Очередь асинхронного оформления заказов (app.checkout.mode=async).
+-- Запрос хранит снимок корзины массивами (товар, количество, цена), воркеры
+-- забирают его пачками через FOR UPDATE SKIP LOCKED. PROCESSING с истекшей арендой
+-- (воркер упал) возвращается в ACCEPTED, поэтому очередь переживает рестарт.
+CREATE TABLE checkout_requests (
+    id               BIGSERIAL PRIMARY KEY,
+    user_id          BIGINT        NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    status           VARCHAR(20)   NOT NULL CHECK (status IN ('ACCEPTED', 'PROCESSING', 'COMPLETED', 'FAILED')),
+    idempotency_key  VARCHAR(255),
+    shipping_address VARCHAR(500)  NOT NULL,
+    notes            VARCHAR(1000),
+    product_ids      BIGINT[]      NOT NULL,
+    quantities       INTEGER[]     NOT NULL,
+    prices           NUMERIC(38, 2)[] NOT NULL,
+    order_id         BIGINT,
+    error            VARCHAR(500),
+    attempts         INTEGER       NOT NULL DEFAULT 0,
+    created_at       TIMESTAMP(6)  NOT NULL,
+    updated_at       TIMESTAMP(6)  NOT NULL
+);
+
+-- Выборка очереди по порядку поступления и поиск зависших запросов
+CREATE INDEX idx_checkout_requests_accepted ON checkout_requests (id) WHERE status = 'ACCEPTED';
+CREATE INDEX idx_checkout_requests_processing ON checkout_requests (updated_at) WHERE status = 'PROCESSING';
+
+-- Повтор POST /api/orders с тем же Idempotency-Key возвращает уже принятый запрос
+CREATE UNIQUE INDEX uk_checkout_requests_user_key ON checkout_requests (user_id, idempotency_key)
+    WHERE idempotency_key IS NOT NULL;
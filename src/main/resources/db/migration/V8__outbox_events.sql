@@ -0,0 +1,16 @@
+-- Transactional outbox: доменные события заказов и каталога пишутся в транзакции
+-- изменения и доставляются OutboxRelay по порядку id (at-least-once).
+CREATE TABLE outbox_events (
+    id             BIGSERIAL PRIMARY KEY,
+    aggregate_type VARCHAR(50)  NOT NULL,
+    aggregate_id   BIGINT       NOT NULL,
+    event_type     VARCHAR(100) NOT NULL,
+    payload        TEXT         NOT NULL,
+    created_at     TIMESTAMP(6) NOT NULL,
+    published_at   TIMESTAMP(6)
+);
+
+-- Очередь релея: только недоставленные события
+CREATE INDEX idx_outbox_events_pending ON outbox_events (id) WHERE published_at IS NULL;
+-- Удаление доставленных событий старше срока хранения
+CREATE INDEX idx_outbox_events_published_at ON outbox_events (published_at) WHERE published_at IS NOT NULL;
@@ -0,0 +1,50 @@
+-- Delta-sync каталога (GET /api/products/changes).
+-- Каждая строка products/categories помечается id транзакции, которая изменила ее последней.
+-- Пишут триггеры, поэтому учитываются и нативные UPDATE остатков (decrementStock/incrementStock).
+-- В JPA-сущностях колонка не отображается: Hibernate ее не пишет, а validate лишние колонки пропускает.
+ALTER TABLE categories ADD COLUMN change_xid BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE products ADD COLUMN change_xid BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX idx_categories_change_xid_id ON categories (change_xid, id);
+CREATE INDEX idx_products_change_xid_id ON products (change_xid, id);
+
+-- Удаленные товары и категории; хранятся app.catalog.changes.tombstone-retention-hours.
+-- COLLATE "C": порядок 'CATEGORY' < 'PRODUCT' в ключе ленты не зависит от локали БД
+CREATE TABLE catalog_tombstones (
+    entity_type VARCHAR(20) COLLATE "C" NOT NULL,
+    entity_id   BIGINT                  NOT NULL,
+    change_xid  BIGINT                  NOT NULL,
+    deleted_at  TIMESTAMP(6)            NOT NULL,
+    PRIMARY KEY (entity_type, entity_id)
+);
+
+CREATE INDEX idx_catalog_tombstones_change ON catalog_tombstones (change_xid, entity_type, entity_id);
+CREATE INDEX idx_catalog_tombstones_deleted_at ON catalog_tombstones (deleted_at);
+
+CREATE FUNCTION catalog_mark_changed() RETURNS trigger AS $$
+BEGIN
+    NEW.change_xid := pg_current_xact_id()::text::bigint;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- TG_ARGV[0] — тип сущности в ленте (CATEGORY / PRODUCT)
+CREATE FUNCTION catalog_record_tombstone() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO catalog_tombstones (entity_type, entity_id, change_xid, deleted_at)
+    VALUES (TG_ARGV[0], OLD.id, pg_current_xact_id()::text::bigint, now())
+    ON CONFLICT (entity_type, entity_id)
+        DO UPDATE SET change_xid = EXCLUDED.change_xid, deleted_at = EXCLUDED.deleted_at;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_categories_changed BEFORE INSERT OR UPDATE ON categories
+    FOR EACH ROW EXECUTE FUNCTION catalog_mark_changed();
+CREATE TRIGGER trg_products_changed BEFORE INSERT OR UPDATE ON products
+    FOR EACH ROW EXECUTE FUNCTION catalog_mark_changed();
+
+CREATE TRIGGER trg_categories_deleted AFTER DELETE ON categories
+    FOR EACH ROW EXECUTE FUNCTION catalog_record_tombstone('CATEGORY');
+CREATE TRIGGER trg_products_deleted AFTER DELETE ON products
+    FOR EACH ROW EXECUTE FUNCTION catalog_record_tombstone('PRODUCT');
@@ -13,6 +13,8 @@ class CartPageComponent {
         await window.cart.load();
        
         this.renderCart();
+
+        window.cart.watchLiveChanges(() => this.renderCart());
     }
 
     
@@ -117,6 +117,34 @@ class SimpleCart {
         return total;
     }
 
+    // Подписка на цены и остатки товаров в корзине (SSE), повторный вызов переподписывает
+    watchLiveChanges(onChange) {
+        if (this.unsubscribeLive) {
+            this.unsubscribeLive();
+            this.unsubscribeLive = null;
+        }
+        if (!window.LiveStockService || this.items.length === 0) return;
+
+        const productIds = this.items.map(item => item.id);
+        this.unsubscribeLive = LiveStockService.subscribe({ productIds }, changes => {
+            let updated = false;
+            changes.forEach(change => {
+                const item = this.items.find(i => i.id === change.productId);
+                if (!item || change.deleted) return;
+
+                item.price = change.price;
+                item.stockQuantity = change.stockQuantity;
+                item.subTotal = item.price * (item.quantity || 1);
+                updated = true;
+            });
+
+            if (updated) {
+                this.totalAmount = this.items.reduce((sum, item) => sum + item.subTotal, 0);
+                if (onChange) onChange();
+            }
+        });
+    }
+
     async updateQuantity(productId, quantity) {
         if (!CartService || !CartService.isAuthenticated()) {
             throw new Error('Необходима авторизация для обновления корзины');
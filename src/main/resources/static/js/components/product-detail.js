@@ -168,6 +168,10 @@ class ProductDetailComponent {
             this.currentProduct = product;
             this.renderProduct(product);
 
+            if (window.LiveStockService) {
+                LiveStockService.subscribe({ productIds: [product.id] }, changes => this.applyLiveChanges(changes));
+            }
+
         } catch (error) {
             console.error('Ошибка загрузки товара:', error);
             this.showError('Ошибка загрузки товара: ' + error.message);
@@ -326,6 +330,23 @@ class ProductDetailComponent {
             }
         }
 
+    // Изменения цены и остатка по SSE; в режиме редактирования форму не трогаем
+    static applyLiveChanges(changes) {
+        const change = changes.find(c => this.currentProduct && c.productId === this.currentProduct.id);
+        if (!change) return;
+
+        if (change.deleted) {
+            this.showError('Товар больше не продается');
+            return;
+        }
+
+        this.currentProduct.price = change.price;
+        this.currentProduct.stockQuantity = change.stockQuantity;
+        if (!this.isEditMode) {
+            this.renderProduct(this.currentProduct);
+        }
+    }
+
     static async addToCart() {
         if (!this.currentProduct) {
             this.showNotification('Товар не загружен', 'error');
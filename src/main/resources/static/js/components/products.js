@@ -4,6 +4,10 @@ class ProductsComponent {
     static activeQuery = '';
     static currentPage = 1;
     static itemsPerPage = 8;
+    static unsubscribeLive = null;
+    static liveProductIds = '';
+    static suggestTimer = null;
+    static suggestRequest = null;
 
     static async init() {
         console.log('Initializing ProductsComponent');
@@ -90,6 +94,7 @@ class ProductsComponent {
                 </div>
             `;
             this.renderPagination(0);
+            this.subscribeLive([]);
             return;
         }
 
@@ -130,6 +135,7 @@ class ProductsComponent {
         container.innerHTML = html;
         
         this.renderPagination(totalPages);
+        this.subscribeLive(paginatedProducts.map(product => product.id));
         
         this.attachCartHandlers();
         const style = document.createElement('style');
@@ -147,6 +153,73 @@ class ProductsComponent {
         document.head.appendChild(style);
     }
 
+    // Цены и остатки обновляются по SSE только для карточек текущей страницы
+    static subscribeLive(productIds) {
+        if (!window.LiveStockService) return;
+
+        const key = productIds.join(',');
+        if (key === this.liveProductIds && (this.unsubscribeLive || productIds.length === 0)) return;
+
+        if (this.unsubscribeLive) {
+            this.unsubscribeLive();
+            this.unsubscribeLive = null;
+        }
+        this.liveProductIds = key;
+        if (productIds.length > 0) {
+            this.unsubscribeLive = LiveStockService.subscribe({ productIds }, changes => this.applyLiveChanges(changes));
+        }
+    }
+
+    static applyLiveChanges(changes) {
+        let removed = false;
+
+        changes.forEach(change => {
+            const index = this.productsCache.findIndex(p => p.id === change.productId);
+            if (index === -1) return;
+
+            if (change.deleted) {
+                this.productsCache.splice(index, 1);
+                removed = true;
+                return;
+            }
+
+            const product = this.productsCache[index];
+            product.price = change.price;
+            product.stockQuantity = change.stockQuantity;
+            this.updateProductCard(product);
+        });
+
+        // Удаленный товар сдвигает страницу — перерисовываем целиком
+        if (removed) {
+            this.renderProducts(this.applyFilters());
+        }
+    }
+
+    static updateProductCard(product) {
+        const card = document.querySelector(`.product-card[data-id="${product.id}"]`);
+        if (!card) return;
+
+        const inStock = product.stockQuantity > 0;
+
+        const price = card.querySelector('.product-price');
+        if (price) {
+            price.textContent = `${this.formatPrice(product.price)} BYN`;
+        }
+
+        const stock = card.querySelector('.product-stock');
+        if (stock) {
+            stock.classList.toggle('in-stock', inStock);
+            stock.classList.toggle('out-of-stock', !inStock);
+            stock.textContent = inStock ? `В наличии: ${product.stockQuantity} шт.` : 'Нет в наличии';
+        }
+
+        const button = card.querySelector('.add-to-cart-btn');
+        if (button) {
+            button.disabled = !inStock;
+            button.textContent = inStock ? 'В корзину' : 'Нет в наличии';
+        }
+    }
+
     static attachCartHandlers() {
         const addToCartButtons = document.querySelectorAll('.add-to-cart-btn');
         addToCartButtons.forEach(button => {
@@ -244,6 +317,49 @@ class ProductsComponent {
         this.renderProducts(filtered);
     }
 
+    // Подсказки в datalist поля поиска: запрос после паузы в наборе, устаревший отменяется
+    static loadSuggestions(query) {
+        clearTimeout(this.suggestTimer);
+        const datalist = document.getElementById('searchSuggestions');
+        if (!datalist) return;
+
+        if (query.trim().length < 2) {
+            datalist.innerHTML = '';
+            return;
+        }
+
+        this.suggestTimer = setTimeout(async () => {
+            if (this.suggestRequest) {
+                this.suggestRequest.abort();
+            }
+            this.suggestRequest = new AbortController();
+
+            try {
+                const response = await fetch(
+                    `http://localhost:8080/api/products/suggest?q=${encodeURIComponent(query)}`,
+                    { signal: this.suggestRequest.signal });
+                if (!response.ok) return;
+
+                const suggestions = await response.json();
+                datalist.innerHTML = '';
+                suggestions.forEach(suggestion => {
+                    const option = document.createElement('option');
+                    option.value = suggestion.text;
+                    if (suggestion.type === 'CATEGORY') {
+                        option.label = 'Категория';
+                    } else if (suggestion.model) {
+                        option.label = suggestion.model;
+                    }
+                    datalist.appendChild(option);
+                });
+            } catch (error) {
+                if (error.name !== 'AbortError') {
+                    console.error('Failed to load suggestions:', error);
+                }
+            }
+        }, 150);
+    }
+
     static formatPrice(price) {
         return new Intl.NumberFormat('ru-RU').format(price);
     }
@@ -0,0 +1,49 @@
+class LiveStockService {
+    static STREAM_URL = 'http://localhost:8080/api/products/stream';
+
+    // Подписка на изменения цены и остатка (SSE) вместо повторных запросов к /api/products.
+    // Без productIds и categoryIds — весь каталог. Возвращает функцию отписки.
+    static subscribe({ productIds = [], categoryIds = [] } = {}, onChanges) {
+        if (typeof EventSource === 'undefined') {
+            console.warn('EventSource is not supported, live updates are disabled');
+            return () => {};
+        }
+
+        const params = new URLSearchParams();
+        if (productIds.length > 0) {
+            params.set('productIds', productIds.join(','));
+        }
+        if (categoryIds.length > 0) {
+            params.set('categoryIds', categoryIds.join(','));
+        }
+        const query = params.toString();
+        const source = new EventSource(query ? `${this.STREAM_URL}?${query}` : this.STREAM_URL);
+
+        source.addEventListener('changes', (event) => {
+            try {
+                const changes = JSON.parse(event.data).map(change => ({
+                    productId: change.productId,
+                    categoryId: change.categoryId,
+                    price: change.price !== null ? parseFloat(change.price) : null,
+                    stockQuantity: change.stockQuantity,
+                    deleted: change.deleted
+                }));
+                onChanges(changes);
+            } catch (error) {
+                console.error('Failed to apply live changes:', error);
+            }
+        });
+
+        // EventSource переподключается сам
+        source.onerror = () => console.log('Live stock stream disconnected, reconnecting...');
+
+        const close = () => {
+            source.close();
+            window.removeEventListener('beforeunload', close);
+        };
+        window.addEventListener('beforeunload', close);
+        return close;
+    }
+}
+
+window.LiveStockService = LiveStockService;
@@ -0,0 +1,171 @@
+package com.estore.estore.analytics;
+
+import com.estore.estore.catalog.CatalogSnapshotHolder;
+import com.estore.estore.dto.request.OrderRequest;
+import com.estore.estore.dto.response.OrderResponse;
+import com.estore.estore.dto.response.SalesStatsResponse;
+import com.estore.estore.model.CartItem;
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Order;
+import com.estore.estore.model.Product;
+import com.estore.estore.model.User;
+import com.estore.estore.repository.CartItemRepository;
+import com.estore.estore.repository.CategoryRepository;
+import com.estore.estore.repository.OrderRepository;
+import com.estore.estore.repository.ProductRepository;
+import com.estore.estore.repository.UserRepository;
+import com.estore.estore.security.UserPrincipal;
+import com.estore.estore.service.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class SalesAnalyticsServiceTests {
+
+    @Autowired
+    private SalesAnalyticsService salesAnalyticsService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CatalogSnapshotHolder catalogSnapshotHolder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final String prefix = "sales-" + System.nanoTime();
+    private User user;
+    private Category category;
+    private Category otherCategory;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(new Category(prefix, "sales test"));
+        otherCategory = categoryRepository.save(new Category(prefix + "-other", "sales test"));
+
+        product = new Product(prefix, "sales test", new BigDecimal("9.99"), prefix, 100);
+        product.setCategory(category);
+        product = productRepository.save(product);
+
+        user = userRepository.save(new User(prefix, prefix + "@test.local", "secret123"));
+        catalogSnapshotHolder.rebuild();
+
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        UserPrincipal principal = new UserPrincipal(user.getId(), user.getUsername(), null, null, authorities);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, authorities));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        orderRepository.deleteAll(orderRepository.findByUserId(user.getId()));
+        cartItemRepository.deleteAll(cartItemRepository.findByUserId(user.getId()));
+        userRepository.delete(user);
+        jdbcTemplate.update("DELETE FROM sales_rollup_product WHERE product_id = ?", product.getId());
+        jdbcTemplate.update("DELETE FROM sales_rollup_category WHERE category_id IN (?, ?)",
+                category.getId(), otherCategory.getId());
+        productRepository.deleteById(product.getId());
+        categoryRepository.delete(category);
+        categoryRepository.delete(otherCategory);
+        catalogSnapshotHolder.rebuild();
+    }
+
+    @Test
+    void flushesProductSoldUnderTwoCategoriesIntoOneRow() {
+        double failuresBefore = meterRegistry.get("analytics.rollup.flush.failures").counter().count();
+
+        placeOrder(1);
+        // Товар переносят в другую категорию, пока первая дельта еще в буфере
+        product.setCategory(otherCategory);
+        product = productRepository.save(product);
+        catalogSnapshotHolder.rebuild();
+        placeOrder(2);
+
+        salesAnalyticsService.flush();
+
+        assertThat(meterRegistry.get("analytics.rollup.flush.failures").counter().count()).isEqualTo(failuresBefore);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT category_id, units FROM sales_rollup_product WHERE product_id = ? AND granularity = 'DAY'",
+                product.getId());
+        assertThat(rows).isNotEmpty();
+        assertThat(rows).allSatisfy(row ->
+                assertThat(((Number) row.get("category_id")).longValue()).isEqualTo(otherCategory.getId()));
+        assertThat(rows.stream().mapToLong(row -> ((Number) row.get("units")).longValue()).sum()).isEqualTo(3);
+    }
+
+    @Test
+    void incrementalRollupsMatchRebuild() {
+        placeOrder(2);
+        OrderResponse shipped = placeOrder(3);
+        OrderResponse cancelled = placeOrder(1);
+        orderService.updateOrderStatus(shipped.getId(), Order.OrderStatus.SHIPPED);
+        orderService.cancelOrder(cancelled.getId());
+        salesAnalyticsService.flush();
+
+        LocalDateTime from = LocalDateTime.now().minusDays(1);
+        LocalDateTime to = LocalDateTime.now().plusHours(1);
+        SalesStatsResponse incremental = salesAnalyticsService.getStats(from, to, category.getId(), null, 10);
+
+        assertThat(incremental.getOrdersByStatus()).containsEntry("PENDING", 1L)
+                .containsEntry("SHIPPED", 1L).containsEntry("CANCELLED", 1L);
+        assertThat(incremental.getOrderCount()).isEqualTo(2);
+        assertThat(incremental.getUnitsSold()).isEqualTo(5);
+        assertThat(incremental.getRevenue()).isEqualByComparingTo("49.95");
+
+        salesAnalyticsService.rebuild(from, to);
+        SalesStatsResponse rebuilt = salesAnalyticsService.getStats(from, to, category.getId(), null, 10);
+
+        assertThat(rebuilt.getOrdersByStatus()).isEqualTo(incremental.getOrdersByStatus());
+        assertThat(rebuilt.getOrderCount()).isEqualTo(incremental.getOrderCount());
+        assertThat(rebuilt.getUnitsSold()).isEqualTo(incremental.getUnitsSold());
+        assertThat(rebuilt.getRevenue()).isEqualByComparingTo(incremental.getRevenue());
+        assertThat(rebuilt.getTopProducts()).hasSize(1);
+        assertThat(rebuilt.getTopProducts().get(0).getProductId()).isEqualTo(product.getId());
+        assertThat(rebuilt.getTopProducts().get(0).getUnitsSold())
+                .isEqualTo(incremental.getTopProducts().get(0).getUnitsSold());
+        assertThat(rebuilt.getTopProducts().get(0).getRevenue())
+                .isEqualByComparingTo(incremental.getTopProducts().get(0).getRevenue());
+    }
+
+    private OrderResponse placeOrder(int quantity) {
+        cartItemRepository.save(new CartItem(user, product, quantity));
+        return orderService.createOrderFromCart(new OrderRequest("Test street 1", null));
+    }
+}
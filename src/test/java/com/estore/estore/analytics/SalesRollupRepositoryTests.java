@@ -0,0 +1,44 @@
+package com.estore.estore.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SalesRollupRepositoryTests {
+
+    @Test
+    void splitsRangeIntoWholeDaysAndHourlyEdges() {
+        LocalDateTime from = LocalDateTime.of(2025, 3, 3, 10, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 3, 6, 15, 0);
+
+        SalesRollupRepository.BucketRange range = SalesRollupRepository.BucketRange.of(from, to);
+
+        assertThat(range.dayFrom()).isEqualTo(LocalDateTime.of(2025, 3, 4, 0, 0));
+        assertThat(range.dayTo()).isEqualTo(LocalDateTime.of(2025, 3, 6, 0, 0));
+    }
+
+    @Test
+    void usesOnlyHourlyBucketsWithinOneDay() {
+        LocalDateTime from = LocalDateTime.of(2025, 3, 3, 10, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 3, 3, 15, 0);
+
+        SalesRollupRepository.BucketRange range = SalesRollupRepository.BucketRange.of(from, to);
+
+        // Пустой дневной диапазон и пустой второй часовой «край»
+        assertThat(range.dayFrom()).isEqualTo(to);
+        assertThat(range.dayTo()).isEqualTo(to);
+    }
+
+    @Test
+    void midnightAlignedRangeIsAllDays() {
+        LocalDateTime from = LocalDateTime.of(2025, 3, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 3, 8, 0, 0);
+
+        SalesRollupRepository.BucketRange range = SalesRollupRepository.BucketRange.of(from, to);
+
+        assertThat(range.dayFrom()).isEqualTo(from);
+        assertThat(range.dayTo()).isEqualTo(to);
+    }
+}
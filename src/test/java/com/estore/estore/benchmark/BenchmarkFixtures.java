@@ -0,0 +1,70 @@
+package com.estore.estore.benchmark;
+
+import com.estore.estore.cart.CartLine;
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Order;
+import com.estore.estore.model.OrderItem;
+import com.estore.estore.model.Product;
+import com.estore.estore.model.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Тестовые данные для бенчмарков: сущности в памяти, без БД.
+ */
+final class BenchmarkFixtures {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 15, 12, 30);
+
+    private BenchmarkFixtures() {}
+
+    static Category category() {
+        Category category = new Category("Смартфоны", "Телефоны и аксессуары");
+        category.setId(1L);
+        category.setCreatedAt(CREATED_AT);
+        return category;
+    }
+
+    static Product product(long id, Category category) {
+        Product product = new Product("Samsung Galaxy S" + id, "Смартфон, 8 ГБ памяти, экран 6.1\"",
+                new BigDecimal("1299.99").add(BigDecimal.valueOf(id)), "SM-S" + id, 100);
+        product.setId(id);
+        product.setCategory(category);
+        product.setCreatedAt(CREATED_AT);
+        return product;
+    }
+
+    static User user() {
+        User user = new User("benchmark", "benchmark@estore.com", "secret123");
+        user.setId(42L);
+        user.setCreatedAt(CREATED_AT);
+        return user;
+    }
+
+    static Order order(int items) {
+        Category category = category();
+        Order order = new Order(user(), null, Order.OrderStatus.PENDING, "Минск, пр. Независимости 1", null);
+        order.setId(1L);
+        order.setCreatedAt(CREATED_AT);
+        for (int i = 1; i <= items; i++) {
+            Product product = product(i, category);
+            OrderItem item = new OrderItem(order, product, 1 + i % 3, product.getPrice());
+            item.setId((long) i);
+            order.addOrderItem(item);
+        }
+        order.setTotalAmount(order.calculateTotalAmount());
+        return order;
+    }
+
+    static List<CartLine> cartLines(int lines) {
+        Category category = category();
+        List<CartLine> result = new ArrayList<>(lines);
+        for (int i = 1; i <= lines; i++) {
+            result.add(new CartLine((long) i, product(i, category), 1 + i % 3, CREATED_AT.plusMinutes(i)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,90 @@
+package com.estore.estore.benchmark;
+
+import com.estore.estore.cart.CartLine;
+import com.estore.estore.cart.CartStore;
+import com.estore.estore.model.Product;
+import com.estore.estore.security.CurrentUserResolver;
+import com.estore.estore.service.CartService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CartService.getCart без БД: конвертация позиций в CartItemResponse
+ * и суммирование BigDecimal по корзине. Хранилище отдает готовые позиции.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartServiceBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int lines;
+
+    private CartService cartService;
+
+    @Setup
+    public void setUp() {
+        List<CartLine> cartLines = BenchmarkFixtures.cartLines(lines);
+
+        cartService = new CartService();
+        ReflectionTestUtils.setField(cartService, "cartStore", new FixedCartStore(cartLines));
+        ReflectionTestUtils.setField(cartService, "currentUserResolver", new CurrentUserResolver() {
+            @Override
+            public Long getUserId() {
+                return 42L;
+            }
+        });
+    }
+
+    @Benchmark
+    public void getCart(Blackhole blackhole) {
+        blackhole.consume(cartService.getCart());
+    }
+
+    private static final class FixedCartStore implements CartStore {
+
+        private final List<CartLine> lines;
+
+        private FixedCartStore(List<CartLine> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public List<CartLine> getLines(Long userId) {
+            return lines;
+        }
+
+        @Override
+        public Optional<CartLine> find(Long userId, Long productId) {
+            return lines.stream().filter(line -> line.getProduct().getId().equals(productId)).findFirst();
+        }
+
+        @Override
+        public CartLine add(Long userId, Product product, int quantity) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setQuantity(Long userId, Long productId, int quantity) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void remove(Long userId, Long productId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clear(Long userId) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
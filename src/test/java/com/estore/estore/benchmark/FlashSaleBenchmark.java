@@ -0,0 +1,81 @@
+package com.estore.estore.benchmark;
+
+import com.estore.estore.flashsale.FlashSaleRequest;
+import com.estore.estore.flashsale.FlashSaleSequencer;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Заказы/сек для горячего товара: секвенсор флеш-распродажи против
+ * текущего пути с блокировкой строки products.
+ * Запись в БД моделируется задержкой commitMicros: в пути с блокировкой строки
+ * она платится на каждый заказ под блокировкой, в секвенсоре — один раз на пачку.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+public class FlashSaleBenchmark {
+
+    private static final long STOCK = Long.MAX_VALUE / 4;
+
+    @Param({"200", "1000"})
+    private long commitMicros;
+
+    private FlashSaleSequencer sequencer;
+
+    // Модель пути с блокировкой строки: одна блокировка на товар, коммит под ней
+    private final ReentrantLock rowLock = new ReentrantLock();
+    private long rowStock;
+    private final AtomicLong orderIds = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rowStock = STOCK;
+        sequencer = new FlashSaleSequencer(1L, BigDecimal.TEN, STOCK, 8192, 256,
+                (productId, price, requests) -> {
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(commitMicros));
+                    List<Long> ids = new ArrayList<>(requests.size());
+                    for (int i = 0; i < requests.size(); i++) {
+                        ids.add(orderIds.incrementAndGet());
+                    }
+                    return ids;
+                });
+        sequencer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        sequencer.stop();
+    }
+
+    @Benchmark
+    public Object sequencer() {
+        return sequencer.submit(new FlashSaleRequest(1L, 1, "Benchmark street 1")).join();
+    }
+
+    @Benchmark
+    public long rowLock() {
+        rowLock.lock();
+        try {
+            if (rowStock < 1) {
+                return -1;
+            }
+            rowStock--;
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(commitMicros));
+            return orderIds.incrementAndGet();
+        } finally {
+            rowLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.estore.estore.benchmark;
+
+import com.estore.estore.cart.CartLine;
+import com.estore.estore.dto.response.CartItemResponse;
+import com.estore.estore.dto.response.CartResponse;
+import com.estore.estore.dto.response.OrderResponse;
+import com.estore.estore.model.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Сериализация ответов API в JSON тем же ObjectMapper, что собирает Spring
+ * (Jackson2ObjectMapperBuilder: JavaTimeModule и пр.).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"1", "20"})
+    private int items;
+
+    private ObjectMapper objectMapper;
+    private List<Product> products;
+    private OrderResponse orderResponse;
+    private CartResponse cartResponse;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<CartLine> lines = BenchmarkFixtures.cartLines(items);
+        products = lines.stream().map(CartLine::getProduct).collect(Collectors.toList());
+        orderResponse = OrderResponse.fromOrder(BenchmarkFixtures.order(items));
+
+        List<CartItemResponse> cartItems = lines.stream()
+                .map(line -> new CartItemResponse(line.getId(), line.getProduct().getId(), line.getProduct().getName(),
+                        line.getProduct().getPrice(), line.getQuantity(), line.getSubTotal(), line.getAddedAt().toString()))
+                .collect(Collectors.toList());
+        BigDecimal total = cartItems.stream().map(CartItemResponse::getSubTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        cartResponse = new CartResponse(cartItems, total, cartItems.stream().mapToInt(CartItemResponse::getQuantity).sum());
+    }
+
+    @Benchmark
+    public byte[] products() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] orderResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(orderResponse);
+    }
+
+    @Benchmark
+    public byte[] cartResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cartResponse);
+    }
+}
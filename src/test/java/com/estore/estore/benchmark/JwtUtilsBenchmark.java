@@ -0,0 +1,71 @@
+package com.estore.estore.benchmark;
+
+import com.estore.estore.security.JwtUtils;
+import com.estore.estore.security.UserPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выпуск токена при входе и его проверка: полная (подпись + разбор claims)
+ * и из кэша проверенных токенов.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilsBenchmark {
+
+    private static final String SECRET = "mySuperSecretKeyForEStoreProject2024MakeItVeryLongAndSecureForJWTTokens";
+
+    private JwtUtils uncached;
+    private JwtUtils cached;
+    private Authentication authentication;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        uncached = jwtUtils(0);
+        cached = jwtUtils(10_000);
+
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        UserPrincipal principal = new UserPrincipal(42L, "user", null, null, authorities);
+        authentication = new UsernamePasswordAuthenticationToken(principal, null, authorities);
+        token = uncached.generateJwtToken(authentication);
+    }
+
+    @Benchmark
+    public void generate(Blackhole blackhole) {
+        blackhole.consume(uncached.generateJwtToken(authentication));
+    }
+
+    @Benchmark
+    public void verify(Blackhole blackhole) {
+        blackhole.consume(uncached.verify(token));
+    }
+
+    @Benchmark
+    public void verifyCached(Blackhole blackhole) {
+        blackhole.consume(cached.verify(token));
+    }
+
+    private static JwtUtils jwtUtils(int cacheSize) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(jwtUtils, "cacheSize", cacheSize);
+        ReflectionTestUtils.setField(jwtUtils, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+        return jwtUtils;
+    }
+}
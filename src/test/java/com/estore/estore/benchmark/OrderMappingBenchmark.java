@@ -0,0 +1,41 @@
+package com.estore.estore.benchmark;
+
+import com.estore.estore.dto.response.OrderResponse;
+import com.estore.estore.model.Order;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подсчет суммы заказа и конвертация Order → OrderResponse
+ * (выполняется на каждый заказ в списках заказов и при оформлении).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderMappingBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int items;
+
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        order = BenchmarkFixtures.order(items);
+    }
+
+    @Benchmark
+    public void calculateTotalAmount(Blackhole blackhole) {
+        blackhole.consume(order.calculateTotalAmount());
+    }
+
+    @Benchmark
+    public void fromOrder(Blackhole blackhole) {
+        blackhole.consume(OrderResponse.fromOrder(order));
+    }
+}
@@ -0,0 +1,97 @@
+package com.estore.estore.benchmark;
+
+import com.estore.estore.model.Product;
+import com.estore.estore.search.ProductSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение инвертированного индекса с текущим запросом
+ * LOWER(field) LIKE LOWER('%query%') по name/model/description.
+ * Последовательный скан эмулируется в памяти — это нижняя граница
+ * стоимости того же запроса в PostgreSQL (без сети и чтения страниц).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    private static final String[] BRANDS = {"Apple", "Samsung", "Xiaomi", "Sony", "Lenovo", "Asus", "Huawei", "Dell"};
+    private static final String[] KINDS = {"смартфон", "ноутбук", "планшет", "наушники", "телевизор", "монитор", "phone", "laptop"};
+    private static final String[] WORDS = {"black", "white", "pro", "max", "ultra", "lite", "wireless", "gaming",
+            "экран", "камера", "батарея", "память", "быстрый", "легкий", "новый", "стекло"};
+
+    @Param({"10000", "100000"})
+    private int productCount;
+
+    @Param({"samsung", "gaming laptop", "ultra камер"})
+    private String query;
+
+    private List<Product> products;
+    private ProductSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        products = new ArrayList<>(productCount);
+        for (long id = 1; id <= productCount; id++) {
+            products.add(randomProduct(random, id));
+        }
+
+        index = new ProductSearchIndex();
+        index.rebuild(products);
+    }
+
+    @Benchmark
+    public void invertedIndex(Blackhole blackhole) {
+        blackhole.consume(index.search(query));
+    }
+
+    @Benchmark
+    public void likeScan(Blackhole blackhole) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        List<Long> result = new ArrayList<>();
+        for (Product product : products) {
+            if (contains(product.getName(), needle)
+                    || contains(product.getModel(), needle)
+                    || contains(product.getDescription(), needle)) {
+                result.add(product.getId());
+            }
+        }
+        blackhole.consume(result);
+    }
+
+    private static boolean contains(String field, String needle) {
+        return field != null && field.toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    private static Product randomProduct(Random random, long id) {
+        String brand = BRANDS[random.nextInt(BRANDS.length)];
+        String kind = KINDS[random.nextInt(KINDS.length)];
+
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            description.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+
+        Product product = new Product(
+                brand + " " + kind + " " + WORDS[random.nextInt(WORDS.length)],
+                description.toString(),
+                BigDecimal.valueOf(100 + random.nextInt(100000), 2),
+                brand.substring(0, 2).toUpperCase(Locale.ROOT) + "-" + id,
+                random.nextInt(100)
+        );
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,110 @@
+package com.estore.estore.catalog;
+
+import com.estore.estore.dto.response.ProductBrowseResponse;
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogFacetIndexTests {
+
+    private final Category phones = category(1L, "Смартфоны");
+    private final Category laptops = category(2L, "Ноутбуки");
+
+    private final List<BigDecimal> bounds = List.of(new BigDecimal("500"), new BigDecimal("2000"));
+
+    private final CatalogSnapshot snapshot = CatalogSnapshot.of(1, List.of(
+            product(1L, phones, "250.00", 5),
+            product(2L, phones, "800.00", 0),
+            product(3L, laptops, "1500.00", 2),
+            product(4L, laptops, "2500.00", 1)
+    ), List.of(phones, laptops));
+
+    private final CatalogFacetIndex index = CatalogFacetIndex.build(snapshot, bounds);
+
+    @Test
+    void facetCountsIgnoreTheirOwnFilter() {
+        ProductBrowseResponse response = index.browse(query(Set.of(1L), null, null, true, "price", true, 0, 10));
+
+        assertThat(response.getItems()).extracting(Product::getId).containsExactly(1L);
+        assertThat(response.getTotalElements()).isEqualTo(1);
+        // Категории — с фильтром наличия, но без фильтра категории
+        assertThat(response.getCategories()).extracting(ProductBrowseResponse.CategoryFacet::getCount)
+                .containsExactly(2L, 1L);
+        // Цены — только наличные смартфоны
+        assertThat(response.getPriceBuckets()).extracting(ProductBrowseResponse.PriceBucket::getCount)
+                .containsExactly(1L, 0L, 0L);
+        // Наличие — без собственного фильтра
+        assertThat(response.getInStockCount()).isEqualTo(1);
+    }
+
+    @Test
+    void pagesInSortOrderWithPriceRange() {
+        ProductBrowseResponse response = index.browse(query(Set.of(), new BigDecimal("500"), null, false,
+                "price", false, 1, 1));
+
+        assertThat(response.getTotalElements()).isEqualTo(3);
+        assertThat(response.getItems()).extracting(Product::getId).containsExactly(3L);
+    }
+
+    @Test
+    void relevanceFollowsSearchRanking() {
+        ProductBrowseResponse response = index.browse(new ProductBrowseQuery(Set.of(), null, null, false,
+                List.of(4L, 2L, 99L), ProductBrowseQuery.RELEVANCE, false, 0, 10));
+
+        assertThat(response.getItems()).extracting(Product::getId).containsExactly(4L, 2L);
+        assertThat(response.getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void withStockMatchesFullBuild() {
+        CatalogSnapshot patched = snapshot.withStock(2, Map.of(1L, 0, 2L, 3));
+        CatalogFacetIndex refreshed = index.withStock(patched);
+        CatalogFacetIndex rebuilt = CatalogFacetIndex.build(patched, bounds);
+
+        assertThat(refreshed.getVersion()).isEqualTo(2);
+        assertThat(refreshed.getStructureVersion()).isEqualTo(1);
+        for (boolean inStockOnly : new boolean[]{false, true}) {
+            ProductBrowseResponse expected = rebuilt.browse(query(Set.of(1L), null, null, inStockOnly, "price", true, 0, 10));
+            ProductBrowseResponse actual = refreshed.browse(query(Set.of(1L), null, null, inStockOnly, "price", true, 0, 10));
+
+            assertThat(actual.getItems()).extracting(Product::getId)
+                    .containsExactlyElementsOf(expected.getItems().stream().map(Product::getId).toList());
+            assertThat(actual.getItems()).extracting(Product::getStockQuantity)
+                    .containsExactlyElementsOf(expected.getItems().stream().map(Product::getStockQuantity).toList());
+            assertThat(actual.getInStockCount()).isEqualTo(expected.getInStockCount());
+            assertThat(actual.getCategories()).extracting(ProductBrowseResponse.CategoryFacet::getCount)
+                    .containsExactlyElementsOf(expected.getCategories().stream()
+                            .map(ProductBrowseResponse.CategoryFacet::getCount).toList());
+        }
+        // Без фильтров — готовый счетчик наличия тоже обновлен
+        assertThat(refreshed.browse(query(Set.of(), null, null, false, "price", true, 0, 10)).getInStockCount())
+                .isEqualTo(3);
+    }
+
+    private static ProductBrowseQuery query(Set<Long> categoryIds, BigDecimal minPrice, BigDecimal maxPrice,
+                                            boolean inStockOnly, String sortBy, boolean ascending, int page, int size) {
+        return new ProductBrowseQuery(categoryIds, minPrice, maxPrice, inStockOnly, null, sortBy, ascending, page, size);
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category(name, null);
+        category.setId(id);
+        return category;
+    }
+
+    private static Product product(Long id, Category category, String price, int stock) {
+        Product product = new Product("Product " + id, null, new BigDecimal(price), "M-" + id, stock);
+        product.setId(id);
+        product.setCategory(category);
+        product.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusDays(id));
+        return product;
+    }
+}
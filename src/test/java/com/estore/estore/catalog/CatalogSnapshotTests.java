@@ -0,0 +1,60 @@
+package com.estore.estore.catalog;
+
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogSnapshotTests {
+
+    private final Category phones = category(1L, "Смартфоны");
+    private final Category laptops = category(2L, "Ноутбуки");
+
+    private final CatalogSnapshot snapshot = CatalogSnapshot.of(1, List.of(
+            product(1L, phones, "250.00", 5),
+            product(2L, phones, "800.00", 0),
+            product(3L, laptops, "1500.00", 2)
+    ), List.of(phones, laptops));
+
+    @Test
+    void withStockKeepsOrdersAndReplacesOnlyChangedProducts() {
+        CatalogSnapshot patched = snapshot.withStock(2, Map.of(1L, 0, 2L, 7, 99L, 1));
+
+        assertThat(patched.getVersion()).isEqualTo(2);
+        assertThat(patched.getProductsSorted("price", true)).extracting(Product::getId).containsExactly(1L, 2L, 3L);
+        assertThat(patched.getProductsSorted("price", true)).extracting(Product::getStockQuantity)
+                .containsExactly(0, 7, 2);
+        assertThat(patched.getProductsByCategory(1L)).extracting(Product::getStockQuantity).containsExactly(7, 0);
+        assertThat(patched.getProductByModel("M-2")).get().extracting(Product::getStockQuantity).isEqualTo(7);
+        assertThat(patched.getAvailableProducts()).extracting(Product::getId).containsExactly(3L, 2L);
+
+        // Незатронутый товар — тот же экземпляр, прежний снимок не изменился
+        assertThat(patched.getProduct(3L).get()).isSameAs(snapshot.getProduct(3L).get());
+        assertThat(snapshot.getProduct(1L).get().getStockQuantity()).isEqualTo(5);
+    }
+
+    @Test
+    void withStockWithoutChangesReturnsSameSnapshot() {
+        assertThat(snapshot.withStock(2, Map.of(1L, 5, 99L, 1))).isSameAs(snapshot);
+    }
+
+    private static Category category(Long id, String name) {
+        Category category = new Category(name, null);
+        category.setId(id);
+        return category;
+    }
+
+    private static Product product(Long id, Category category, String price, int stock) {
+        Product product = new Product("Product " + id, null, new BigDecimal(price), "M-" + id, stock);
+        product.setId(id);
+        product.setCategory(category);
+        product.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusDays(id));
+        return product;
+    }
+}
@@ -0,0 +1,47 @@
+package com.estore.estore.catalog;
+
+import com.estore.estore.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CatalogSyncTokenTests {
+
+    @Test
+    void pageTokenRoundTripsAndKeepsHorizon() {
+        CatalogSyncToken token = CatalogSyncToken.initial()
+                .withHorizon(900, 1_700_000_000_000L)
+                .after(870, CatalogChangeFeed.PRODUCT, 42);
+
+        CatalogSyncToken decoded = CatalogSyncToken.decode(token.encode());
+
+        assertThat(decoded.isFullSync()).isTrue();
+        assertThat(decoded.getHorizon()).isEqualTo(900);
+        assertThat(decoded.getAfterXid()).isEqualTo(870);
+        assertThat(decoded.getAfterType()).isEqualTo(CatalogChangeFeed.PRODUCT);
+        assertThat(decoded.getAfterId()).isEqualTo(42);
+    }
+
+    @Test
+    void completedSyncRestartsFromHorizon() {
+        CatalogSyncToken next = CatalogSyncToken.initial()
+                .withHorizon(900, 1_700_000_000_000L)
+                .after(950, CatalogChangeFeed.CATEGORY, 7)
+                .completed();
+
+        // Транзакции с xid >= горизонта могли закоммититься позже — читаем их снова
+        CatalogSyncToken decoded = CatalogSyncToken.decode(next.encode());
+        assertThat(decoded.isFullSync()).isFalse();
+        assertThat(decoded.getSinceAt()).isEqualTo(1_700_000_000_000L);
+        assertThat(decoded.hasHorizon()).isFalse();
+        assertThat(decoded.getAfterXid()).isEqualTo(900);
+        assertThat(decoded.getAfterType()).isEmpty();
+    }
+
+    @Test
+    void rejectsGarbage() {
+        assertThatThrownBy(() -> CatalogSyncToken.decode("not-a-token"))
+                .isInstanceOf(BusinessException.class);
+    }
+}
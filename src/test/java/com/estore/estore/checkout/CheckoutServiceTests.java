@@ -0,0 +1,183 @@
+package com.estore.estore.checkout;
+
+import com.estore.estore.catalog.CatalogSnapshotHolder;
+import com.estore.estore.dto.request.OrderRequest;
+import com.estore.estore.dto.response.CheckoutStatusResponse;
+import com.estore.estore.exception.ApiException;
+import com.estore.estore.model.CartItem;
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Product;
+import com.estore.estore.model.User;
+import com.estore.estore.repository.CartItemRepository;
+import com.estore.estore.repository.CategoryRepository;
+import com.estore.estore.repository.ProductRepository;
+import com.estore.estore.repository.UserRepository;
+import com.estore.estore.security.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Очередь в БД без воркеров: запросы остаются в ACCEPTED, захват выполняет сам тест
+@SpringBootTest(properties = {"app.checkout.mode=async", "app.checkout.workers=0"})
+class CheckoutServiceTests {
+
+    @Autowired
+    private CheckoutService checkoutService;
+
+    @Autowired
+    private CheckoutRequestRepository checkoutRequestRepository;
+
+    @Autowired
+    private CatalogSnapshotHolder catalogSnapshotHolder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String prefix = "checkout-" + System.nanoTime();
+    private User user;
+    private Category category;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(new Category(prefix, "checkout test"));
+
+        product = new Product(prefix, "checkout test", new BigDecimal("9.99"), prefix, 100);
+        product.setCategory(category);
+        product = productRepository.save(product);
+
+        user = userRepository.save(new User(prefix, prefix + "@test.local", "secret123"));
+
+        // Товар сохранен в обход ProductService, а validate ищет его в снимке каталога
+        catalogSnapshotHolder.rebuild();
+
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        UserPrincipal principal = new UserPrincipal(user.getId(), user.getUsername(), null, null, authorities);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, authorities));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        // checkout_requests удаляются каскадно вместе с пользователем
+        cartItemRepository.deleteAll(cartItemRepository.findByUserId(user.getId()));
+        userRepository.delete(user);
+        productRepository.deleteById(product.getId());
+        categoryRepository.delete(category);
+        catalogSnapshotHolder.rebuild();
+    }
+
+    @Test
+    void repeatedCheckoutOfSameCartReturnsQueuedRequest() {
+        cartItemRepository.save(new CartItem(user, product, 2));
+
+        CheckoutStatusResponse first = checkoutService.enqueue(new OrderRequest("Test street 1", null), null);
+        CheckoutStatusResponse second = checkoutService.enqueue(new OrderRequest("Test street 1", null), null);
+
+        assertThat(second.getId()).isEqualTo(first.getId());
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM checkout_requests WHERE user_id = ?", Long.class, user.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void fullQueueIsRejectedWithTooManyRequests() {
+        cartItemRepository.save(new CartItem(user, product, 1));
+        CheckoutService target = AopTestUtils.getUltimateTargetObject(checkoutService);
+        Object capacity = ReflectionTestUtils.getField(target, "queueCapacity");
+        ReflectionTestUtils.setField(target, "queueCapacity", 0L);
+        try {
+            assertThatThrownBy(() -> checkoutService.enqueue(new OrderRequest("Test street 1", null), null))
+                    .isInstanceOfSatisfying(ApiException.class,
+                            e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS));
+        } finally {
+            ReflectionTestUtils.setField(target, "queueCapacity", capacity);
+        }
+    }
+
+    @Test
+    void expiredLeaseIsRequeuedAndStaleWorkerIsFenced() {
+        Long id = insertRequest();
+        LocalDateTime now = LocalDateTime.now();
+
+        CheckoutRequestRepository.CheckoutTask first = claimOwn(id, now);
+        assertThat(first.attempts()).isEqualTo(1);
+
+        // Аренда истекла: запрос возвращается в очередь и достается другому воркеру
+        assertThat(checkoutRequestRepository.recoverExpired(now.plusSeconds(1), 3, now)).isPositive();
+        CheckoutRequestRepository.CheckoutTask second = claimOwn(id, now);
+        assertThat(second.attempts()).isEqualTo(2);
+
+        // Первый воркер проснулся: его захват уже недействителен
+        assertThat(checkoutRequestRepository.complete(first, 1L, now)).isFalse();
+        checkoutRequestRepository.release(first, now);
+        assertThat(status(id)).isEqualTo(CheckoutStatus.PROCESSING.name());
+
+        assertThat(checkoutRequestRepository.complete(second, 1L, now)).isTrue();
+        assertThat(status(id)).isEqualTo(CheckoutStatus.COMPLETED.name());
+    }
+
+    @Test
+    void expiredLeaseAfterLastAttemptFailsRequest() {
+        Long id = insertRequest();
+        LocalDateTime now = LocalDateTime.now();
+
+        claimOwn(id, now);
+        checkoutRequestRepository.recoverExpired(now.plusSeconds(1), 1, now);
+
+        assertThat(status(id)).isEqualTo(CheckoutStatus.FAILED.name());
+    }
+
+    private Long insertRequest() {
+        return checkoutRequestRepository.insert(user.getId(), null, "Test street 1", null,
+                new Long[]{product.getId()}, new Integer[]{1}, new BigDecimal[]{product.getPrice()},
+                LocalDateTime.now()).orElseThrow();
+    }
+
+    // Захватить свой запрос; чужие запросы из общей очереди возвращаются обратно
+    private CheckoutRequestRepository.CheckoutTask claimOwn(Long id, LocalDateTime now) {
+        CheckoutRequestRepository.CheckoutTask own = null;
+        for (CheckoutRequestRepository.CheckoutTask task : checkoutRequestRepository.claim(1000, now)) {
+            if (task.id().equals(id)) {
+                own = task;
+            } else {
+                checkoutRequestRepository.release(task, now);
+            }
+        }
+        assertThat(own).isNotNull();
+        return own;
+    }
+
+    private String status(Long id) {
+        return checkoutRequestRepository.find(id, user.getId()).orElseThrow().getStatus();
+    }
+}
@@ -0,0 +1,92 @@
+package com.estore.estore.flashsale;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlashSaleSequencerTests {
+
+    @Test
+    void allocatesExactlyTheAvailableStockUnderContention() throws Exception {
+        AtomicLong orderIds = new AtomicLong();
+        Set<Long> persistedOrders = ConcurrentHashMap.newKeySet();
+
+        FlashSaleSequencer sequencer = new FlashSaleSequencer(1L, BigDecimal.ONE, 100, 4096, 16,
+                (productId, price, requests) -> {
+                    List<Long> ids = new ArrayList<>();
+                    requests.forEach(request -> ids.add(orderIds.incrementAndGet()));
+                    persistedOrders.addAll(ids);
+                    return ids;
+                });
+        sequencer.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        List<CompletableFuture<FlashSaleResult>> results = new ArrayList<>();
+        List<Future<CompletableFuture<FlashSaleResult>>> submissions = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            long userId = i;
+            submissions.add(executor.submit(() -> sequencer.submit(new FlashSaleRequest(userId, 1, "Street 1"))));
+        }
+        for (var submission : submissions) {
+            results.add(submission.get());
+        }
+        executor.shutdown();
+
+        long accepted = 0;
+        for (CompletableFuture<FlashSaleResult> result : results) {
+            if (result.get().isAccepted()) {
+                accepted++;
+            }
+        }
+
+        assertThat(sequencer.stop()).isZero();
+        assertThat(accepted).isEqualTo(100);
+        assertThat(persistedOrders).hasSize(100);
+    }
+
+    @Test
+    void everySubmissionCompletesWhenStoppedUnderLoad() throws Exception {
+        FlashSaleSequencer sequencer = new FlashSaleSequencer(1L, BigDecimal.ONE, 1_000_000, 64, 16,
+                (productId, price, requests) -> {
+                    List<Long> ids = new ArrayList<>();
+                    requests.forEach(request -> ids.add((long) ids.size()));
+                    return ids;
+                });
+        sequencer.start();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        Queue<CompletableFuture<FlashSaleResult>> results = new ConcurrentLinkedQueue<>();
+        List<Future<?>> submitters = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            submitters.add(executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    results.add(sequencer.submit(new FlashSaleRequest(1L, 1, "Street 1")));
+                }
+            }));
+        }
+
+        // Остановка посреди потока заявок: ни одна заявка не должна остаться без ответа
+        Thread.sleep(5);
+        sequencer.stop();
+        for (Future<?> submitter : submitters) {
+            submitter.get();
+        }
+        executor.shutdown();
+
+        assertThat(results).hasSize(8 * 20_000);
+        assertThat(results).allMatch(CompletableFuture::isDone);
+    }
+}
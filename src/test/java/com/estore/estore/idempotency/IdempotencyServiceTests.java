@@ -0,0 +1,96 @@
+package com.estore.estore.idempotency;
+
+import com.estore.estore.dto.request.OrderRequest;
+import com.estore.estore.dto.response.OrderResponse;
+import com.estore.estore.exception.ApiException;
+import com.estore.estore.exception.BusinessException;
+import com.estore.estore.security.CurrentUserResolver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTests {
+
+    private final OrderRequest request = new OrderRequest("Test street 1", null);
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        CurrentUserResolver currentUserResolver = mock(CurrentUserResolver.class);
+        when(currentUserResolver.getUserId()).thenReturn(42L);
+
+        service = new IdempotencyService();
+        ReflectionTestUtils.setField(service, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(service, "waitTimeoutMs", 5_000L);
+        ReflectionTestUtils.setField(service, "maxEntries", 100);
+        ReflectionTestUtils.setField(service, "currentUserResolver", currentUserResolver);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.invokeMethod(service, "registerMetrics");
+    }
+
+    @Test
+    void concurrentDuplicatesWaitForFirstAttempt() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        OrderResponse created = new OrderResponse();
+        created.setId(7L);
+
+        List<Future<OrderResponse>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 20; i++) {
+                results.add(executor.submit(() -> service.execute("key-1", request, () -> {
+                    executions.incrementAndGet();
+                    await(release);
+                    return created;
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+        }
+
+        assertThat(executions.get()).isEqualTo(1);
+        for (Future<OrderResponse> result : results) {
+            assertThat(result.get().getId()).isEqualTo(7L);
+        }
+    }
+
+    @Test
+    void failedAttemptDoesNotOccupyKey() {
+        assertThatThrownBy(() -> service.execute("key-2", request, () -> {
+            throw new BusinessException("Cart is empty. Cannot create order.");
+        })).isInstanceOf(BusinessException.class);
+
+        OrderResponse created = new OrderResponse();
+        assertThat(service.execute("key-2", request, () -> created)).isSameAs(created);
+    }
+
+    @Test
+    void rejectsKeyReusedWithDifferentRequest() {
+        service.execute("key-3", request, OrderResponse::new);
+
+        assertThatThrownBy(() -> service.execute("key-3", new OrderRequest("Other street 2", null), OrderResponse::new))
+                .isInstanceOf(ApiException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.estore.estore.live;
+
+import com.estore.estore.catalog.CatalogSnapshotHolder;
+import com.estore.estore.catalog.ProductChangeListener;
+import com.estore.estore.catalog.ProductDelta;
+import com.estore.estore.dto.request.OrderRequest;
+import com.estore.estore.model.CartItem;
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Product;
+import com.estore.estore.model.User;
+import com.estore.estore.repository.CartItemRepository;
+import com.estore.estore.repository.CategoryRepository;
+import com.estore.estore.repository.OrderRepository;
+import com.estore.estore.repository.ProductRepository;
+import com.estore.estore.repository.UserRepository;
+import com.estore.estore.security.UserPrincipal;
+import com.estore.estore.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Заказ меняет остаток в БД — дельта должна дойти до слушателей (SSE) и до снимка каталога
+@SpringBootTest
+class PriceStockDeltaTests {
+
+    @TestConfiguration
+    static class ListenerConfig {
+
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener();
+        }
+    }
+
+    static class RecordingListener implements ProductChangeListener {
+
+        private final List<ProductDelta> deltas = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void productsChanged(List<ProductDelta> changed) {
+            deltas.addAll(changed);
+        }
+    }
+
+    @Autowired
+    private RecordingListener recordingListener;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CatalogSnapshotHolder catalogSnapshotHolder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final String prefix = "delta-" + System.nanoTime();
+    private User user;
+    private Category category;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(new Category(prefix, "delta test"));
+
+        product = new Product(prefix, "delta test", new BigDecimal("19.99"), prefix, 5);
+        product.setCategory(category);
+        product = productRepository.save(product);
+
+        user = userRepository.save(new User(prefix, prefix + "@test.local", "secret123"));
+        cartItemRepository.save(new CartItem(user, product, 2));
+
+        // Товар сохранен в обход ProductService — снимок должен его знать
+        catalogSnapshotHolder.rebuild();
+
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        UserPrincipal principal = new UserPrincipal(user.getId(), user.getUsername(), null, null, authorities);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, authorities));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        orderRepository.deleteAll(orderRepository.findByUserId(user.getId()));
+        cartItemRepository.deleteAll(cartItemRepository.findByUserId(user.getId()));
+        userRepository.delete(user);
+        productRepository.deleteById(product.getId());
+        categoryRepository.delete(category);
+        catalogSnapshotHolder.rebuild();
+    }
+
+    @Test
+    void placedOrderEmitsStockDelta() throws InterruptedException {
+        orderService.createOrderFromCart(new OrderRequest("Test street 1", null));
+
+        // Изменения применяются фоновым потоком после коммита
+        long deadline = System.currentTimeMillis() + 5000;
+        Optional<ProductDelta> delta = Optional.empty();
+        while (delta.isEmpty() && System.currentTimeMillis() < deadline) {
+            delta = recordingListener.deltas.stream()
+                    .filter(change -> change.productId().equals(product.getId()))
+                    .findFirst();
+            if (delta.isEmpty()) {
+                Thread.sleep(20);
+            }
+        }
+
+        assertThat(delta).isPresent();
+        assertThat(delta.get().stockQuantity()).isEqualTo(3);
+        assertThat(delta.get().categoryId()).isEqualTo(category.getId());
+        assertThat(delta.get().deleted()).isFalse();
+        assertThat(catalogSnapshotHolder.current().getProduct(product.getId()))
+                .get().extracting(Product::getStockQuantity).isEqualTo(3);
+    }
+}
@@ -0,0 +1,73 @@
+package com.estore.estore.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Задержки запросов по эндпоинтам. Каждый клиент пишет в свой экземпляр
+ * (без синхронизации), в конце прогона экземпляры сливаются.
+ */
+final class LatencyRecorder {
+
+    private final Map<String, Series> series = new TreeMap<>();
+
+    void record(String endpoint, long nanos, boolean ok) {
+        Series s = series.computeIfAbsent(endpoint, key -> new Series());
+        s.add(nanos);
+        if (!ok) {
+            s.errors++;
+        }
+    }
+
+    void merge(LatencyRecorder other) {
+        other.series.forEach((endpoint, s) -> {
+            Series target = series.computeIfAbsent(endpoint, key -> new Series());
+            for (int i = 0; i < s.size; i++) {
+                target.add(s.samples[i]);
+            }
+            target.errors += s.errors;
+        });
+    }
+
+    Map<String, Series> getSeries() {
+        return series;
+    }
+
+    static final class Series {
+
+        private long[] samples = new long[1024];
+        private int size;
+        private long errors;
+        private boolean sorted;
+
+        private void add(long nanos) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+            sorted = false;
+        }
+
+        int count() {
+            return size;
+        }
+
+        long errors() {
+            return errors;
+        }
+
+        // Перцентиль в миллисекундах (nearest-rank)
+        double percentileMillis(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            if (!sorted) {
+                Arrays.sort(samples, 0, size);
+                sorted = true;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * size);
+            return samples[Math.max(0, Math.min(size, rank) - 1)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.estore.estore.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Один виртуальный покупатель: до дедлайна выполняет операции из WorkloadMix
+ * через настоящие REST-контроллеры приложения.
+ */
+final class LoadTestClient implements Runnable {
+
+    private final HttpClient http;
+    private final String baseUrl;
+    private final String token;
+    private final String adminToken;
+    private final WorkloadMix mix;
+    private final List<Long> productIds;
+    private final List<Long> hotProductIds;
+    private final List<String> searchWords;
+    private final long deadlineNanos;
+    private final Random random;
+    private final AtomicLong checkoutRejections;
+
+    private final LatencyRecorder recorder = new LatencyRecorder();
+
+    LoadTestClient(HttpClient http, String baseUrl, String token, String adminToken, WorkloadMix mix,
+                   List<Long> productIds, List<Long> hotProductIds, List<String> searchWords,
+                   long deadlineNanos, long seed, AtomicLong checkoutRejections) {
+        this.http = http;
+        this.baseUrl = baseUrl;
+        this.token = token;
+        this.adminToken = adminToken;
+        this.mix = mix;
+        this.productIds = productIds;
+        this.hotProductIds = hotProductIds;
+        this.searchWords = searchWords;
+        this.deadlineNanos = deadlineNanos;
+        this.random = new Random(seed);
+        this.checkoutRejections = checkoutRejections;
+    }
+
+    @Override
+    public void run() {
+        while (System.nanoTime() < deadlineNanos) {
+            try {
+                switch (mix.next(random)) {
+                    case BROWSE -> browse();
+                    case SEARCH -> search();
+                    case CART -> cart();
+                    case CHECKOUT -> checkout();
+                    case ADMIN -> admin();
+                }
+            } catch (IOException e) {
+                recorder.record("I/O error", 0, false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    LatencyRecorder getRecorder() {
+        return recorder;
+    }
+
+    private void browse() throws IOException, InterruptedException {
+        send("GET /api/products/scroll", get("/api/products/scroll?size=20", null));
+        send("GET /api/products/{id}", get("/api/products/" + randomProduct(), null));
+    }
+
+    private void search() throws IOException, InterruptedException {
+        String query = searchWords.get(random.nextInt(searchWords.size()));
+        send("GET /api/products/search", get("/api/products/search?size=20&query=" + query, null));
+    }
+
+    private void cart() throws IOException, InterruptedException {
+        send("POST /api/cart/items", post("/api/cart/items", addItemBody(randomProduct()), token));
+        send("GET /api/cart", get("/api/cart", token));
+    }
+
+    // Покупка «горячего» товара с маленьким остатком — проверка на overselling
+    private void checkout() throws IOException, InterruptedException {
+        Long productId = hotProductIds.get(random.nextInt(hotProductIds.size()));
+        // 400 — остаток уже исчерпан, это ожидаемый исход
+        send("POST /api/cart/items", post("/api/cart/items", addItemBody(productId), token), 400);
+
+        int status = send("POST /api/orders",
+                post("/api/orders", "{\"shippingAddress\":\"Load test street 1\"}", token), 400);
+        if (status == 400) {
+            // Товар закончился — очищаем корзину, чтобы не копить позиции
+            checkoutRejections.incrementAndGet();
+            send("DELETE /api/cart", request("/api/cart", token).DELETE().build());
+        }
+    }
+
+    private void admin() throws IOException, InterruptedException {
+        send("GET /api/orders/all", get("/api/orders/all", adminToken));
+    }
+
+    private int send(String endpoint, HttpRequest request, int... expectedErrors) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+        long elapsed = System.nanoTime() - start;
+
+        int status = response.statusCode();
+        boolean ok = status / 100 == 2;
+        for (int expected : expectedErrors) {
+            ok |= status == expected;
+        }
+        recorder.record(endpoint, elapsed, ok);
+        return status;
+    }
+
+    private HttpRequest get(String path, String bearer) {
+        return request(path, bearer).GET().build();
+    }
+
+    private HttpRequest post(String path, String json, String bearer) {
+        return request(path, bearer)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpRequest.Builder request(String path, String bearer) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30));
+        if (bearer != null) {
+            builder.header("Authorization", "Bearer " + bearer);
+        }
+        return builder;
+    }
+
+    private Long randomProduct() {
+        return productIds.get(random.nextInt(productIds.size()));
+    }
+
+    private static String addItemBody(Long productId) {
+        return "{\"productId\":" + productId + ",\"quantity\":1}";
+    }
+}
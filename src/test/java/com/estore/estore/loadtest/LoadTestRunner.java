@@ -0,0 +1,307 @@
+package com.estore.estore.loadtest;
+
+import com.estore.estore.EStoreApplication;
+import com.estore.estore.catalog.CatalogSnapshotHolder;
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Product;
+import com.estore.estore.model.Role;
+import com.estore.estore.model.User;
+import com.estore.estore.repository.CategoryRepository;
+import com.estore.estore.repository.ProductRepository;
+import com.estore.estore.repository.UserRepository;
+import com.estore.estore.search.ProductSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочный прогон приложения целиком на ноутбуке.
+ * Поднимает встроенный PostgreSQL (настоящий, не H2: нативные запросы
+ * с unnest/CTE/ON CONFLICT в H2 не работают), запускает EStoreApplication
+ * на случайном порту, создает пользователей/категории/товары и гоняет
+ * смесь запросов виртуальными потоками через HTTP. В конце — пропускная
+ * способность и p50/p95/p99 по эндпоинтам и проверка остатков на overselling.
+ *
+ * Запуск: mvn -Ploadtest verify -Dloadtest.clients=200 -Dloadtest.duration=60
+ * Параметры (system properties, по умолчанию):
+ *   loadtest.users=1000, loadtest.categories=20, loadtest.products=5000,
+ *   loadtest.hot-products=5, loadtest.hot-stock=50, loadtest.clients=100,
+ *   loadtest.duration=30 (секунд), loadtest.mix=browse=50,search=20,cart=20,checkout=8,admin=2,
+ *   loadtest.report=target/loadtest-report.json,
+ *   loadtest.modes=platform,virtual — режимы по очереди, каждый на своей чистой БД:
+ *   platform — пул потоков Tomcat, virtual — виртуальные потоки и bulkhead перед пулом соединений
+ * Любые свойства приложения можно переопределить так же, например -Dapp.cart.store=memory.
+ */
+public class LoadTestRunner {
+
+    private static final String PASSWORD = "loadtest123";
+    private static final int PRODUCT_STOCK = 1_000_000;
+    private static final List<String> WORDS = List.of("samsung", "apple", "xiaomi", "sony", "lenovo",
+            "phone", "laptop", "tablet", "monitor", "headphones", "black", "white", "pro", "max", "gaming");
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = new Settings();
+        List<String> modes = List.of(System.getProperty("loadtest.modes", "platform,virtual").split(","));
+        String reportPath = System.getProperty("loadtest.report", "target/loadtest-report.json");
+
+        List<Map<String, Object>> runs = new ArrayList<>();
+        for (String mode : modes) {
+            runs.add(run(mode.trim(), settings, args));
+        }
+        if (runs.size() > 1) {
+            printComparison(runs);
+        }
+
+        File reportFile = new File(reportPath);
+        reportFile.getParentFile().mkdirs();
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, Map.of("runs", runs));
+        System.out.println("Report written to " + reportFile.getAbsolutePath());
+
+        // Ненулевой код выхода, если остатки разошлись хотя бы в одном режиме
+        boolean consistent = runs.stream().allMatch(run -> ((List<?>) run.get("stockViolations")).isEmpty());
+        System.exit(consistent ? 0 : 1);
+    }
+
+    // Параметры прогона из system properties
+    private static final class Settings {
+        final int users = Integer.getInteger("loadtest.users", 1000);
+        final int categories = Integer.getInteger("loadtest.categories", 20);
+        final int products = Integer.getInteger("loadtest.products", 5000);
+        final int hotProducts = Integer.getInteger("loadtest.hot-products", 5);
+        final int hotStock = Integer.getInteger("loadtest.hot-stock", 50);
+        final int clients = Math.min(Integer.getInteger("loadtest.clients", 100), users);
+        final int durationSeconds = Integer.getInteger("loadtest.duration", 30);
+        final WorkloadMix mix = WorkloadMix.parse(System.getProperty("loadtest.mix",
+                "browse=50,search=20,cart=20,checkout=8,admin=2"));
+    }
+
+    // Один прогон на чистой БД: platform — пул потоков Tomcat, virtual — виртуальные потоки + bulkhead
+    private static Map<String, Object> run(String mode, Settings settings, String[] args) throws Exception {
+        boolean virtual = switch (mode) {
+            case "platform" -> false;
+            case "virtual" -> true;
+            default -> throw new IllegalArgumentException("Unknown mode: " + mode + " (expected platform or virtual)");
+        };
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(EStoreApplication.class)
+                     .properties(
+                             "spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true",
+                             "spring.datasource.username=postgres",
+                             "spring.datasource.password=postgres",
+                             "server.port=0",
+                             "management.server.port=0",
+                             "spring.devtools.restart.enabled=false",
+                             "spring.threads.virtual.enabled=" + virtual,
+                             // SQL-логирование на DEBUG/TRACE исказило бы замеры
+                             "logging.level.org.hibernate.SQL=WARN",
+                             "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN",
+                             "logging.level.com.estore.estore=INFO")
+                     .run(args)) {
+
+            System.out.printf("%n[%s] Seeding %d users, %d categories, %d products (%d hot with stock %d)...%n",
+                    mode, settings.users, settings.categories, settings.products, settings.hotProducts, settings.hotStock);
+            Map<Long, Integer> initialStock = seed(context, settings.users, settings.categories, settings.products,
+                    settings.hotProducts, settings.hotStock);
+            List<Long> productIds = new ArrayList<>(initialStock.keySet());
+            List<Long> hotProductIds = productIds.subList(0, Math.min(settings.hotProducts, productIds.size()));
+
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpClient http = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+            ObjectMapper objectMapper = new ObjectMapper();
+
+            String adminToken = login(http, objectMapper, baseUrl, "admin", "admin123");
+            List<String> tokens = new ArrayList<>(settings.clients);
+            for (int i = 0; i < settings.clients; i++) {
+                tokens.add(login(http, objectMapper, baseUrl, "loadtest-" + i, PASSWORD));
+            }
+
+            System.out.printf("[%s] Running %d clients for %d s, mix %s%n",
+                    mode, settings.clients, settings.durationSeconds, settings.mix);
+            AtomicLong checkoutRejections = new AtomicLong();
+            long startNanos = System.nanoTime();
+            long deadline = startNanos + TimeUnit.SECONDS.toNanos(settings.durationSeconds);
+
+            List<LoadTestClient> workers = new ArrayList<>(settings.clients);
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < settings.clients; i++) {
+                    LoadTestClient client = new LoadTestClient(http, baseUrl, tokens.get(i), adminToken, settings.mix,
+                            productIds, hotProductIds, WORDS, deadline, i, checkoutRejections);
+                    workers.add(client);
+                    executor.submit(client);
+                }
+            }
+            double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+            LatencyRecorder total = new LatencyRecorder();
+            workers.forEach(worker -> total.merge(worker.getRecorder()));
+
+            List<String> violations = checkStock(context.getBean(JdbcTemplate.class), initialStock);
+            Map<String, Object> report = report(mode, total, elapsedSeconds, checkoutRejections.get(), violations);
+            printReport(report);
+            return report;
+        }
+    }
+
+    private static Map<Long, Integer> seed(ConfigurableApplicationContext context, int users, int categories,
+                                           int products, int hotProducts, int hotStock) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        CategoryRepository categoryRepository = context.getBean(CategoryRepository.class);
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+
+        // BCrypt медленный — один хеш на всех
+        String passwordHash = context.getBean(PasswordEncoder.class).encode(PASSWORD);
+        List<User> seededUsers = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            seededUsers.add(new User("loadtest-" + i, "loadtest-" + i + "@test.local", passwordHash, Role.ROLE_USER));
+        }
+        userRepository.saveAll(seededUsers);
+
+        List<Category> seededCategories = new ArrayList<>(categories);
+        for (int i = 0; i < categories; i++) {
+            seededCategories.add(new Category("Category " + i, "Load test category " + i));
+        }
+        seededCategories = categoryRepository.saveAll(seededCategories);
+
+        Random random = new Random(42);
+        List<Product> seededProducts = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            String name = WORDS.get(random.nextInt(WORDS.size())) + " " + WORDS.get(random.nextInt(WORDS.size())) + " " + i;
+            Product product = new Product(name, "Load test product " + i,
+                    BigDecimal.valueOf(10 + random.nextInt(5000)), "LT-" + i, i < hotProducts ? hotStock : PRODUCT_STOCK);
+            product.setCategory(seededCategories.get(i % categories));
+            seededProducts.add(product);
+        }
+        seededProducts = productRepository.saveAll(seededProducts);
+
+        // Данные записаны в обход сервисов — перестраиваем снимок каталога и поисковый индекс
+        context.getBean(CatalogSnapshotHolder.class).rebuild();
+        context.getBean(ProductSearchIndex.class).rebuild(productRepository.findAll());
+
+        Map<Long, Integer> initialStock = new LinkedHashMap<>();
+        seededProducts.forEach(product -> initialStock.put(product.getId(), product.getStockQuantity()));
+        return initialStock;
+    }
+
+    private static String login(HttpClient http, ObjectMapper objectMapper, String baseUrl,
+                                String username, String password) throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of("username", username, "password", password));
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login failed for " + username + ": " + response.body());
+        }
+        return objectMapper.readTree(response.body()).get("token").asText();
+    }
+
+    // Остаток не отрицателен и сходится: начальный = текущий + продано в неотмененных заказах
+    private static List<String> checkStock(JdbcTemplate jdbcTemplate, Map<Long, Integer> initialStock) {
+        List<String> violations = new ArrayList<>();
+        jdbcTemplate.query("SELECT p.id, p.stock_quantity, " +
+                "COALESCE(SUM(oi.quantity) FILTER (WHERE o.status <> 'CANCELLED'), 0) AS sold " +
+                "FROM products p " +
+                "LEFT JOIN order_items oi ON oi.product_id = p.id " +
+                "LEFT JOIN orders o ON o.id = oi.order_id " +
+                "GROUP BY p.id, p.stock_quantity", rs -> {
+            long id = rs.getLong("id");
+            int stock = rs.getInt("stock_quantity");
+            long sold = rs.getLong("sold");
+            Integer initial = initialStock.get(id);
+            if (stock < 0) {
+                violations.add("Product " + id + " has negative stock " + stock);
+            }
+            if (initial != null && initial != stock + sold) {
+                violations.add("Product " + id + ": initial " + initial + " != stock " + stock + " + sold " + sold);
+            }
+        });
+        return violations;
+    }
+
+    private static Map<String, Object> report(String mode, LatencyRecorder total, double elapsedSeconds,
+                                              long checkoutRejections, List<String> violations) {
+        List<Map<String, Object>> endpoints = new ArrayList<>();
+        long requests = 0;
+        for (Map.Entry<String, LatencyRecorder.Series> entry : total.getSeries().entrySet()) {
+            LatencyRecorder.Series series = entry.getValue();
+            requests += series.count();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("endpoint", entry.getKey());
+            row.put("requests", series.count());
+            row.put("errors", series.errors());
+            row.put("throughput", series.count() / elapsedSeconds);
+            row.put("p50Ms", series.percentileMillis(50));
+            row.put("p95Ms", series.percentileMillis(95));
+            row.put("p99Ms", series.percentileMillis(99));
+            endpoints.add(row);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("mode", mode);
+        report.put("durationSeconds", elapsedSeconds);
+        report.put("requests", requests);
+        report.put("throughput", requests / elapsedSeconds);
+        report.put("checkoutRejections", checkoutRejections);
+        report.put("endpoints", endpoints);
+        report.put("stockViolations", violations);
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printReport(Map<String, Object> report) {
+        System.out.printf("%n[%s]%n", report.get("mode"));
+        System.out.printf("%-28s %9s %7s %9s %9s %9s %9s%n", "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms");
+        for (Map<String, Object> row : (List<Map<String, Object>>) report.get("endpoints")) {
+            System.out.printf("%-28s %9d %7d %9.1f %9.2f %9.2f %9.2f%n", row.get("endpoint"), row.get("requests"),
+                    row.get("errors"), row.get("throughput"), row.get("p50Ms"), row.get("p95Ms"), row.get("p99Ms"));
+        }
+        System.out.printf("%nTotal: %d requests in %.1f s (%.1f req/s), checkout rejections (out of stock): %d%n",
+                report.get("requests"), report.get("durationSeconds"), report.get("throughput"),
+                report.get("checkoutRejections"));
+
+        List<String> violations = (List<String>) report.get("stockViolations");
+        if (violations.isEmpty()) {
+            System.out.println("Stock consistency: OK");
+        } else {
+            System.out.println("Stock consistency: " + violations.size() + " violations");
+            violations.stream().limit(20).forEach(violation -> System.out.println("  " + violation));
+        }
+    }
+
+    // Сводка режимов: пропускная способность и хвосты задержек по каждому эндпоинту
+    @SuppressWarnings("unchecked")
+    private static void printComparison(List<Map<String, Object>> runs) {
+        System.out.printf("%nComparison%n%-28s %-9s %9s %9s %9s %7s%n", "endpoint", "mode", "req/s", "p95 ms", "p99 ms", "errors");
+        Map<String, List<String>> rows = new TreeMap<>();
+        for (Map<String, Object> run : runs) {
+            for (Map<String, Object> row : (List<Map<String, Object>>) run.get("endpoints")) {
+                rows.computeIfAbsent((String) row.get("endpoint"), endpoint -> new ArrayList<>())
+                        .add(String.format("%-28s %-9s %9.1f %9.2f %9.2f %7d", row.get("endpoint"), run.get("mode"),
+                                row.get("throughput"), row.get("p95Ms"), row.get("p99Ms"), row.get("errors")));
+            }
+        }
+        rows.values().forEach(lines -> lines.forEach(System.out::println));
+        for (Map<String, Object> run : runs) {
+            System.out.printf("Total [%s]: %.1f req/s%n", run.get("mode"), run.get("throughput"));
+        }
+    }
+}
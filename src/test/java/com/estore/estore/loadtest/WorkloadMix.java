@@ -0,0 +1,52 @@
+package com.estore.estore.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Доли операций в нагрузке, например "browse=50,search=20,cart=20,checkout=8,admin=2".
+ */
+final class WorkloadMix {
+
+    enum Operation { BROWSE, SEARCH, CART, CHECKOUT, ADMIN }
+
+    private final Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+    private final int total;
+
+    private WorkloadMix(Map<Operation, Integer> weights) {
+        this.weights.putAll(weights);
+        this.total = weights.values().stream().mapToInt(Integer::intValue).sum();
+        if (total <= 0) {
+            throw new IllegalArgumentException("Workload mix must have a positive weight");
+        }
+    }
+
+    static WorkloadMix parse(String spec) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid workload mix entry: " + part);
+            }
+            weights.put(Operation.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+        }
+        return new WorkloadMix(weights);
+    }
+
+    Operation next(Random random) {
+        int pick = random.nextInt(total);
+        for (Map.Entry<Operation, Integer> entry : weights.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    @Override
+    public String toString() {
+        return weights.toString();
+    }
+}
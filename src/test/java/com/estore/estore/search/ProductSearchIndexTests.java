@@ -0,0 +1,56 @@
+package com.estore.estore.search;
+
+import com.estore.estore.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTests {
+
+    private static Product product(long id, String name, String model, String description) {
+        Product product = new Product(name, description, BigDecimal.TEN, model, 1);
+        product.setId(id);
+        return product;
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.rebuild(List.of(
+                product(1, "Чехол для телефона", "CASE-1", "Подходит для Samsung Galaxy"),
+                product(2, "Samsung Galaxy S24", "SM-S921B", "Смартфон")
+        ));
+
+        assertThat(index.search("samsung")).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void requiresAllTermsAndMatchesLastTermAsPrefix() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.rebuild(List.of(
+                product(1, "Apple iPhone 15", "A3090", null),
+                product(2, "Apple iPad Air", "A2588", null)
+        ));
+
+        assertThat(index.search("apple iph")).containsExactly(1L);
+        assertThat(index.search("APPLE")).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.search("a2588")).containsExactly(2L);
+    }
+
+    @Test
+    void reflectsUpdatesAndDeletes() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.rebuild(List.of(product(1, "Sony WH-1000XM5", "WH1000XM5", null)));
+
+        index.index(product(1, "Sony WF-1000XM5", "WF1000XM5", null));
+        assertThat(index.search("wh")).isEmpty();
+        assertThat(index.search("wf")).containsExactly(1L);
+
+        index.remove(1L);
+        assertThat(index.search("sony")).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+}
@@ -0,0 +1,94 @@
+package com.estore.estore.search;
+
+import com.estore.estore.analytics.SalesRollupRepository;
+import com.estore.estore.dto.response.SuggestionResponse;
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSuggestIndexTests {
+
+    private static Product product(long id, String name, String model, Category category) {
+        Product product = new Product(name, null, BigDecimal.TEN, model, 1);
+        product.setId(id);
+        product.setCategory(category);
+        return product;
+    }
+
+    private static Category category(long id, String name) {
+        Category category = new Category(name, null);
+        category.setId(id);
+        return category;
+    }
+
+    private static List<Long> ids(List<SuggestionResponse> suggestions) {
+        return suggestions.stream().map(SuggestionResponse::getId).toList();
+    }
+
+    @Test
+    void matchesPrefixOfAnyWordAndModelRankedByPopularity() {
+        Category phones = category(10, "Смартфоны");
+        SalesRollupRepository rollups = mock(SalesRollupRepository.class);
+        when(rollups.unitsByProduct(any())).thenReturn(Map.of(2L, 50L, 1L, 5L));
+
+        ProductSuggestIndex index = new ProductSuggestIndex();
+        ReflectionTestUtils.setField(index, "salesRollupRepository", rollups);
+        index.rebuild(List.of(
+                product(1, "Apple iPhone 15", "A3090", phones),
+                product(2, "Apple iPhone 15 Pro", "A3102", phones),
+                product(3, "Apple iPad Air", "A2588", null)
+        ), List.of(phones));
+        index.refreshPopularity();
+
+        assertThat(ids(index.suggest("iph", 10))).containsExactly(2L, 1L);
+        assertThat(ids(index.suggest("IPHONE 15 p", 10))).containsExactly(2L);
+        assertThat(ids(index.suggest("a25", 10))).containsExactly(3L);
+        assertThat(index.suggest("смарт", 10)).extracting(SuggestionResponse::getType)
+                .containsExactly(ProductSuggestIndex.CATEGORY);
+        // Каждая запись один раз, даже если префикс совпал с несколькими ключами
+        assertThat(ids(index.suggest("a", 2))).hasSize(2).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void keepsCurrentAfterWrites() {
+        ProductSuggestIndex index = new ProductSuggestIndex();
+        index.rebuild(List.of(product(1, "Sony WH-1000XM5", "WH1000XM5", null)), List.of());
+
+        index.index(product(1, "Sony WF-1000XM5", "WF1000XM5", null));
+        index.publishPending();
+        assertThat(index.suggest("wh", 10)).isEmpty();
+        assertThat(ids(index.suggest("wf", 10))).containsExactly(1L);
+
+        index.remove(1L);
+        index.publishPending();
+        assertThat(index.suggest("sony", 10)).isEmpty();
+    }
+
+    @Test
+    void writesAreCollectedIntoOneBackgroundPublish() throws InterruptedException {
+        ProductSuggestIndex index = new ProductSuggestIndex();
+        index.rebuild(List.of(), List.of());
+
+        for (long id = 1; id <= 100; id++) {
+            index.index(product(id, "Lenovo ThinkPad " + id, "TP" + id, null));
+        }
+
+        // Публикует фоновый поток; ждем, пока словарь увидит последнюю запись
+        long deadline = System.currentTimeMillis() + 5000;
+        while (index.suggest("thinkpad 100", 10).isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(ids(index.suggest("thinkpad 100", 10))).containsExactly(100L);
+        assertThat(index.suggest("lenovo", 200)).hasSize(100);
+    }
+}
@@ -0,0 +1,66 @@
+package com.estore.estore.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilsTests {
+
+    private static final String SECRET = "mySuperSecretKeyForEStoreProject2024MakeItVeryLongAndSecureForJWTTokens";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JwtUtils jwtUtils = jwtUtils(2);
+
+    @Test
+    void fullCacheEvictsLeastRecentlyUsedToken() {
+        String first = token(1L, "first");
+        String second = token(2L, "second");
+        String third = token(3L, "third");
+
+        jwtUtils.verify(first);
+        jwtUtils.verify(second);
+        // first использован последним — вытесняется second, а не весь кэш
+        jwtUtils.verify(first);
+        jwtUtils.verify(third);
+
+        assertThat(jwtUtils.cachedTokens()).isEqualTo(2);
+        double hitsBefore = hits();
+        assertThat(jwtUtils.verify(first)).isNotNull();
+        assertThat(hits()).isEqualTo(hitsBefore + 1);
+        assertThat(jwtUtils.verify(second)).isNotNull();
+        assertThat(hits()).isEqualTo(hitsBefore + 1);
+    }
+
+    @Test
+    void invalidTokenIsNotCached() {
+        assertThat(jwtUtils.verify("not.a.token")).isNull();
+        assertThat(jwtUtils.cachedTokens()).isZero();
+    }
+
+    private String token(Long id, String username) {
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        UserPrincipal principal = new UserPrincipal(id, username, null, null, authorities);
+        return jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal, null, authorities));
+    }
+
+    private double hits() {
+        return meterRegistry.get("jwt.cache.requests").tag("result", "hit").counter().count();
+    }
+
+    private JwtUtils jwtUtils(int cacheSize) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(jwtUtils, "cacheSize", cacheSize);
+        ReflectionTestUtils.setField(jwtUtils, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.invokeMethod(jwtUtils, "init");
+        return jwtUtils;
+    }
+}
@@ -0,0 +1,188 @@
+package com.estore.estore.service;
+
+import com.estore.estore.dto.request.OrderRequest;
+import com.estore.estore.dto.response.OrderResponse;
+import com.estore.estore.exception.BusinessException;
+import com.estore.estore.model.CartItem;
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Order;
+import com.estore.estore.model.Product;
+import com.estore.estore.model.User;
+import com.estore.estore.repository.CartItemRepository;
+import com.estore.estore.repository.CategoryRepository;
+import com.estore.estore.repository.OrderRepository;
+import com.estore.estore.repository.ProductRepository;
+import com.estore.estore.repository.UserRepository;
+import com.estore.estore.security.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class OrderServiceConcurrencyTests {
+
+    private static final int STOCK = 10;
+    private static final int BUYERS = 64;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final String prefix = "oversell-" + System.nanoTime();
+    private final List<User> buyers = new ArrayList<>();
+    private Category category;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(new Category(prefix, "concurrency test"));
+
+        product = new Product(prefix, "concurrency test", new BigDecimal("9.99"), prefix, STOCK);
+        product.setCategory(category);
+        product = productRepository.save(product);
+
+        for (int i = 0; i < BUYERS; i++) {
+            User user = userRepository.save(new User(prefix + "-" + i, prefix + "-" + i + "@test.local", "secret123"));
+            cartItemRepository.save(new CartItem(user, product, 1));
+            buyers.add(user);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (User user : buyers) {
+            orderRepository.deleteAll(orderRepository.findByUserId(user.getId()));
+            cartItemRepository.deleteAll(cartItemRepository.findByUserId(user.getId()));
+            userRepository.delete(user);
+        }
+        productRepository.deleteById(product.getId());
+        categoryRepository.delete(category);
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (User buyer : buyers) {
+            futures.add(executor.submit(() -> {
+                authenticate(buyer);
+                try {
+                    start.await();
+                    orderService.createOrderFromCart(new OrderRequest("Test street 1", null));
+                    accepted.incrementAndGet();
+                } catch (BusinessException e) {
+                    rejected.incrementAndGet();
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(accepted.get()).isEqualTo(STOCK);
+        assertThat(rejected.get()).isEqualTo(BUYERS - STOCK);
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStockQuantity()).isZero();
+
+        long orderedUnits = buyers.stream()
+                .flatMap(user -> orderRepository.findByUserId(user.getId()).stream())
+                .filter(order -> order.getStatus() == Order.OrderStatus.PENDING)
+                .count();
+        assertThat(orderedUnits).isEqualTo(STOCK);
+    }
+
+    @Test
+    void concurrentCancelsReturnStockOnce() throws Exception {
+        User buyer = buyers.get(0);
+        authenticate(buyer);
+        OrderResponse order;
+        try {
+            order = orderService.createOrderFromCart(new OrderRequest("Test street 1", null));
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStockQuantity()).isEqualTo(STOCK - 1);
+
+        int cancels = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(cancels);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger cancelled = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < cancels; i++) {
+            futures.add(executor.submit(() -> {
+                authenticate(buyer);
+                try {
+                    start.await();
+                    orderService.cancelOrder(order.getId());
+                    cancelled.incrementAndGet();
+                } catch (BusinessException e) {
+                    rejected.incrementAndGet();
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(cancelled.get()).isEqualTo(1);
+        assertThat(rejected.get()).isEqualTo(cancels - 1);
+        // Остаток вернулся ровно один раз
+        assertThat(productRepository.findById(product.getId()).orElseThrow().getStockQuantity()).isEqualTo(STOCK);
+    }
+
+    private static void authenticate(User user) {
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        UserPrincipal principal = new UserPrincipal(user.getId(), user.getUsername(), null, null, authorities);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, authorities));
+    }
+}
@@ -0,0 +1,140 @@
+package com.estore.estore.service;
+
+import com.estore.estore.dto.response.CartResponse;
+import com.estore.estore.dto.response.OrderResponse;
+import com.estore.estore.model.CartItem;
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Order;
+import com.estore.estore.model.OrderItem;
+import com.estore.estore.model.Product;
+import com.estore.estore.model.User;
+import com.estore.estore.repository.CartItemRepository;
+import com.estore.estore.repository.CategoryRepository;
+import com.estore.estore.repository.OrderRepository;
+import com.estore.estore.repository.ProductRepository;
+import com.estore.estore.repository.UserRepository;
+import com.estore.estore.security.UserPrincipal;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Число SQL-запросов на чтение корзины и заказов не должно зависеть
+ * от количества заказов, позиций и товаров.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class QueryCountTests {
+
+    private static final int PRODUCTS = 6;
+    private static final int ORDERS = 8;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final String prefix = "queries-" + System.nanoTime();
+    private final List<Product> products = new ArrayList<>();
+    private Category category;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(new Category(prefix, "query count test"));
+        user = userRepository.save(new User(prefix, prefix + "@test.local", "secret123"));
+
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product(prefix + "-" + i, null, new BigDecimal("10.00"), prefix + "-" + i, 100);
+            product.setCategory(category);
+            products.add(productRepository.save(product));
+            cartItemRepository.save(new CartItem(user, products.get(i), 1));
+        }
+
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order(user, null, Order.OrderStatus.PENDING, "Test street 1", null);
+            for (Product product : products) {
+                order.addOrderItem(new OrderItem(order, product, 1, product.getPrice()));
+            }
+            order.setTotalAmount(order.calculateTotalAmount());
+            orderRepository.save(order);
+        }
+
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        UserPrincipal principal = new UserPrincipal(user.getId(), user.getUsername(), null, null, authorities);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, authorities));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        orderRepository.deleteAll(orderRepository.findByUserId(user.getId()));
+        cartItemRepository.deleteAll(cartItemRepository.findByUserId(user.getId()));
+        productRepository.deleteAll(products);
+        userRepository.delete(user);
+        categoryRepository.delete(category);
+    }
+
+    @Test
+    void cartIsLoadedWithConstantNumberOfQueries() {
+        Statistics statistics = statistics();
+
+        CartResponse cart = cartService.getCart();
+
+        assertThat(cart.getItems()).hasSize(PRODUCTS);
+        // корзина с товарами одним запросом; пользователь берется из principal
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void userOrdersAreLoadedWithConstantNumberOfQueries() {
+        Statistics statistics = statistics();
+
+        List<OrderResponse> orders = orderService.getUserOrders();
+
+        assertThat(orders).hasSize(ORDERS);
+        assertThat(orders).allSatisfy(order -> assertThat(order.getItems()).hasSize(PRODUCTS));
+        // заказы с позициями и товарами одним запросом
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
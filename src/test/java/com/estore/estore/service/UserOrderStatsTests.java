@@ -0,0 +1,200 @@
+package com.estore.estore.service;
+
+import com.estore.estore.dto.request.OrderRequest;
+import com.estore.estore.dto.response.OrderResponse;
+import com.estore.estore.dto.response.UserProfileResponse;
+import com.estore.estore.exception.BusinessException;
+import com.estore.estore.model.CartItem;
+import com.estore.estore.model.Category;
+import com.estore.estore.model.Product;
+import com.estore.estore.model.User;
+import com.estore.estore.repository.CartItemRepository;
+import com.estore.estore.repository.CategoryRepository;
+import com.estore.estore.repository.OrderRepository;
+import com.estore.estore.repository.ProductRepository;
+import com.estore.estore.repository.UserOrderStatsRepository;
+import com.estore.estore.repository.UserRepository;
+import com.estore.estore.security.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class UserOrderStatsTests {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserOrderStatsService userOrderStatsService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserOrderStatsRepository userOrderStatsRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final String prefix = "stats-" + System.nanoTime();
+    private User user;
+    private Category category;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        category = categoryRepository.save(new Category(prefix, "stats test"));
+
+        product = new Product(prefix, "stats test", new BigDecimal("9.99"), prefix, 100);
+        product.setCategory(category);
+        product = productRepository.save(product);
+
+        user = userRepository.save(new User(prefix, prefix + "@test.local", "secret123"));
+        authenticate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        orderRepository.deleteAll(orderRepository.findByUserId(user.getId()));
+        cartItemRepository.deleteAll(cartItemRepository.findByUserId(user.getId()));
+        userRepository.delete(user);
+        productRepository.deleteById(product.getId());
+        categoryRepository.delete(category);
+    }
+
+    @Test
+    void profileFollowsOrdersAndMatchesRebuild() {
+        placeOrder(2);
+        OrderResponse second = placeOrder(1);
+
+        UserProfileResponse profile = userService.getCurrentUserProfile();
+        assertThat(profile.getTotalOrders()).isEqualTo(2);
+        assertThat(profile.getTotalSpent()).isEqualByComparingTo("29.97");
+        assertThat(profile.getLastOrderAt()).isNotNull();
+
+        orderService.cancelOrder(second.getId());
+
+        profile = userService.getCurrentUserProfile();
+        assertThat(profile.getTotalOrders()).isEqualTo(1);
+        assertThat(profile.getTotalSpent()).isEqualByComparingTo("19.98");
+
+        userOrderStatsService.rebuildAll();
+
+        UserProfileResponse rebuilt = userService.getCurrentUserProfile();
+        assertThat(rebuilt.getTotalOrders()).isEqualTo(profile.getTotalOrders());
+        assertThat(rebuilt.getTotalSpent()).isEqualByComparingTo(profile.getTotalSpent());
+    }
+
+    @Test
+    void concurrentCancelsOfSameOrderCountOnce() throws Exception {
+        placeOrder(1);
+        OrderResponse order = placeOrder(2);
+
+        int cancels = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(cancels);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger cancelled = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < cancels; i++) {
+            futures.add(executor.submit(() -> {
+                authenticate();
+                try {
+                    start.await();
+                    orderService.cancelOrder(order.getId());
+                    cancelled.incrementAndGet();
+                } catch (BusinessException e) {
+                    rejected.incrementAndGet();
+                } finally {
+                    SecurityContextHolder.clearContext();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(cancelled.get()).isEqualTo(1);
+        assertThat(rejected.get()).isEqualTo(cancels - 1);
+        UserProfileResponse profile = userService.getCurrentUserProfile();
+        assertThat(profile.getTotalOrders()).isEqualTo(1);
+        assertThat(profile.getTotalSpent()).isEqualByComparingTo("9.99");
+    }
+
+    @Test
+    void rebuildWaitsForDeltaOfUserWithoutStatsRow() throws Exception {
+        // Строки агрегата у пользователя еще нет — пересчет должен ждать его первую дельту
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> delta = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            userOrderStatsRepository.lockUsersShared(new Long[]{user.getId()});
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Integer> rebuild = CompletableFuture.supplyAsync(userOrderStatsService::rebuildAll);
+        Thread.sleep(300);
+        assertThat(rebuild).isNotDone();
+
+        release.countDown();
+        delta.get(5, TimeUnit.SECONDS);
+        rebuild.get(30, TimeUnit.SECONDS);
+    }
+
+    private void authenticate() {
+        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        UserPrincipal principal = new UserPrincipal(user.getId(), user.getUsername(), null, null, authorities);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, authorities));
+    }
+
+    private OrderResponse placeOrder(int quantity) {
+        cartItemRepository.save(new CartItem(user, product, quantity));
+        return orderService.createOrderFromCart(new OrderRequest("Test street 1", null));
+    }
+}